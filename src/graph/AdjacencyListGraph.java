@@ -0,0 +1,145 @@
+package graph;
+
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * An implementation of Graph that maps each vertex to a hash map of its
+ * outgoing edges. This is the graph Graph.empty() returns.
+ *
+ * @param <L> type of vertex labels in this graph, must be immutable
+ */
+public class AdjacencyListGraph<L> implements Graph<L>, Compactable, BulkRemovable<L> {
+
+    /** Vertex count from which bulk removal scans the adjacency maps in parallel. */
+    private static final int PARALLEL_THRESHOLD = 1 << 12;
+
+    private Map<L, Map<L, Integer>> adjacencyList = new HashMap<>();
+
+    @Override
+    public boolean add(L vertex) {
+        if (adjacencyList.containsKey(vertex)) {
+            return false;
+        }
+        adjacencyList.put(vertex, Collections.emptyMap());
+        return true;
+    }
+
+    @Override
+    public int set(L source, L target, int weight) {
+        adjacencyList.putIfAbsent(source, Collections.emptyMap());
+        adjacencyList.putIfAbsent(target, Collections.emptyMap());
+
+        Map<L, Integer> edges = adjacencyList.get(source);
+        int previousWeight = edges.getOrDefault(target, 0);
+
+        if (weight == 0) {
+            edges.remove(target);
+        } else {
+            if (edges.isEmpty()) {
+                // vertices without outgoing edges share the immutable empty map
+                edges = new HashMap<>();
+                adjacencyList.put(source, edges);
+            }
+            edges.put(target, weight);
+        }
+
+        return previousWeight;
+    }
+
+    @Override
+    public boolean remove(L vertex) {
+        if (!adjacencyList.containsKey(vertex)) {
+            return false;
+        }
+
+        adjacencyList.remove(vertex);
+
+        for (Map<L, Integer> edges : adjacencyList.values()) {
+            edges.remove(vertex);
+        }
+
+        return true;
+    }
+
+    @Override
+    public int removeAll(Collection<? extends L> vertices) {
+        final Set<L> victims = new HashSet<>(vertices);
+        final int before = adjacencyList.size();
+        adjacencyList.keySet().removeAll(victims);
+        final int removed = before - adjacencyList.size();
+        if (removed > 0) {
+            // each map is only touched by the one thread that visits it
+            final Collection<Map<L, Integer>> maps = adjacencyList.values();
+            final Stream<Map<L, Integer>> stream = maps.size() >= PARALLEL_THRESHOLD
+                    ? maps.parallelStream() : maps.stream();
+            stream.forEach(edges -> edges.keySet().removeIf(victims::contains));
+        }
+        return removed;
+    }
+
+    @Override
+    public int retainIf(Predicate<? super L> keep) {
+        final List<L> victims = new ArrayList<>();
+        for (L vertex : adjacencyList.keySet()) {
+            if (!keep.test(vertex)) {
+                victims.add(vertex);
+            }
+        }
+        return victims.isEmpty() ? 0 : removeAll(victims);
+    }
+
+    @Override
+    public Set<L> vertices() {
+        return new HashSet<>(adjacencyList.keySet());
+    }
+
+    @Override
+    public Map<L, Integer> sources(L target) {
+        Map<L, Integer> sources = new HashMap<>();
+        for (Map.Entry<L, Map<L, Integer>> entry : adjacencyList.entrySet()) {
+            L source = entry.getKey();
+            Map<L, Integer> edges = entry.getValue();
+            if (edges.containsKey(target)) {
+                sources.put(source, edges.get(target));
+            }
+        }
+        return sources;
+    }
+
+    @Override
+    public Map<L, Integer> targets(L source) {
+        return adjacencyList.getOrDefault(source, Collections.emptyMap());
+    }
+
+    @Override
+    public MemoryFootprint memoryFootprint() {
+        long vertexBytes = MemoryFootprint.HASH_MAP + MemoryFootprint.tableBytes(adjacencyList.size())
+                + adjacencyList.size() * MemoryFootprint.HASH_MAP_NODE;
+        long edgeCount = 0;
+        long edgeBytes = 0;
+        long boxingBytes = 0;
+        for (Map<L, Integer> edges : adjacencyList.values()) {
+            if (edges instanceof HashMap) {
+                vertexBytes += MemoryFootprint.HASH_MAP + MemoryFootprint.tableBytes(edges.size());
+            }
+            edgeCount += edges.size();
+            edgeBytes += edges.size() * MemoryFootprint.HASH_MAP_NODE;
+            for (int weight : edges.values()) {
+                boxingBytes += MemoryFootprint.boxingBytes(weight);
+            }
+        }
+        return new MemoryFootprint(adjacencyList.size(), edgeCount, vertexBytes, edgeBytes + boxingBytes, boxingBytes);
+    }
+
+    @Override
+    public void compact() {
+        Map<L, Map<L, Integer>> compacted = new HashMap<>(adjacencyList.size() * 4 / 3 + 1);
+        for (Map.Entry<L, Map<L, Integer>> entry : adjacencyList.entrySet()) {
+            Map<L, Integer> edges = entry.getValue();
+            compacted.put(entry.getKey(), edges.isEmpty() ? Collections.emptyMap() : new HashMap<>(edges));
+        }
+        adjacencyList = compacted;
+    }
+}
@@ -0,0 +1,141 @@
+package graph;
+
+import java.util.Arrays;
+
+/**
+ * Intersection kernel for bridge-word search over int vertex ids.
+ * 
+ * <p>Given the out-neighbors of a first vertex and the in-neighbors of a
+ * second vertex, each as an array of ids sorted in increasing order with a
+ * parallel array of positive weights, finds the common neighbor b maximizing
+ * weight(first -> b) + weight(b -> second) without allocating.
+ * 
+ * <p>Lists of similar length are intersected by a linear merge that skips
+ * whole blocks of ids that cannot match. When one list is more than
+ * GALLOP_RATIO times longer than the other, each id of the short list is
+ * instead located in the long one by galloping (exponential then binary)
+ * search, which costs O(m log(n/m)) rather than O(m + n); word-affinity
+ * graphs are heavily skewed, and most pairs that involve a frequent word
+ * take this path.
+ * 
+ * <p>The neighbor lists returned by CompressedGraph.targets(int, ...) and
+ * CompressedGraph.sources(int, ...) are in the required form.
+ */
+public final class BridgeIntersection {
+
+    /** Length ratio above which the longer list is searched by galloping. */
+    static final int GALLOP_RATIO = 16;
+
+    /** Ids compared at once by the block-skipping merge. */
+    private static final int BLOCK = 4;
+
+    private BridgeIntersection() {
+        throw new AssertionError("BridgeIntersection is not instantiable");
+    }
+
+    /**
+     * Find the best bridge between two neighbor lists.
+     * 
+     * @param a ids of the first list in strictly increasing order
+     * @param aWeights weights of the first list, each > 0
+     * @param aLength number of entries used in a and aWeights
+     * @param b ids of the second list in strictly increasing order
+     * @param bWeights weights of the second list, each > 0
+     * @param bLength number of entries used in b and bWeights
+     * @return the id x present in both lists maximizing the sum of its two
+     *         weights, the smallest such id among ties, or -1 if the lists
+     *         have no id in common
+     */
+    public static int best(int[] a, int[] aWeights, int aLength, int[] b, int[] bWeights, int bLength) {
+        if (aLength == 0 || bLength == 0) {
+            return -1;
+        }
+        if ((long) aLength * GALLOP_RATIO < bLength) {
+            return gallop(a, aWeights, aLength, b, bWeights, bLength);
+        }
+        if ((long) bLength * GALLOP_RATIO < aLength) {
+            return gallop(b, bWeights, bLength, a, aWeights, aLength);
+        }
+        return merge(a, aWeights, aLength, b, bWeights, bLength);
+    }
+
+    /**
+     * Merge intersection; same spec as best().
+     */
+    static int merge(int[] a, int[] aWeights, int aLength, int[] b, int[] bWeights, int bLength) {
+        int best = -1;
+        int bestWeight = 0;
+        int i = 0;
+        int j = 0;
+        while (i + BLOCK <= aLength && j + BLOCK <= bLength) {
+            // skip a block when it lies entirely below the other list's head
+            if (a[i + BLOCK - 1] < b[j]) {
+                i += BLOCK;
+                continue;
+            }
+            if (b[j + BLOCK - 1] < a[i]) {
+                j += BLOCK;
+                continue;
+            }
+            final int x = a[i];
+            final int y = b[j];
+            if (x == y) {
+                final int weight = aWeights[i] + bWeights[j];
+                if (weight > bestWeight) {
+                    best = x;
+                    bestWeight = weight;
+                }
+            }
+            // advance without a data-dependent branch
+            i += x <= y ? 1 : 0;
+            j += y <= x ? 1 : 0;
+        }
+        while (i < aLength && j < bLength) {
+            final int x = a[i];
+            final int y = b[j];
+            if (x == y) {
+                final int weight = aWeights[i] + bWeights[j];
+                if (weight > bestWeight) {
+                    best = x;
+                    bestWeight = weight;
+                }
+            }
+            i += x <= y ? 1 : 0;
+            j += y <= x ? 1 : 0;
+        }
+        return best;
+    }
+
+    /**
+     * Galloping intersection of a short list into a long one; same spec as
+     * best(), efficient when shortLength is much less than longLength.
+     */
+    static int gallop(int[] small, int[] smallWeights, int smallLength,
+            int[] large, int[] largeWeights, int largeLength) {
+        int best = -1;
+        int bestWeight = 0;
+        int low = 0;
+        for (int i = 0; i < smallLength && low < largeLength; i++) {
+            final int x = small[i];
+            int step = 1;
+            while (low + step < largeLength && large[low + step] < x) {
+                step <<= 1;
+            }
+            // large[low + step/2] < x unless step == 1, and x <= large[low + step] if in range
+            final int from = step == 1 ? low : low + (step >> 1) + 1;
+            final int to = Math.min(low + step + 1, largeLength);
+            final int found = Arrays.binarySearch(large, from, to, x);
+            if (found >= 0) {
+                final int weight = smallWeights[i] + largeWeights[found];
+                if (weight > bestWeight) {
+                    best = x;
+                    bestWeight = weight;
+                }
+                low = found + 1;
+            } else {
+                low = -found - 1;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,84 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * A graph representation that can remove many vertices in one pass.
+ * 
+ * <p>Removing vertices one at a time costs a pass over the whole adjacency
+ * structure per vertex in most representations; removing them together
+ * costs one pass in total, which implementations may also spread over
+ * several threads.
+ *
+ * @param <L> type of vertex labels
+ */
+public interface BulkRemovable<L> {
+
+    /**
+     * Remove several vertices from this graph; any edges to or from them are
+     * also removed. Equivalent to calling remove(v) for each v in vertices.
+     * 
+     * @param vertices labels of the vertices to remove; labels not in the
+     *        graph are ignored
+     * @return number of vertices removed
+     */
+    public int removeAll(Collection<? extends L> vertices);
+
+    /**
+     * Remove every vertex of this graph that does not satisfy a predicate,
+     * with all edges to or from it.
+     * 
+     * @param keep called once for each vertex, from the calling thread only
+     * @return number of vertices removed
+     */
+    public int retainIf(Predicate<? super L> keep);
+
+    /**
+     * Remove several vertices from a graph, in one pass if it supports bulk
+     * removal and one at a time otherwise.
+     * Only atomic if the graph's own removeAll() is: otherwise other threads
+     * may see some of the vertices removed and not others.
+     * 
+     * @param <L> type of vertex labels
+     * @param graph graph to modify
+     * @param vertices labels of the vertices to remove
+     * @return number of vertices removed
+     */
+    @SuppressWarnings("unchecked")
+    public static <L> int removeAll(Graph<L> graph, Collection<? extends L> vertices) {
+        if (graph instanceof BulkRemovable) {
+            return ((BulkRemovable<L>) graph).removeAll(vertices);
+        }
+        int removed = 0;
+        for (L vertex : vertices) {
+            removed += graph.remove(vertex) ? 1 : 0;
+        }
+        return removed;
+    }
+
+    /**
+     * Remove every vertex of a graph that does not satisfy a predicate, in one
+     * pass if it supports bulk removal and one at a time otherwise.
+     * 
+     * @param <L> type of vertex labels
+     * @param graph graph to modify
+     * @param keep called once for each vertex, from the calling thread only
+     * @return number of vertices removed
+     */
+    @SuppressWarnings("unchecked")
+    public static <L> int retainIf(Graph<L> graph, Predicate<? super L> keep) {
+        if (graph instanceof BulkRemovable) {
+            return ((BulkRemovable<L>) graph).retainIf(keep);
+        }
+        final List<L> victims = new ArrayList<>();
+        for (L vertex : graph.vertices()) {
+            if (!keep.test(vertex)) {
+                victims.add(vertex);
+            }
+        }
+        return removeAll(graph, victims);
+    }
+}
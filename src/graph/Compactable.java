@@ -0,0 +1,20 @@
+package graph;
+
+/**
+ * A graph representation that can estimate and reduce its own heap use.
+ */
+public interface Compactable {
+
+    /**
+     * Estimate the heap used by this graph's representation.
+     * 
+     * @return footprint estimate of the current representation
+     */
+    public MemoryFootprint memoryFootprint();
+
+    /**
+     * Shrink internal tables and lists to fit their contents, and release
+     * containers left empty by removals. Does not change the abstract graph.
+     */
+    public void compact();
+}
@@ -0,0 +1,408 @@
+package graph;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A read-only, compressed copy of a graph.
+ * 
+ * <p>Vertices are numbered 0 .. n-1. The out-edges of every vertex are stored
+ * as one run of bytes in a shared array: the degree, then for each target in
+ * increasing id order the gap from the previous target id and the weight, all
+ * as unsigned LEB128 varints. Word-affinity graphs have mostly small gaps and
+ * weights, so a typical edge costs two or three bytes instead of a hash map
+ * node and a boxed Integer. In-edges are stored the same way for sources().
+ * 
+ * <p>The Graph observers decode into new maps; the int-id methods decode into
+ * caller-supplied arrays, or per-thread scratch arrays, without allocating,
+ * and return neighbors sorted by id, for inner loops that work on ids
+ * throughout.
+ * 
+ * <p>Immutable; the Graph mutators throw UnsupportedOperationException.
+ *
+ * @param <L> type of vertex labels in this graph, must be immutable
+ */
+public class CompressedGraph<L> implements Graph<L>, Compactable {
+
+    /** Decoding space for bestBridge(), grown as needed and kept per thread. */
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private final Object[] labels;
+    private final Map<L, Integer> ids;
+    private final int[] outOffsets;
+    private final byte[] outData;
+    private final int[] inOffsets;
+    private final byte[] inData;
+    private final long edges;
+
+    // Abstraction function:
+    //   AF(labels, outOffsets, outData, ...) = the graph with vertices labels[0..n-1]
+    //     and an edge labels[s] -> labels[t] of weight w iff the run
+    //     outData[outOffsets[s] .. outOffsets[s+1]) lists target t with weight
+    //     w; inData lists the same edges by target.
+    // Representation invariant:
+    //   - ids.get(labels[i]) == i for all i, and ids has no other keys
+    //   - outOffsets and inOffsets have length n + 1, start at 0, are
+    //     non-decreasing and end at the data lengths
+    //   - each run is a well-formed degree followed by that many
+    //     (gap, weight) pairs with weight > 0 and ids in range; gaps after the
+    //     first are > 0
+    //   - edges is the total out-degree, equal to the total in-degree
+    // Safety from rep exposure:
+    //   - All fields are private and final; arrays are never returned, and
+    //     decoded results are copied into new maps or caller arrays.
+
+    private CompressedGraph(Object[] labels, Map<L, Integer> ids, int[] outOffsets, byte[] outData,
+            int[] inOffsets, byte[] inData, long edges) {
+        this.labels = labels;
+        this.ids = ids;
+        this.outOffsets = outOffsets;
+        this.outData = outData;
+        this.inOffsets = inOffsets;
+        this.inData = inData;
+        this.edges = edges;
+        checkRep();
+    }
+
+    /**
+     * Compress a graph.
+     * 
+     * @param <L> type of vertex labels
+     * @param graph graph to copy; later changes to it are not reflected
+     * @return a compressed copy of graph
+     */
+    public static <L> CompressedGraph<L> of(Graph<L> graph) {
+        final Object[] labels = graph.vertices().toArray();
+        final Map<L, Integer> ids = new HashMap<>(labels.length * 4 / 3 + 1);
+        for (int i = 0; i < labels.length; i++) {
+            @SuppressWarnings("unchecked")
+            final L label = (L) labels[i];
+            ids.put(label, i);
+        }
+        final int[][] sources = new int[labels.length][];
+        final int[][] sourceWeights = new int[labels.length][];
+        final int[] inDegree = new int[labels.length];
+
+        final int[] outOffsets = new int[labels.length + 1];
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final int[][] targets = new int[labels.length][];
+        final int[][] targetWeights = new int[labels.length][];
+        long edges = 0;
+        for (int s = 0; s < labels.length; s++) {
+            @SuppressWarnings("unchecked")
+            final Map<L, Integer> edgesOut = graph.targets((L) labels[s]);
+            targets[s] = new int[edgesOut.size()];
+            targetWeights[s] = new int[edgesOut.size()];
+            int i = 0;
+            for (Map.Entry<L, Integer> edge : edgesOut.entrySet()) {
+                targets[s][i] = ids.get(edge.getKey());
+                targetWeights[s][i] = edge.getValue();
+                inDegree[targets[s][i]]++;
+                i++;
+            }
+            sortByNeighbor(targets[s], targetWeights[s]);
+            outOffsets[s] = out.size();
+            writeRun(out, targets[s], targetWeights[s], targets[s].length);
+            edges += targets[s].length;
+        }
+        outOffsets[labels.length] = out.size();
+
+        for (int t = 0; t < labels.length; t++) {
+            sources[t] = new int[inDegree[t]];
+            sourceWeights[t] = new int[inDegree[t]];
+        }
+        final int[] filled = new int[labels.length];
+        for (int s = 0; s < labels.length; s++) {
+            // sources are visited in increasing s, so each in-list comes out sorted
+            for (int i = 0; i < targets[s].length; i++) {
+                final int t = targets[s][i];
+                sources[t][filled[t]] = s;
+                sourceWeights[t][filled[t]] = targetWeights[s][i];
+                filled[t]++;
+            }
+            targets[s] = null;
+            targetWeights[s] = null;
+        }
+        final int[] inOffsets = new int[labels.length + 1];
+        final ByteArrayOutputStream in = new ByteArrayOutputStream();
+        for (int t = 0; t < labels.length; t++) {
+            inOffsets[t] = in.size();
+            writeRun(in, sources[t], sourceWeights[t], sources[t].length);
+            sources[t] = null;
+            sourceWeights[t] = null;
+        }
+        inOffsets[labels.length] = in.size();
+        return new CompressedGraph<>(labels, ids, outOffsets, out.toByteArray(), inOffsets, in.toByteArray(), edges);
+    }
+
+    private void checkRep() {
+        assert ids.size() == labels.length : "ids and labels differ";
+        assert outOffsets.length == labels.length + 1 : "Bad out offsets";
+        assert inOffsets.length == labels.length + 1 : "Bad in offsets";
+        assert outOffsets[labels.length] == outData.length : "Out offsets do not cover data";
+        assert inOffsets[labels.length] == inData.length : "In offsets do not cover data";
+    }
+
+    private static void sortByNeighbor(int[] neighbors, int[] weights) {
+        final long[] packed = new long[neighbors.length];
+        for (int i = 0; i < neighbors.length; i++) {
+            packed[i] = ((long) neighbors[i] << 32) | (weights[i] & 0xffffffffL);
+        }
+        Arrays.sort(packed);
+        for (int i = 0; i < neighbors.length; i++) {
+            neighbors[i] = (int) (packed[i] >>> 32);
+            weights[i] = (int) packed[i];
+        }
+    }
+
+    private static void writeRun(ByteArrayOutputStream out, int[] neighbors, int[] weights, int degree) {
+        writeVarint(out, degree);
+        int previous = 0;
+        for (int i = 0; i < degree; i++) {
+            writeVarint(out, neighbors[i] - previous);
+            writeVarint(out, weights[i]);
+            previous = neighbors[i];
+        }
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7f) != 0) {
+            out.write((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    /**
+     * @return number of vertices; ids range over 0 .. vertexCount() - 1
+     */
+    public int vertexCount() {
+        return labels.length;
+    }
+
+    /**
+     * @param vertex a vertex label
+     * @return the id of vertex, or -1 if it is not in the graph
+     */
+    public int id(L vertex) {
+        return ids.getOrDefault(vertex, -1);
+    }
+
+    /**
+     * @param id a vertex id, 0 <= id < vertexCount()
+     * @return the label of that vertex
+     */
+    @SuppressWarnings("unchecked")
+    public L label(int id) {
+        return (L) labels[id];
+    }
+
+    /**
+     * @param id a vertex id, 0 <= id < vertexCount()
+     * @return number of edges out of that vertex
+     */
+    public int outDegree(int id) {
+        return readVarint(outData, outOffsets[id]);
+    }
+
+    /**
+     * @param id a vertex id, 0 <= id < vertexCount()
+     * @return number of edges into that vertex
+     */
+    public int inDegree(int id) {
+        return readVarint(inData, inOffsets[id]);
+    }
+
+    /**
+     * Decode the edges out of a vertex.
+     * 
+     * @param id a vertex id, 0 <= id < vertexCount()
+     * @param targets receives the target ids in increasing order; length must
+     *        be at least outDegree(id)
+     * @param weights receives the matching weights; length must be at least
+     *        outDegree(id)
+     * @return outDegree(id)
+     */
+    public int targets(int id, int[] targets, int[] weights) {
+        return decode(outData, outOffsets[id], targets, weights);
+    }
+
+    /**
+     * Decode the edges into a vertex.
+     * 
+     * @param id a vertex id, 0 <= id < vertexCount()
+     * @param sources receives the source ids in increasing order; length must
+     *        be at least inDegree(id)
+     * @param weights receives the matching weights; length must be at least
+     *        inDegree(id)
+     * @return inDegree(id)
+     */
+    public int sources(int id, int[] sources, int[] weights) {
+        return decode(inData, inOffsets[id], sources, weights);
+    }
+
+    /**
+     * Find the best bridge between two vertices.
+     * 
+     * @param first a vertex id, 0 <= first < vertexCount()
+     * @param second a vertex id, 0 <= second < vertexCount()
+     * @return the id b maximizing weight(first -> b) + weight(b -> second),
+     *         the smallest such id among ties, or -1 if there is no two-edge
+     *         path from first to second
+     * @see BridgeIntersection#best
+     */
+    public int bestBridge(int first, int second) {
+        final Scratch scratch = SCRATCH.get();
+        scratch.ensure(Math.max(outDegree(first), inDegree(second)));
+        final int outDegree = targets(first, scratch.targets, scratch.targetWeights);
+        final int inDegree = sources(second, scratch.sources, scratch.sourceWeights);
+        return BridgeIntersection.best(scratch.targets, scratch.targetWeights, outDegree,
+                scratch.sources, scratch.sourceWeights, inDegree);
+    }
+
+    /** Arrays to decode two neighbor lists into, reused across calls on one thread. */
+    private static final class Scratch {
+        int[] targets = new int[16];
+        int[] targetWeights = new int[16];
+        int[] sources = new int[16];
+        int[] sourceWeights = new int[16];
+
+        /** Grow every array to at least length. */
+        void ensure(int length) {
+            if (targets.length < length) {
+                final int grown = Math.max(length, targets.length * 2);
+                targets = new int[grown];
+                targetWeights = new int[grown];
+                sources = new int[grown];
+                sourceWeights = new int[grown];
+            }
+        }
+    }
+
+    private static int decode(byte[] data, int offset, int[] neighbors, int[] weights) {
+        int position = offset;
+        int degree = 0;
+        for (int shift = 0;; shift += 7) {
+            final byte b = data[position++];
+            degree |= (b & 0x7f) << shift;
+            if (b >= 0) {
+                break;
+            }
+        }
+        if (neighbors.length < degree || weights.length < degree) {
+            throw new IllegalArgumentException("Arrays too short for degree " + degree);
+        }
+        int neighbor = 0;
+        for (int i = 0; i < degree; i++) {
+            int gap = 0;
+            for (int shift = 0;; shift += 7) {
+                final byte b = data[position++];
+                gap |= (b & 0x7f) << shift;
+                if (b >= 0) {
+                    break;
+                }
+            }
+            int weight = 0;
+            for (int shift = 0;; shift += 7) {
+                final byte b = data[position++];
+                weight |= (b & 0x7f) << shift;
+                if (b >= 0) {
+                    break;
+                }
+            }
+            neighbor += gap;
+            neighbors[i] = neighbor;
+            weights[i] = weight;
+        }
+        return degree;
+    }
+
+    private static int readVarint(byte[] data, int position) {
+        int value = 0;
+        for (int shift = 0;; shift += 7) {
+            final byte b = data[position++];
+            value |= (b & 0x7f) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    @Override
+    public boolean add(L vertex) {
+        throw new UnsupportedOperationException("CompressedGraph is read-only");
+    }
+
+    @Override
+    public int set(L source, L target, int weight) {
+        throw new UnsupportedOperationException("CompressedGraph is read-only");
+    }
+
+    @Override
+    public boolean remove(L vertex) {
+        throw new UnsupportedOperationException("CompressedGraph is read-only");
+    }
+
+    @Override
+    public Set<L> vertices() {
+        return new HashSet<>(ids.keySet());
+    }
+
+    @Override
+    public Map<L, Integer> sources(L target) {
+        final int id = id(target);
+        return id < 0 ? Collections.emptyMap() : toMap(inData, inOffsets[id]);
+    }
+
+    @Override
+    public Map<L, Integer> targets(L source) {
+        final int id = id(source);
+        return id < 0 ? Collections.emptyMap() : toMap(outData, outOffsets[id]);
+    }
+
+    private Map<L, Integer> toMap(byte[] data, int offset) {
+        final int degree = readVarint(data, offset);
+        final int[] neighbors = new int[degree];
+        final int[] weights = new int[degree];
+        decode(data, offset, neighbors, weights);
+        final Map<L, Integer> result = new HashMap<>(degree * 4 / 3 + 1);
+        for (int i = 0; i < degree; i++) {
+            result.put(label(neighbors[i]), weights[i]);
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     * Counts the id map, including its boxed ids, as vertex bytes; edge
+     * weights are not boxed.
+     */
+    @Override
+    public MemoryFootprint memoryFootprint() {
+        final long vertexBytes = MemoryFootprint.arrayBytes(labels.length)
+                + MemoryFootprint.HASH_MAP + MemoryFootprint.tableBytes(ids.size())
+                + ids.size() * MemoryFootprint.HASH_MAP_NODE
+                + Math.max(0, labels.length - 128) * MemoryFootprint.BOXED_INTEGER
+                + 2 * MemoryFootprint.arrayBytes(labels.length + 1);
+        final long edgeBytes = (16 + outData.length + 7) / 8 * 8 + (16 + inData.length + 7) / 8 * 8;
+        return new MemoryFootprint(labels.length, edges, vertexBytes, edgeBytes, 0);
+    }
+
+    /**
+     * Does nothing: a CompressedGraph is always compact.
+     */
+    @Override
+    public void compact() {
+    }
+
+    @Override
+    public String toString() {
+        return "CompressedGraph(" + labels.length + " vertices, " + edges + " edges, "
+                + (outData.length + inData.length) + " bytes of adjacency)";
+    }
+}
@@ -4,24 +4,41 @@
 package graph;
 
 import java.util.*;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * An implementation of Graph.
  * 
  * <p>PS2 instructions: you MUST use the provided rep.
+ * 
+ * @param <L> type of vertex labels in this graph, must be immutable
+ * @see DenseEdgesGraph for the same rep specialized to int vertex ids
  */
-public class ConcreteEdgesGraph implements Graph<String> {
+public class ConcreteEdgesGraph<L> implements Graph<L>, Compactable, BulkRemovable<L> {
+
+    /**
+     * Edge count from which bulk removal filters the edge list in parallel.
+     * Not final, so that tests can lower it to cover the parallel path.
+     */
+    static int parallelThreshold = 1 << 14;
 
-    private final Set<String> vertices = new HashSet<>();
-    private final List<Edge> edges = new ArrayList<>();
+    private Set<L> vertices = new HashSet<>();
+    private final ArrayList<Edge<L>> edges = new ArrayList<>();
+    // neither the vertex table nor the edge array shrinks until compact()
+    private int peakVertices = 0;
+    private int peakEdges = 0;
 
     // Abstraction function:
     //   AF(vertices, edges) = a graph where 'vertices' is the set of all vertices and 'edges' contains all edges between vertices with specific weights.
     // Representation invariant:
     //   - For every edge in 'edges', both edge.getSource() and edge.getTarget() are in 'vertices'.
     //   - No two edges in 'edges' have the same source and target.
+    //   - peakVertices >= vertices.size() and peakEdges >= edges.size().
     // Safety from rep exposure:
-    //   - 'vertices' and 'edges' are private and final.
+    //   - 'vertices' and 'edges' are private; 'edges' is final, and 'vertices'
+    //     is only reassigned by compact().
     //   - Methods return copies of collections to avoid exposing internal references.
 
     /**
@@ -36,37 +53,39 @@ public class ConcreteEdgesGraph implements Graph<String> {
      * @throws AssertionError if the representation invariant is violated
      */
     private void checkRep() {
-        for (Edge edge : edges) {
+        for (Edge<L> edge : edges) {
             assert vertices.contains(edge.getSource()) : "Source vertex not in vertices";
             assert vertices.contains(edge.getTarget()) : "Target vertex not in vertices";
         }
 
         // Ensure no duplicate edges
-        Set<String> edgeDescriptions = new HashSet<>();
-        for (Edge edge : edges) {
-            String edgeDescription = edge.toString();
-            assert edgeDescriptions.add(edgeDescription) : "Duplicate edge detected: " + edgeDescription;
+        Set<List<L>> edgeEnds = new HashSet<>();
+        for (Edge<L> edge : edges) {
+            assert edgeEnds.add(Arrays.asList(edge.getSource(), edge.getTarget())) : "Duplicate edge detected: " + edge;
         }
+        assert peakVertices >= vertices.size() && peakEdges >= edges.size() : "Peak below size";
     }
 
     @Override
-    public boolean add(String vertex) {
+    public boolean add(L vertex) {
         boolean added = vertices.add(vertex);
+        peakVertices = Math.max(peakVertices, vertices.size());
         checkRep();
         return added;
     }
 
     @Override
-    public int set(String source, String target, int weight) {
+    public int set(L source, L target, int weight) {
         // Add vertices if they don't exist
         vertices.add(source);
         vertices.add(target);
+        peakVertices = Math.max(peakVertices, vertices.size());
 
         // Check for existing edge and remove it
         int previousWeight = 0;
-        Iterator<Edge> edgeIterator = edges.iterator();
+        Iterator<Edge<L>> edgeIterator = edges.iterator();
         while (edgeIterator.hasNext()) {
-            Edge edge = edgeIterator.next();
+            Edge<L> edge = edgeIterator.next();
             if (edge.getSource().equals(source) && edge.getTarget().equals(target)) {
                 previousWeight = edge.getWeight();
                 edgeIterator.remove();
@@ -76,7 +95,8 @@ public class ConcreteEdgesGraph implements Graph<String> {
 
         // Add new edge if weight is non-zero
         if (weight > 0) {
-            edges.add(new Edge(source, target, weight));
+            edges.add(new Edge<>(source, target, weight));
+            peakEdges = Math.max(peakEdges, edges.size());
         }
 
         checkRep();
@@ -84,7 +104,7 @@ public class ConcreteEdgesGraph implements Graph<String> {
     }
 
     @Override
-    public boolean remove(String vertex) {
+    public boolean remove(L vertex) {
         boolean removed = vertices.remove(vertex);
 
         if (removed) {
@@ -96,14 +116,43 @@ public class ConcreteEdgesGraph implements Graph<String> {
     }
 
     @Override
-    public Set<String> vertices() {
+    public int removeAll(Collection<? extends L> vertices) {
+        final Set<L> victims = new HashSet<>(vertices);
+        final int before = this.vertices.size();
+        this.vertices.removeAll(victims);
+        final int removed = before - this.vertices.size();
+        if (removed > 0) {
+            final Stream<Edge<L>> stream = edges.size() >= parallelThreshold ? edges.parallelStream() : edges.stream();
+            final List<Edge<L>> kept = stream
+                    .filter(edge -> !victims.contains(edge.getSource()) && !victims.contains(edge.getTarget()))
+                    .collect(Collectors.toList());
+            edges.clear();
+            edges.addAll(kept);
+        }
+        checkRep();
+        return removed;
+    }
+
+    @Override
+    public int retainIf(Predicate<? super L> keep) {
+        final List<L> victims = new ArrayList<>();
+        for (L vertex : vertices) {
+            if (!keep.test(vertex)) {
+                victims.add(vertex);
+            }
+        }
+        return victims.isEmpty() ? 0 : removeAll(victims);
+    }
+
+    @Override
+    public Set<L> vertices() {
         return new HashSet<>(vertices); // Return a copy to preserve encapsulation
     }
 
     @Override
-    public Map<String, Integer> sources(String target) {
-        Map<String, Integer> sources = new HashMap<>();
-        for (Edge edge : edges) {
+    public Map<L, Integer> sources(L target) {
+        Map<L, Integer> sources = new HashMap<>();
+        for (Edge<L> edge : edges) {
             if (edge.getTarget().equals(target)) {
                 sources.put(edge.getSource(), edge.getWeight());
             }
@@ -112,9 +161,9 @@ public class ConcreteEdgesGraph implements Graph<String> {
     }
 
     @Override
-    public Map<String, Integer> targets(String source) {
-        Map<String, Integer> targets = new HashMap<>();
-        for (Edge edge : edges) {
+    public Map<L, Integer> targets(L source) {
+        Map<L, Integer> targets = new HashMap<>();
+        for (Edge<L> edge : edges) {
             if (edge.getSource().equals(source)) {
                 targets.put(edge.getTarget(), edge.getWeight());
             }
@@ -122,12 +171,31 @@ public class ConcreteEdgesGraph implements Graph<String> {
         return targets;
     }
 
+    @Override
+    public MemoryFootprint memoryFootprint() {
+        long vertexBytes = MemoryFootprint.HASH_SET + MemoryFootprint.HASH_MAP
+                + MemoryFootprint.tableBytes(peakVertices)
+                + vertices.size() * MemoryFootprint.HASH_MAP_NODE;
+        long edgeBytes = MemoryFootprint.ARRAY_LIST + MemoryFootprint.arrayBytes(peakEdges)
+                + edges.size() * Edge.BYTES;
+        return new MemoryFootprint(vertices.size(), edges.size(), vertexBytes, edgeBytes, 0);
+    }
+
+    @Override
+    public void compact() {
+        vertices = new HashSet<>(vertices);
+        edges.trimToSize();
+        peakVertices = vertices.size();
+        peakEdges = edges.size();
+        checkRep();
+    }
+
     @Override
     public String toString() {
         StringBuilder result = new StringBuilder("Graph:\n");
         result.append("Vertices:\n").append(vertices).append("\n");
         result.append("Edges:\n");
-        for (Edge edge : edges) {
+        for (Edge<L> edge : edges) {
             result.append(edge).append("\n");
         }
         return result.toString();
@@ -137,13 +205,18 @@ public class ConcreteEdgesGraph implements Graph<String> {
 /**
  * Represents an edge in a graph.
  * 
- * <p>Immutable. Weight must be positive. Source and target must be non-null strings.
+ * <p>Immutable. Weight must be positive. Source and target must be non-null.
  * This class is internal to the representation of ConcreteEdgesGraph.
+ * 
+ * @param <L> type of vertex labels, must be immutable
  */
-class Edge {
+class Edge<L> {
+
+    /** Heap size of one Edge: header, two references and an int. */
+    static final long BYTES = 24;
 
-    private final String source;
-    private final String target;
+    private final L source;
+    private final L target;
     private final int weight;
 
     // Abstraction function:
@@ -162,7 +235,7 @@ class Edge {
      * @param target the target vertex
      * @param weight the weight of the edge
      */
-    public Edge(String source, String target, int weight) {
+    public Edge(L source, L target, int weight) {
         this.source = Objects.requireNonNull(source, "Source cannot be null");
         this.target = Objects.requireNonNull(target, "Target cannot be null");
         if (weight <= 0) throw new IllegalArgumentException("Weight must be positive");
@@ -176,11 +249,11 @@ class Edge {
         assert weight > 0 : "Weight must be positive";
     }
 
-    public String getSource() {
+    public L getSource() {
         return source;
     }
 
-    public String getTarget() {
+    public L getTarget() {
         return target;
     }
 
@@ -4,15 +4,23 @@
 package graph;
 
 import java.util.*;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 /**
  * An implementation of Graph.
  * 
  * <p>PS2 instructions: you MUST use the provided rep.
+ * 
+ * @param <L> type of vertex labels in this graph, must be immutable
+ * @see DenseVerticesGraph for the same rep specialized to int vertex ids
  */
-public class ConcreteVerticesGraph implements Graph<String> {
+public class ConcreteVerticesGraph<L> implements Graph<L>, Compactable, BulkRemovable<L> {
+
+    /** Vertex count from which bulk removal scans the vertices in parallel. */
+    private static final int PARALLEL_THRESHOLD = 1 << 12;
 
-    private final List<Vertex> vertices = new ArrayList<>();
+    private final ArrayList<Vertex<L>> vertices = new ArrayList<>();
 
     // Abstraction function:
     //   Represents a graph where each Vertex object in 'vertices' contains a vertex and its outgoing edges.
@@ -34,28 +42,28 @@ public class ConcreteVerticesGraph implements Graph<String> {
      * @throws AssertionError if the representation invariant is violated
      */
     private void checkRep() {
-        Set<String> vertexLabels = new HashSet<>();
-        for (Vertex vertex : vertices) {
-            String label = vertex.getSource();
+        Set<L> vertexLabels = new HashSet<>();
+        for (Vertex<L> vertex : vertices) {
+            L label = vertex.getSource();
             assert vertexLabels.add(label) : "Duplicate vertex detected: " + label;
         }
     }
 
     @Override
-    public boolean add(String vertex) {
-        for (Vertex v : vertices) {
+    public boolean add(L vertex) {
+        for (Vertex<L> v : vertices) {
             if (v.getSource().equals(vertex)) {
                 return false; // Vertex already exists
             }
         }
-        vertices.add(new Vertex(vertex));
+        vertices.add(new Vertex<>(vertex));
         checkRep();
         return true;
     }
 
     @Override
-    public int set(String source, String target, int weight) {
-        Vertex sourceVertex = findOrCreateVertex(source);
+    public int set(L source, L target, int weight) {
+        Vertex<L> sourceVertex = findOrCreateVertex(source);
         findOrCreateVertex(target); // Ensure target vertex exists
 
         int previousWeight = sourceVertex.getOutEdges().getOrDefault(target, 0);
@@ -71,15 +79,15 @@ public class ConcreteVerticesGraph implements Graph<String> {
     }
 
     @Override
-    public boolean remove(String vertex) {
-        Vertex vertexToRemove = findVertex(vertex);
+    public boolean remove(L vertex) {
+        Vertex<L> vertexToRemove = findVertex(vertex);
         if (vertexToRemove == null) {
             return false;
         }
 
         vertices.remove(vertexToRemove);
 
-        for (Vertex v : vertices) {
+        for (Vertex<L> v : vertices) {
             v.removeOutEdge(vertex); // Remove all edges pointing to or from this vertex
         }
 
@@ -88,19 +96,46 @@ public class ConcreteVerticesGraph implements Graph<String> {
     }
 
     @Override
-    public Set<String> vertices() {
-        Set<String> result = new HashSet<>();
-        for (Vertex v : vertices) {
+    public int removeAll(Collection<? extends L> vertices) {
+        final Set<L> victims = new HashSet<>(vertices);
+        final int before = this.vertices.size();
+        this.vertices.removeIf(v -> victims.contains(v.getSource()));
+        final int removed = before - this.vertices.size();
+        if (removed > 0) {
+            // each Vertex is only touched by the one thread that visits it
+            final Stream<Vertex<L>> stream = this.vertices.size() >= PARALLEL_THRESHOLD
+                    ? this.vertices.parallelStream() : this.vertices.stream();
+            stream.forEach(v -> v.removeOutEdges(victims));
+        }
+        checkRep();
+        return removed;
+    }
+
+    @Override
+    public int retainIf(Predicate<? super L> keep) {
+        final List<L> victims = new ArrayList<>();
+        for (Vertex<L> v : vertices) {
+            if (!keep.test(v.getSource())) {
+                victims.add(v.getSource());
+            }
+        }
+        return victims.isEmpty() ? 0 : removeAll(victims);
+    }
+
+    @Override
+    public Set<L> vertices() {
+        Set<L> result = new HashSet<>();
+        for (Vertex<L> v : vertices) {
             result.add(v.getSource());
         }
         return result;
     }
 
     @Override
-    public Map<String, Integer> sources(String target) {
-        Map<String, Integer> sources = new HashMap<>();
-        for (Vertex v : vertices) {
-            Map<String, Integer> outEdges = v.getOutEdges();
+    public Map<L, Integer> sources(L target) {
+        Map<L, Integer> sources = new HashMap<>();
+        for (Vertex<L> v : vertices) {
+            Map<L, Integer> outEdges = v.getOutEdges();
             if (outEdges.containsKey(target)) {
                 sources.put(v.getSource(), outEdges.get(target));
             }
@@ -109,22 +144,47 @@ public class ConcreteVerticesGraph implements Graph<String> {
     }
 
     @Override
-    public Map<String, Integer> targets(String source) {
-        Vertex sourceVertex = findVertex(source);
+    public Map<L, Integer> targets(L source) {
+        Vertex<L> sourceVertex = findVertex(source);
         return (sourceVertex != null) ? sourceVertex.getOutEdges() : new HashMap<>();
     }
 
+    @Override
+    public MemoryFootprint memoryFootprint() {
+        long vertexBytes = MemoryFootprint.ARRAY_LIST + MemoryFootprint.arrayBytes(vertices.size());
+        long edgeCount = 0;
+        long edgeBytes = 0;
+        long boxingBytes = 0;
+        for (Vertex<L> v : vertices) {
+            MemoryFootprint footprint = v.memoryFootprint();
+            vertexBytes += footprint.vertexBytes();
+            edgeCount += footprint.edges();
+            edgeBytes += footprint.edgeBytes();
+            boxingBytes += footprint.boxingBytes();
+        }
+        return new MemoryFootprint(vertices.size(), edgeCount, vertexBytes, edgeBytes, boxingBytes);
+    }
+
+    @Override
+    public void compact() {
+        vertices.trimToSize();
+        for (Vertex<L> v : vertices) {
+            v.compact();
+        }
+        checkRep();
+    }
+
     @Override
     public String toString() {
         StringBuilder result = new StringBuilder();
-        for (Vertex v : vertices) {
+        for (Vertex<L> v : vertices) {
             result.append(v).append("\n");
         }
         return result.toString();
     }
 
-    private Vertex findVertex(String label) {
-        for (Vertex v : vertices) {
+    private Vertex<L> findVertex(L label) {
+        for (Vertex<L> v : vertices) {
             if (v.getSource().equals(label)) {
                 return v;
             }
@@ -132,10 +192,10 @@ public class ConcreteVerticesGraph implements Graph<String> {
         return null;
     }
 
-    private Vertex findOrCreateVertex(String label) {
-        Vertex vertex = findVertex(label);
+    private Vertex<L> findOrCreateVertex(L label) {
+        Vertex<L> vertex = findVertex(label);
         if (vertex == null) {
-            vertex = new Vertex(label);
+            vertex = new Vertex<>(label);
             vertices.add(vertex);
         }
         return vertex;
@@ -146,11 +206,16 @@ public class ConcreteVerticesGraph implements Graph<String> {
  * Represents a vertex in the graph.
  * 
  * <p>Mutable. The source is the vertex label, and outEdges maps target vertices to their weights.
+ * 
+ * @param <L> type of vertex labels, must be immutable
  */
-class Vertex {
+class Vertex<L> {
 
-    private final String source;
-    private final Map<String, Integer> outEdges;
+    /** Heap size of one Vertex without its map: header and two references. */
+    static final long BYTES = 24;
+
+    private final L source;
+    private Map<L, Integer> outEdges;
 
     // Abstraction function:
     //   Represents a vertex in a graph, where 'source' is the vertex label, and 'outEdges'
@@ -158,6 +223,8 @@ class Vertex {
     // Representation invariant:
     //   - source is non-null.
     //   - outEdges does not contain null keys or values, and all weights are > 0.
+    //   - outEdges is either a HashMap or, when it has no entries, the shared
+    //     immutable empty map.
     // Safety from rep exposure:
     //   - Fields are private and final where applicable.
     //   - outEdges is exposed only as a copy to prevent external modification.
@@ -167,39 +234,79 @@ class Vertex {
      * 
      * @param source the label of the vertex
      */
-    Vertex(String source) {
+    Vertex(L source) {
         this.source = Objects.requireNonNull(source, "Source cannot be null");
-        this.outEdges = new HashMap<>();
+        this.outEdges = Collections.emptyMap();
         checkRep();
     }
 
     private void checkRep() {
         assert source != null : "Source cannot be null";
-        for (Map.Entry<String, Integer> entry : outEdges.entrySet()) {
+        assert outEdges instanceof HashMap || outEdges.isEmpty() : "Shared empty map must stay empty";
+        for (Map.Entry<L, Integer> entry : outEdges.entrySet()) {
             assert entry.getKey() != null : "Target cannot be null";
             assert entry.getValue() > 0 : "Weight must be positive";
         }
     }
 
-    public String getSource() {
+    public L getSource() {
         return source;
     }
 
-    public Map<String, Integer> getOutEdges() {
+    public Map<L, Integer> getOutEdges() {
         return new HashMap<>(outEdges); // Return a copy to preserve encapsulation
     }
 
-    public void addOutEdge(String target, int weight) {
+    public void addOutEdge(L target, int weight) {
         if (weight <= 0) throw new IllegalArgumentException("Weight must be positive");
+        if (outEdges.isEmpty()) {
+            outEdges = new HashMap<>();
+        }
         outEdges.put(target, weight);
         checkRep();
     }
 
-    public void removeOutEdge(String target) {
+    public void removeOutEdge(L target) {
         outEdges.remove(target);
         checkRep();
     }
 
+    /**
+     * Remove the edges to several targets.
+     * 
+     * @param targets labels of the targets whose edges to remove
+     */
+    public void removeOutEdges(Set<L> targets) {
+        outEdges.keySet().removeIf(targets::contains);
+        checkRep();
+    }
+
+    /**
+     * Estimate the heap used by this vertex and its outgoing edges.
+     * 
+     * @return footprint of this vertex, counting it as one vertex
+     */
+    MemoryFootprint memoryFootprint() {
+        long vertexBytes = BYTES;
+        if (outEdges instanceof HashMap) {
+            vertexBytes += MemoryFootprint.HASH_MAP + MemoryFootprint.tableBytes(outEdges.size());
+        }
+        long boxingBytes = 0;
+        for (int weight : outEdges.values()) {
+            boxingBytes += MemoryFootprint.boxingBytes(weight);
+        }
+        long edgeBytes = outEdges.size() * MemoryFootprint.HASH_MAP_NODE + boxingBytes;
+        return new MemoryFootprint(1, outEdges.size(), vertexBytes, edgeBytes, boxingBytes);
+    }
+
+    /**
+     * Resize outEdges to fit its entries, or release it if it has none.
+     */
+    void compact() {
+        outEdges = outEdges.isEmpty() ? Collections.emptyMap() : new HashMap<>(outEdges);
+        checkRep();
+    }
+
     @Override
     public String toString() {
         if (outEdges.isEmpty()) {
@@ -0,0 +1,370 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * The rep of ConcreteEdgesGraph, specialized to dense int vertex ids.
+ *
+ * <p>Vertices are non-negative ints, expected to be dense (0 .. n-1 or close
+ * to it), and are kept as a bit set instead of a HashSet of labels. Edges are
+ * still one unordered list, but stored as three parallel int arrays instead of
+ * a list of Edge objects, so finding an edge is a scan comparing ints rather
+ * than calling equals() on labels, and no edge allocates.
+ *
+ * <p>Every id-based lookup is a scan over all edges. The Graph&lt;Integer&gt;
+ * methods box and unbox at the boundary and delegate to the id-based ones.
+ *
+ * <p>Mutable.
+ */
+public class DenseEdgesGraph implements DenseGraph {
+
+    private static final int[] NONE = new int[0];
+
+    private final BitSet vertices = new BitSet();
+    private int vertexCount = 0;
+    private int[] sources = NONE;
+    private int[] targets = NONE;
+    private int[] weights = NONE;
+    private int edgeCount = 0;
+
+    // Abstraction function:
+    //   AF(vertices, sources, targets, weights, edgeCount) = the graph whose
+    //     vertices are the set bits of 'vertices', with an edge
+    //     sources[i] -> targets[i] of weight weights[i] for each 0 <= i < edgeCount.
+    // Representation invariant:
+    //   - sources, targets and weights have the same length, at least edgeCount
+    //   - vertexCount == vertices.cardinality()
+    //   - for every i < edgeCount, sources[i] and targets[i] are in 'vertices'
+    //     and weights[i] > 0
+    //   - no two edges i < edgeCount have the same source and target
+    // Safety from rep exposure:
+    //   - All fields are private; arrays are never returned, and observers copy
+    //     into new collections or caller-supplied arrays.
+
+    /**
+     * Create a new empty graph.
+     */
+    public DenseEdgesGraph() {
+        checkRep();
+    }
+
+    private void checkRep() {
+        assert sources.length == targets.length && sources.length == weights.length;
+        assert edgeCount <= sources.length;
+        assert vertexCount == vertices.cardinality();
+        // one primitive array, sorted so duplicates are adjacent, rather than a set of boxed ends
+        final long[] ends = new long[edgeCount];
+        for (int i = 0; i < edgeCount; i++) {
+            assert vertices.get(sources[i]) : "Source vertex not in vertices";
+            assert vertices.get(targets[i]) : "Target vertex not in vertices";
+            assert weights[i] > 0 : "Weight must be positive";
+            ends[i] = (long) sources[i] << 32 | targets[i];
+        }
+        Arrays.sort(ends);
+        for (int i = 1; i < ends.length; i++) {
+            assert ends[i - 1] != ends[i] : "Duplicate edge detected";
+        }
+    }
+
+    @Override
+    public int vertexCount() {
+        return vertexCount;
+    }
+
+    /**
+     * @return number of edges in this graph
+     */
+    public int edgeCount() {
+        return edgeCount;
+    }
+
+    @Override
+    public boolean contains(int vertex) {
+        return vertex >= 0 && vertices.get(vertex);
+    }
+
+    @Override
+    public boolean add(int vertex) {
+        final boolean added = addVertex(vertex);
+        checkRep();
+        return added;
+    }
+
+    /**
+     * add() without checking the rep, for mutators that check it once at the end.
+     */
+    private boolean addVertex(int vertex) {
+        if (vertex < 0) {
+            throw new IllegalArgumentException("Vertex ids must be non-negative: " + vertex);
+        }
+        if (vertices.get(vertex)) {
+            return false;
+        }
+        vertices.set(vertex);
+        vertexCount++;
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     * Scans every edge to find source -> target.
+     */
+    @Override
+    public int set(int source, int target, int weight) {
+        if (weight < 0) {
+            throw new IllegalArgumentException("Weight must be non-negative: " + weight);
+        }
+        addVertex(source);
+        addVertex(target);
+        final int i = indexOf(source, target);
+        final int previous;
+        if (i >= 0) {
+            previous = weights[i];
+            if (weight > 0) {
+                weights[i] = weight;
+            } else {
+                // order does not matter, so fill the hole with the last edge
+                edgeCount--;
+                sources[i] = sources[edgeCount];
+                targets[i] = targets[edgeCount];
+                weights[i] = weights[edgeCount];
+            }
+        } else {
+            previous = 0;
+            if (weight > 0) {
+                if (edgeCount == sources.length) {
+                    final int length = Math.max(16, edgeCount * 2);
+                    sources = Arrays.copyOf(sources, length);
+                    targets = Arrays.copyOf(targets, length);
+                    weights = Arrays.copyOf(weights, length);
+                }
+                sources[edgeCount] = source;
+                targets[edgeCount] = target;
+                weights[edgeCount] = weight;
+                edgeCount++;
+            }
+        }
+        checkRep();
+        return previous;
+    }
+
+    /**
+     * {@inheritDoc}
+     * Scans every edge.
+     */
+    @Override
+    public int weight(int source, int target) {
+        final int i = indexOf(source, target);
+        return i >= 0 ? weights[i] : 0;
+    }
+
+    private int indexOf(int source, int target) {
+        for (int i = 0; i < edgeCount; i++) {
+            if (sources[i] == source && targets[i] == target) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean remove(int vertex) {
+        if (!contains(vertex)) {
+            return false;
+        }
+        vertices.clear(vertex);
+        vertexCount--;
+        removeEdgesTouching(vertices);
+        checkRep();
+        return true;
+    }
+
+    /**
+     * Remove every edge with an endpoint outside kept, keeping the order of
+     * the others.
+     */
+    private void removeEdgesTouching(BitSet kept) {
+        int count = 0;
+        for (int i = 0; i < edgeCount; i++) {
+            if (kept.get(sources[i]) && kept.get(targets[i])) {
+                sources[count] = sources[i];
+                targets[count] = targets[i];
+                weights[count] = weights[i];
+                count++;
+            }
+        }
+        edgeCount = count;
+    }
+
+    /**
+     * {@inheritDoc}
+     * Scans every edge.
+     */
+    @Override
+    public int outDegree(int vertex) {
+        int degree = 0;
+        for (int i = 0; i < edgeCount; i++) {
+            if (sources[i] == vertex) {
+                degree++;
+            }
+        }
+        return degree;
+    }
+
+    /**
+     * {@inheritDoc}
+     * Scans every edge.
+     */
+    @Override
+    public int inDegree(int vertex) {
+        int degree = 0;
+        for (int i = 0; i < edgeCount; i++) {
+            if (targets[i] == vertex) {
+                degree++;
+            }
+        }
+        return degree;
+    }
+
+    /**
+     * {@inheritDoc}
+     * Targets come in no particular order; scans every edge.
+     */
+    @Override
+    public int targets(int vertex, int[] targets, int[] weights) {
+        return gather(this.sources, this.targets, vertex, targets, weights);
+    }
+
+    /**
+     * {@inheritDoc}
+     * Sources come in no particular order; scans every edge.
+     */
+    @Override
+    public int sources(int vertex, int[] sources, int[] weights) {
+        return gather(this.targets, this.sources, vertex, sources, weights);
+    }
+
+    private int gather(int[] ends, int[] others, int vertex, int[] neighbors, int[] neighborWeights) {
+        int degree = 0;
+        for (int i = 0; i < edgeCount; i++) {
+            if (ends[i] == vertex) {
+                neighbors[degree] = others[i];
+                neighborWeights[degree] = weights[i];
+                degree++;
+            }
+        }
+        return degree;
+    }
+
+    @Override
+    public boolean add(Integer vertex) {
+        return add(vertex.intValue());
+    }
+
+    @Override
+    public int set(Integer source, Integer target, int weight) {
+        return set(source.intValue(), target.intValue(), weight);
+    }
+
+    @Override
+    public boolean remove(Integer vertex) {
+        return remove(vertex.intValue());
+    }
+
+    @Override
+    public int removeAll(Collection<? extends Integer> vertices) {
+        final int before = vertexCount;
+        for (Integer vertex : vertices) {
+            if (contains(vertex)) {
+                this.vertices.clear(vertex);
+                vertexCount--;
+            }
+        }
+        final int removed = before - vertexCount;
+        if (removed > 0) {
+            removeEdgesTouching(this.vertices);
+        }
+        checkRep();
+        return removed;
+    }
+
+    @Override
+    public int retainIf(Predicate<? super Integer> keep) {
+        final Set<Integer> victims = new HashSet<>();
+        for (int v = vertices.nextSetBit(0); v >= 0; v = vertices.nextSetBit(v + 1)) {
+            if (!keep.test(v)) {
+                victims.add(v);
+            }
+        }
+        return victims.isEmpty() ? 0 : removeAll(victims);
+    }
+
+    @Override
+    public Set<Integer> vertices() {
+        final Set<Integer> result = new HashSet<>(vertexCount * 4 / 3 + 1);
+        for (int v = vertices.nextSetBit(0); v >= 0; v = vertices.nextSetBit(v + 1)) {
+            result.add(v);
+        }
+        return result;
+    }
+
+    @Override
+    public Map<Integer, Integer> sources(Integer target) {
+        final Map<Integer, Integer> result = new HashMap<>();
+        for (int i = 0; i < edgeCount; i++) {
+            if (targets[i] == target) {
+                result.put(sources[i], weights[i]);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Map<Integer, Integer> targets(Integer source) {
+        final Map<Integer, Integer> result = new HashMap<>();
+        for (int i = 0; i < edgeCount; i++) {
+            if (sources[i] == source) {
+                result.put(targets[i], weights[i]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     * Ids and weights are not boxed, so boxing bytes are always 0.
+     */
+    @Override
+    public MemoryFootprint memoryFootprint() {
+        // the BitSet is a 24-byte object holding a long[]
+        final long vertexBytes = 24 + MemoryFootprint.arrayBytes(2 * ((vertices.length() + 63) / 64));
+        final long edgeBytes = 3 * MemoryFootprint.arrayBytes(sources.length);
+        return new MemoryFootprint(vertexCount, edgeCount, vertexBytes, edgeBytes, 0);
+    }
+
+    @Override
+    public void compact() {
+        sources = Arrays.copyOf(sources, edgeCount);
+        targets = Arrays.copyOf(targets, edgeCount);
+        weights = Arrays.copyOf(weights, edgeCount);
+        checkRep();
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder result = new StringBuilder("Graph:\n");
+        result.append("Vertices:\n").append(vertices).append("\n");
+        result.append("Edges:\n");
+        for (int i = 0; i < edgeCount; i++) {
+            result.append(sources[i]).append(" -> ").append(targets[i]).append(" : ").append(weights[i]).append("\n");
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,98 @@
+package graph;
+
+/**
+ * A graph whose vertices are dense non-negative int ids, with methods that
+ * work on primitive ids alongside the boxed Graph&lt;Integer&gt; ones.
+ *
+ * <p>The int-id methods take and fill primitive ids and do not allocate once
+ * the graph has grown, so an inner loop can work on ids end to end.
+ * Implementations store data per id, so storage grows with the largest id.
+ */
+public interface DenseGraph extends Graph<Integer>, Compactable, BulkRemovable<Integer> {
+
+    /**
+     * @return number of vertices in this graph
+     */
+    public int vertexCount();
+
+    /**
+     * @param vertex a vertex id
+     * @return true iff vertex is in this graph
+     */
+    public boolean contains(int vertex);
+
+    /**
+     * Add a vertex to this graph.
+     *
+     * @param vertex id for the new vertex, must be non-negative
+     * @return true if this graph did not already include vertex, and as a
+     *         result of this call it does
+     * @throws IllegalArgumentException if vertex is negative
+     */
+    public boolean add(int vertex);
+
+    /**
+     * Add, change, or remove a weighted directed edge in this graph, adding
+     * its endpoints if they are not already present.
+     *
+     * @param source id of the source vertex, must be non-negative
+     * @param target id of the target vertex, must be non-negative
+     * @param weight non-negative weight of the edge; 0 removes it
+     * @return the previous weight of the edge, or 0 if there was no such edge
+     * @throws IllegalArgumentException if an id or the weight is negative
+     */
+    public int set(int source, int target, int weight);
+
+    /**
+     * Remove a vertex from this graph; any edges to or from the vertex are
+     * also removed.
+     *
+     * @param vertex id of the vertex to remove
+     * @return true if this graph included vertex, and as a result of this call
+     *         it does not
+     */
+    public boolean remove(int vertex);
+
+    /**
+     * @param source a vertex id
+     * @param target a vertex id
+     * @return weight of the edge source -> target, or 0 if there is none
+     */
+    public int weight(int source, int target);
+
+    /**
+     * @param vertex a vertex id
+     * @return number of edges out of vertex, 0 if it is not in the graph
+     */
+    public int outDegree(int vertex);
+
+    /**
+     * @param vertex a vertex id
+     * @return number of edges into vertex, 0 if it is not in the graph
+     */
+    public int inDegree(int vertex);
+
+    /**
+     * Copy out the edges out of a vertex.
+     *
+     * @param vertex a vertex id
+     * @param targets receives the target ids, in an order the implementation
+     *        specifies; length must be at least outDegree(vertex)
+     * @param weights receives the matching weights; length must be at least
+     *        outDegree(vertex)
+     * @return outDegree(vertex)
+     */
+    public int targets(int vertex, int[] targets, int[] weights);
+
+    /**
+     * Copy out the edges into a vertex.
+     *
+     * @param vertex a vertex id
+     * @param sources receives the source ids, in an order the implementation
+     *        specifies; length must be at least inDegree(vertex)
+     * @param weights receives the matching weights; length must be at least
+     *        inDegree(vertex)
+     * @return inDegree(vertex)
+     */
+    public int sources(int vertex, int[] sources, int[] weights);
+}
@@ -0,0 +1,404 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * The rep of ConcreteVerticesGraph, specialized to dense int vertex ids.
+ *
+ * <p>Vertices are non-negative ints, expected to be dense (0 .. n-1 or close
+ * to it), since storage grows with the largest id. A vertex is found by
+ * indexing rather than by scanning a list of Vertex objects, and its outgoing
+ * edges are a run of target ids, kept sorted, with a parallel run of weights,
+ * instead of a HashMap with boxed keys and values.
+ *
+ * <p>Lookups out of a vertex are a binary search in its run; lookups into a
+ * vertex search the run of every vertex. The Graph&lt;Integer&gt; methods box
+ * and unbox at the boundary and delegate to the id-based ones.
+ *
+ * <p>Mutable.
+ */
+public class DenseVerticesGraph implements DenseGraph {
+
+    private static final int[] NONE = new int[0];
+
+    private final BitSet present = new BitSet();
+    private int vertexCount = 0;
+    private int[] degrees = NONE;
+    private int[][] targets = new int[0][];
+    private int[][] weights = new int[0][];
+
+    // Abstraction function:
+    //   AF(present, degrees, targets, weights) = the graph whose vertices are the
+    //     set bits of 'present', with an edge v -> targets[v][i] of weight
+    //     weights[v][i] for each 0 <= i < degrees[v].
+    // Representation invariant:
+    //   - degrees, targets and weights have the same length, at least present.length()
+    //   - vertexCount == present.cardinality()
+    //   - targets[v] and weights[v] are non-null, of the same length, at least
+    //     degrees[v]; degrees[v] == 0 if v is not present
+    //   - targets[v][0 .. degrees[v]) is strictly increasing and every entry is
+    //     present; weights[v][0 .. degrees[v]) are all > 0
+    // Safety from rep exposure:
+    //   - All fields are private; arrays are never returned, and observers copy
+    //     into new collections or caller-supplied arrays.
+
+    /**
+     * Create a new empty graph.
+     */
+    public DenseVerticesGraph() {
+        checkRep();
+    }
+
+    private void checkRep() {
+        assert degrees.length == targets.length && degrees.length == weights.length;
+        assert present.length() <= degrees.length;
+        assert vertexCount == present.cardinality();
+        for (int v = 0; v < degrees.length; v++) {
+            assert targets[v].length == weights[v].length && targets[v].length >= degrees[v];
+            assert degrees[v] == 0 || present.get(v) : "Edges from absent vertex " + v;
+            for (int i = 0; i < degrees[v]; i++) {
+                assert i == 0 || targets[v][i - 1] < targets[v][i] : "Targets out of order at " + v;
+                assert present.get(targets[v][i]) : "Edge to absent vertex " + targets[v][i];
+                assert weights[v][i] > 0 : "Weight must be positive";
+            }
+        }
+    }
+
+    @Override
+    public int vertexCount() {
+        return vertexCount;
+    }
+
+    @Override
+    public boolean contains(int vertex) {
+        return vertex >= 0 && present.get(vertex);
+    }
+
+    @Override
+    public boolean add(int vertex) {
+        final boolean added = addVertex(vertex);
+        checkRep();
+        return added;
+    }
+
+    /**
+     * add() without checking the rep, for mutators that check it once at the end.
+     */
+    private boolean addVertex(int vertex) {
+        if (vertex < 0) {
+            throw new IllegalArgumentException("Vertex ids must be non-negative: " + vertex);
+        }
+        if (present.get(vertex)) {
+            return false;
+        }
+        ensureCapacity(vertex);
+        present.set(vertex);
+        vertexCount++;
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     * Binary-searches the targets of source, then shifts them to insert or
+     * remove an edge.
+     */
+    @Override
+    public int set(int source, int target, int weight) {
+        if (weight < 0) {
+            throw new IllegalArgumentException("Weight must be non-negative: " + weight);
+        }
+        addVertex(source);
+        addVertex(target);
+        final int degree = degrees[source];
+        final int i = Arrays.binarySearch(targets[source], 0, degree, target);
+        final int previous;
+        if (i >= 0) {
+            previous = weights[source][i];
+            if (weight > 0) {
+                weights[source][i] = weight;
+            } else {
+                removeAt(source, i);
+            }
+        } else {
+            previous = 0;
+            if (weight > 0) {
+                insertAt(source, -i - 1, target, weight);
+            }
+        }
+        checkRep();
+        return previous;
+    }
+
+    /**
+     * {@inheritDoc}
+     * Binary-searches the targets of source.
+     */
+    @Override
+    public int weight(int source, int target) {
+        if (!contains(source)) {
+            return 0;
+        }
+        final int i = Arrays.binarySearch(targets[source], 0, degrees[source], target);
+        return i >= 0 ? weights[source][i] : 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     * Binary-searches the targets of every vertex.
+     */
+    @Override
+    public boolean remove(int vertex) {
+        if (!contains(vertex)) {
+            return false;
+        }
+        present.clear(vertex);
+        vertexCount--;
+        degrees[vertex] = 0;
+        targets[vertex] = NONE;
+        weights[vertex] = NONE;
+        for (int v = present.nextSetBit(0); v >= 0; v = present.nextSetBit(v + 1)) {
+            final int i = Arrays.binarySearch(targets[v], 0, degrees[v], vertex);
+            if (i >= 0) {
+                removeAt(v, i);
+            }
+        }
+        checkRep();
+        return true;
+    }
+
+    @Override
+    public int outDegree(int vertex) {
+        return contains(vertex) ? degrees[vertex] : 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     * Binary-searches the targets of every vertex.
+     */
+    @Override
+    public int inDegree(int vertex) {
+        int degree = 0;
+        for (int v = present.nextSetBit(0); v >= 0; v = present.nextSetBit(v + 1)) {
+            if (Arrays.binarySearch(targets[v], 0, degrees[v], vertex) >= 0) {
+                degree++;
+            }
+        }
+        return degree;
+    }
+
+    /**
+     * {@inheritDoc}
+     * Targets come in increasing id order; copies the run of source.
+     */
+    @Override
+    public int targets(int vertex, int[] targets, int[] weights) {
+        final int degree = outDegree(vertex);
+        if (degree > 0) {
+            System.arraycopy(this.targets[vertex], 0, targets, 0, degree);
+            System.arraycopy(this.weights[vertex], 0, weights, 0, degree);
+        }
+        return degree;
+    }
+
+    /**
+     * {@inheritDoc}
+     * Sources come in increasing id order; binary-searches the targets of
+     * every vertex.
+     */
+    @Override
+    public int sources(int vertex, int[] sources, int[] weights) {
+        int degree = 0;
+        for (int v = present.nextSetBit(0); v >= 0; v = present.nextSetBit(v + 1)) {
+            final int i = Arrays.binarySearch(targets[v], 0, degrees[v], vertex);
+            if (i >= 0) {
+                sources[degree] = v;
+                weights[degree] = this.weights[v][i];
+                degree++;
+            }
+        }
+        return degree;
+    }
+
+    private void ensureCapacity(int vertex) {
+        if (vertex < degrees.length) {
+            return;
+        }
+        final int length = Math.max(vertex + 1, Math.max(16, degrees.length * 2));
+        final int old = degrees.length;
+        degrees = Arrays.copyOf(degrees, length);
+        targets = Arrays.copyOf(targets, length);
+        weights = Arrays.copyOf(weights, length);
+        Arrays.fill(targets, old, length, NONE);
+        Arrays.fill(weights, old, length, NONE);
+    }
+
+    private void insertAt(int vertex, int i, int target, int weight) {
+        final int degree = degrees[vertex];
+        if (degree == targets[vertex].length) {
+            final int length = Math.max(4, degree * 2);
+            targets[vertex] = Arrays.copyOf(targets[vertex], length);
+            weights[vertex] = Arrays.copyOf(weights[vertex], length);
+        }
+        System.arraycopy(targets[vertex], i, targets[vertex], i + 1, degree - i);
+        System.arraycopy(weights[vertex], i, weights[vertex], i + 1, degree - i);
+        targets[vertex][i] = target;
+        weights[vertex][i] = weight;
+        degrees[vertex] = degree + 1;
+    }
+
+    private void removeAt(int vertex, int i) {
+        final int degree = degrees[vertex] - 1;
+        System.arraycopy(targets[vertex], i + 1, targets[vertex], i, degree - i);
+        System.arraycopy(weights[vertex], i + 1, weights[vertex], i, degree - i);
+        degrees[vertex] = degree;
+    }
+
+    @Override
+    public boolean add(Integer vertex) {
+        return add(vertex.intValue());
+    }
+
+    @Override
+    public int set(Integer source, Integer target, int weight) {
+        return set(source.intValue(), target.intValue(), weight);
+    }
+
+    @Override
+    public boolean remove(Integer vertex) {
+        return remove(vertex.intValue());
+    }
+
+    @Override
+    public int removeAll(Collection<? extends Integer> vertices) {
+        final BitSet victims = new BitSet();
+        for (Integer vertex : vertices) {
+            if (contains(vertex)) {
+                victims.set(vertex);
+            }
+        }
+        final int removed = victims.cardinality();
+        if (removed == 0) {
+            return 0;
+        }
+        present.andNot(victims);
+        vertexCount -= removed;
+        for (int v = victims.nextSetBit(0); v >= 0; v = victims.nextSetBit(v + 1)) {
+            degrees[v] = 0;
+            targets[v] = NONE;
+            weights[v] = NONE;
+        }
+        for (int v = present.nextSetBit(0); v >= 0; v = present.nextSetBit(v + 1)) {
+            int kept = 0;
+            for (int i = 0; i < degrees[v]; i++) {
+                if (!victims.get(targets[v][i])) {
+                    targets[v][kept] = targets[v][i];
+                    weights[v][kept] = weights[v][i];
+                    kept++;
+                }
+            }
+            degrees[v] = kept;
+        }
+        checkRep();
+        return removed;
+    }
+
+    @Override
+    public int retainIf(Predicate<? super Integer> keep) {
+        final Set<Integer> victims = new HashSet<>();
+        for (int v = present.nextSetBit(0); v >= 0; v = present.nextSetBit(v + 1)) {
+            if (!keep.test(v)) {
+                victims.add(v);
+            }
+        }
+        return victims.isEmpty() ? 0 : removeAll(victims);
+    }
+
+    @Override
+    public Set<Integer> vertices() {
+        final Set<Integer> result = new HashSet<>(vertexCount * 4 / 3 + 1);
+        for (int v = present.nextSetBit(0); v >= 0; v = present.nextSetBit(v + 1)) {
+            result.add(v);
+        }
+        return result;
+    }
+
+    @Override
+    public Map<Integer, Integer> sources(Integer target) {
+        final Map<Integer, Integer> result = new HashMap<>();
+        for (int v = present.nextSetBit(0); v >= 0; v = present.nextSetBit(v + 1)) {
+            final int i = Arrays.binarySearch(targets[v], 0, degrees[v], target);
+            if (i >= 0) {
+                result.put(v, weights[v][i]);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Map<Integer, Integer> targets(Integer source) {
+        final int degree = outDegree(source);
+        final Map<Integer, Integer> result = new HashMap<>(degree * 4 / 3 + 1);
+        for (int i = 0; i < degree; i++) {
+            result.put(targets[source][i], weights[source][i]);
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     * Ids and weights are not boxed, so boxing bytes are always 0.
+     */
+    @Override
+    public MemoryFootprint memoryFootprint() {
+        long edges = 0;
+        long edgeBytes = 0;
+        for (int v = 0; v < degrees.length; v++) {
+            edges += degrees[v];
+            if (targets[v] != NONE) {
+                edgeBytes += 2 * MemoryFootprint.arrayBytes(targets[v].length);
+            }
+        }
+        // the BitSet is a 24-byte object holding a long[]
+        final long vertexBytes = 3 * MemoryFootprint.arrayBytes(degrees.length)
+                + 24 + MemoryFootprint.arrayBytes(2 * ((present.length() + 63) / 64));
+        return new MemoryFootprint(vertexCount, edges, vertexBytes, edgeBytes, 0);
+    }
+
+    @Override
+    public void compact() {
+        final int length = present.length();
+        degrees = Arrays.copyOf(degrees, length);
+        targets = Arrays.copyOf(targets, length);
+        weights = Arrays.copyOf(weights, length);
+        for (int v = 0; v < length; v++) {
+            if (degrees[v] == 0) {
+                targets[v] = NONE;
+                weights[v] = NONE;
+            } else if (degrees[v] < targets[v].length) {
+                targets[v] = Arrays.copyOf(targets[v], degrees[v]);
+                weights[v] = Arrays.copyOf(weights[v], degrees[v]);
+            }
+        }
+        checkRep();
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder result = new StringBuilder();
+        for (int v = present.nextSetBit(0); v >= 0; v = present.nextSetBit(v + 1)) {
+            result.append(v).append(" ->");
+            for (int i = 0; i < degrees[v]; i++) {
+                result.append(i == 0 ? " " : ", ").append(targets[v][i]).append(" (").append(weights[v][i]).append(")");
+            }
+            result.append("\n");
+        }
+        return result.toString();
+    }
+}
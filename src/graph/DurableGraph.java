@@ -0,0 +1,502 @@
+package graph;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * A Graph kept in memory and made durable by a write-ahead log on disk.
+ * 
+ * <p>Every mutation that changes the graph is appended to an in-memory batch.
+ * Batches are written to the log and forced to disk together (group commit):
+ * when sync() is called, when a batch reaches {@value #BATCH_BYTES} bytes, and,
+ * if configured, periodically in the background. Concurrent callers of sync()
+ * share one fsync, so write throughput is bounded by log bandwidth rather than
+ * by one fsync per edge update. A batch that fills is committed by the
+ * mutation that filled it, which returns only after that fsync, and after the
+ * checkpoint it may trigger.
+ * A mutation is durable once a sync that started after it has completed.
+ * 
+ * <p>checkpoint() writes a compacted snapshot of the whole graph and empties
+ * the log; it also runs automatically once the log grows past a configured
+ * size. On construction the latest snapshot is loaded and the log replayed,
+ * discarding a torn or corrupt record at its end.
+ * Log records set absolute weights, so replaying a log over a snapshot that
+ * already includes it (after a crash between writing the snapshot and emptying
+ * the log) yields the same graph.
+ * 
+ * <p>Threadsafe. Operations that fail to write the log throw
+ * UncheckedIOException, after which the graph only serves reads.
+ *
+ * @param <L> type of vertex labels in this graph, must be immutable
+ */
+public class DurableGraph<L> implements Graph<L>, Closeable {
+
+    static final String SNAPSHOT = "graph.snapshot";
+    static final String LOG = "graph.wal";
+    static final int BATCH_BYTES = 1 << 16;
+
+    private static final int SNAPSHOT_MAGIC = 0x47534e50;
+    private static final int MAX_RECORD_BYTES = 1 << 24;
+    private static final byte ADD = 1;
+    private static final byte SET = 2;
+    private static final byte REMOVE = 3;
+
+    private final File directory;
+    private final LabelCodec<L> codec;
+    private final long checkpointBytes;
+    private final Graph<L> graph = Graph.empty();
+    private final FileChannel log;
+    private final ByteArrayOutputStream batch = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream scratch = new ByteArrayOutputStream();
+    private final CRC32 crc = new CRC32();
+    private final Object syncLock = new Object();
+    private final ScheduledExecutorService flusher;
+    private long appended = 0;
+    private long durable = 0;
+    private long logBytes;
+    private long fsyncs = 0;
+    private IOException failure = null;
+    private boolean closed = false;
+
+    // Abstraction function:
+    //   AF(graph, ...) = AF(graph); the graph stored in 'directory' is the
+    //     snapshot file followed by the log, and becomes AF(graph) once 'batch'
+    //     has been written to the log.
+    // Representation invariant:
+    //   - batch holds exactly the records appended after the first 'durable'
+    //     ones, in order
+    //   - durable <= appended
+    //   - logBytes == log.size() while no sync is writing
+    // Safety from rep exposure:
+    //   - All fields are private; graph is never returned, and targets() and
+    //     sources() return copies.
+    // Thread safety argument:
+    //   - graph, batch, scratch, crc, appended, failure and closed are guarded
+    //     by this; log, logBytes, durable and fsyncs are written only while
+    //     holding syncLock (then this, never the other order).
+    //   - mutations append under this and only sync after releasing it, so
+    //     other threads keep appending to the next batch while an fsync runs;
+    //     only the thread whose append filled the batch waits for it.
+    //     checkpoint() holds this while it writes the snapshot, so it blocks
+    //     every mutation, including the automatic one after a large sync.
+    //   - closed is set under this before the final sync, so every mutation
+    //     either lands in the batch that sync writes or fails checkWritable().
+
+    /**
+     * Open or create a durable graph that only syncs when asked to or when a
+     * batch fills, and checkpoints once its log reaches 64 MiB.
+     * 
+     * @param directory directory holding the graph's snapshot and log; created
+     *        if missing
+     * @param codec codec for vertex labels
+     * @throws IOException if the snapshot or log cannot be read or created
+     */
+    public DurableGraph(File directory, LabelCodec<L> codec) throws IOException {
+        this(directory, codec, 0, 64L << 20);
+    }
+
+    /**
+     * Open or create a durable graph.
+     * 
+     * @param directory directory holding the graph's snapshot and log; created
+     *        if missing
+     * @param codec codec for vertex labels
+     * @param syncIntervalMillis if > 0, sync in the background this often
+     * @param checkpointBytes checkpoint after a sync leaves the log at least
+     *        this long; must be > 0
+     * @throws IOException if the snapshot or log cannot be read or created
+     */
+    public DurableGraph(File directory, LabelCodec<L> codec, long syncIntervalMillis, long checkpointBytes)
+            throws IOException {
+        if (checkpointBytes <= 0) throw new IllegalArgumentException("checkpointBytes must be positive");
+        this.directory = directory;
+        this.codec = codec;
+        this.checkpointBytes = checkpointBytes;
+        Files.createDirectories(directory.toPath());
+        final File snapshot = new File(directory, SNAPSHOT);
+        if (snapshot.exists()) {
+            readSnapshot(snapshot);
+        }
+        this.log = FileChannel.open(new File(directory, LOG).toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.logBytes = replay();
+        log.truncate(logBytes);
+        log.position(logBytes);
+        if (syncIntervalMillis > 0) {
+            this.flusher = Executors.newSingleThreadScheduledExecutor(task -> {
+                final Thread thread = new Thread(task, "DurableGraph-sync " + directory);
+                thread.setDaemon(true);
+                return thread;
+            });
+            flusher.scheduleWithFixedDelay(this::backgroundSync, syncIntervalMillis, syncIntervalMillis,
+                    TimeUnit.MILLISECONDS);
+        } else {
+            this.flusher = null;
+        }
+    }
+
+    @Override
+    public boolean add(L vertex) {
+        final boolean added;
+        final boolean full;
+        synchronized (this) {
+            checkWritable();
+            added = graph.add(vertex);
+            full = added && append(ADD, vertex, null, 0);
+        }
+        if (full) {
+            commitBatch();
+        }
+        return added;
+    }
+
+    @Override
+    public int set(L source, L target, int weight) {
+        final int previous;
+        final boolean full;
+        synchronized (this) {
+            checkWritable();
+            previous = graph.set(source, target, weight);
+            full = append(SET, source, target, weight);
+        }
+        if (full) {
+            commitBatch();
+        }
+        return previous;
+    }
+
+    @Override
+    public boolean remove(L vertex) {
+        final boolean removed;
+        final boolean full;
+        synchronized (this) {
+            checkWritable();
+            removed = graph.remove(vertex);
+            full = removed && append(REMOVE, vertex, null, 0);
+        }
+        if (full) {
+            commitBatch();
+        }
+        return removed;
+    }
+
+    @Override
+    public synchronized Set<L> vertices() {
+        return graph.vertices();
+    }
+
+    @Override
+    public synchronized Map<L, Integer> sources(L target) {
+        return new HashMap<>(graph.sources(target));
+    }
+
+    @Override
+    public synchronized Map<L, Integer> targets(L source) {
+        return new HashMap<>(graph.targets(source));
+    }
+
+    /**
+     * Make every mutation made before this call durable.
+     * If another thread is already syncing, waits for it and then writes
+     * whatever is still pending, so one fsync covers many callers.
+     * 
+     * @throws IOException if the log cannot be written or forced to disk
+     */
+    public void sync() throws IOException {
+        synchronized (syncLock) {
+            final byte[] pending;
+            final long target;
+            synchronized (this) {
+                if (failure != null) throw failure;
+                if (durable >= appended) {
+                    return;
+                }
+                target = appended;
+                pending = batch.toByteArray();
+                batch.reset();
+            }
+            try {
+                final ByteBuffer buffer = ByteBuffer.wrap(pending);
+                while (buffer.hasRemaining()) {
+                    log.write(buffer);
+                }
+                log.force(false);
+            } catch (IOException e) {
+                synchronized (this) {
+                    failure = e;
+                }
+                throw e;
+            }
+            logBytes += pending.length;
+            fsyncs++;
+            durable = target;
+        }
+    }
+
+    /**
+     * Write a snapshot of the current graph and empty the log.
+     * Blocks mutations while the snapshot is written.
+     * 
+     * @throws IOException if the snapshot cannot be written or the log emptied
+     * @throws IllegalStateException if this graph has been closed
+     */
+    public void checkpoint() throws IOException {
+        if (!checkpointIfOpen()) throw new IllegalStateException("DurableGraph is closed");
+    }
+
+    /**
+     * Checkpoint, unless this graph has been closed.
+     * 
+     * @return false iff this graph has been closed
+     */
+    private boolean checkpointIfOpen() throws IOException {
+        synchronized (syncLock) {
+            synchronized (this) {
+                if (closed) {
+                    return false;
+                }
+                if (failure != null) throw failure;
+                try {
+                    writeSnapshot();
+                    log.truncate(0);
+                    log.force(true);
+                } catch (IOException e) {
+                    failure = e;
+                    throw e;
+                }
+                batch.reset();
+                logBytes = 0;
+                durable = appended;
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Sync, stop background syncing and close the log. Further mutations
+     * throw IllegalStateException.
+     * 
+     * @throws IOException if pending mutations cannot be made durable
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        if (flusher != null) {
+            flusher.shutdown();
+        }
+        try {
+            sync();
+        } finally {
+            synchronized (syncLock) {
+                log.close();
+            }
+        }
+    }
+
+    /**
+     * @return number of times the log has been forced to disk by sync()
+     */
+    long fsyncs() {
+        synchronized (syncLock) {
+            return fsyncs;
+        }
+    }
+
+    private void checkWritable() {
+        if (closed) throw new IllegalStateException("DurableGraph is closed");
+        if (failure != null) throw new UncheckedIOException("Log write failed earlier", failure);
+    }
+
+    /**
+     * Append a record to the batch. Requires the lock on this.
+     * 
+     * @return true iff the batch is now full and should be committed
+     */
+    private boolean append(byte op, L first, L second, int weight) {
+        try {
+            scratch.reset();
+            final DataOutputStream out = new DataOutputStream(scratch);
+            out.writeByte(op);
+            codec.write(first, out);
+            if (op == SET) {
+                codec.write(second, out);
+                out.writeInt(weight);
+            }
+            out.flush();
+            crc.reset();
+            crc.update(scratch.toByteArray());
+            final DataOutputStream record = new DataOutputStream(batch);
+            record.writeInt(scratch.size());
+            scratch.writeTo(record);
+            record.writeInt((int) crc.getValue());
+            record.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot encode log record", e);
+        }
+        appended++;
+        return batch.size() >= BATCH_BYTES;
+    }
+
+    private void commitBatch() {
+        try {
+            sync();
+            final boolean large;
+            synchronized (syncLock) {
+                large = logBytes >= checkpointBytes;
+            }
+            if (large) {
+                checkpointIfOpen();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void backgroundSync() {
+        try {
+            commitBatch();
+        } catch (UncheckedIOException e) {
+            // recorded in 'failure'; the next mutation reports it
+        }
+    }
+
+    /**
+     * Apply the log to graph, stopping at the first incomplete or corrupt record.
+     * 
+     * @return length of the valid prefix of the log
+     */
+    private long replay() throws IOException {
+        long valid = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(
+                new File(directory, LOG))))) {
+            while (true) {
+                final int length = in.readInt();
+                if (length <= 0 || length > MAX_RECORD_BYTES) {
+                    break;
+                }
+                final byte[] payload = new byte[length];
+                in.readFully(payload);
+                final int checksum = in.readInt();
+                crc.reset();
+                crc.update(payload);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                apply(payload);
+                valid += Integer.BYTES + length + Integer.BYTES;
+            }
+        } catch (EOFException e) {
+            // torn final record
+        }
+        return valid;
+    }
+
+    private void apply(byte[] payload) throws IOException {
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        final byte op = in.readByte();
+        final L first = codec.read(in);
+        switch (op) {
+        case ADD:
+            graph.add(first);
+            break;
+        case SET:
+            final L second = codec.read(in);
+            graph.set(first, second, in.readInt());
+            break;
+        case REMOVE:
+            graph.remove(first);
+            break;
+        default:
+            throw new IOException("Unknown log record type " + op);
+        }
+    }
+
+    private void readSnapshot(File snapshot) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(snapshot)))) {
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("Not a graph snapshot: " + snapshot);
+            }
+            final int vertices = in.readInt();
+            for (int i = 0; i < vertices; i++) {
+                graph.add(codec.read(in));
+            }
+            final long edges = in.readLong();
+            for (long i = 0; i < edges; i++) {
+                final L source = codec.read(in);
+                final L target = codec.read(in);
+                graph.set(source, target, in.readInt());
+            }
+        }
+    }
+
+    /**
+     * Atomically replace the snapshot with one of the current graph.
+     * Requires the lock on this.
+     */
+    private void writeSnapshot() throws IOException {
+        final File temporary = new File(directory, SNAPSHOT + ".tmp");
+        final Set<L> vertices = graph.vertices();
+        long edges = 0;
+        for (L vertex : vertices) {
+            edges += graph.targets(vertex).size();
+        }
+        try (FileOutputStream file = new FileOutputStream(temporary)) {
+            final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file));
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(vertices.size());
+            for (L vertex : vertices) {
+                codec.write(vertex, out);
+            }
+            out.writeLong(edges);
+            for (L source : vertices) {
+                for (Map.Entry<L, Integer> edge : graph.targets(source).entrySet()) {
+                    codec.write(source, out);
+                    codec.write(edge.getKey(), out);
+                    out.writeInt(edge.getValue());
+                }
+            }
+            out.flush();
+            file.getFD().sync();
+        }
+        Files.move(temporary.toPath(), new File(directory, SNAPSHOT).toPath(),
+                StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        try (FileChannel dir = FileChannel.open(directory.toPath(), StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (IOException e) {
+            // not every platform can sync a directory; the rename is still atomic
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return graph.toString();
+    }
+}
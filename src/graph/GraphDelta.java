@@ -0,0 +1,359 @@
+package graph;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The changes that turn one graph into another: vertices removed and added,
+ * and edges added, reweighted and removed.
+ *
+ * <p>A delta lists only what differs, so shipping a rebuilt graph to a server
+ * that already holds the previous build costs bytes in proportion to the
+ * changes, and applying it touches only the changed vertices and edges.
+ * Edges of removed vertices are not listed; removing the vertex drops them.
+ *
+ * <p>The binary format is big-endian: a magic number and version, a table of
+ * every label the delta mentions, written once each by a LabelCodec, then the
+ * removed and added vertices and the added, reweighted and removed edges,
+ * each as a count followed by label-table indices (and weights, except for
+ * removed edges), all as unsigned LEB128 varints.
+ *
+ * <p>Immutable.
+ *
+ * @param <L> type of vertex labels, must be immutable
+ */
+public final class GraphDelta<L> {
+
+    private static final int MAGIC = 0x47444c54; // "GDLT"
+    private static final int VERSION = 1;
+
+    private final List<L> removedVertices;
+    private final List<L> addedVertices;
+    private final List<Change<L>> addedEdges;
+    private final List<Change<L>> reweightedEdges;
+    private final List<Change<L>> removedEdges;
+
+    // Abstraction function:
+    //   AF(removedVertices, addedVertices, addedEdges, reweightedEdges,
+    //      removedEdges) = the change that removes removedVertices with their
+    //     edges, adds addedVertices, sets each added or reweighted edge to its
+    //     weight, and removes each removed edge.
+    // Representation invariant:
+    //   - no label is in both removedVertices and addedVertices, or twice in
+    //     either
+    //   - no (source, target) pair appears twice across the three edge lists,
+    //     and no edge has an endpoint in removedVertices
+    //   - added and reweighted edges have weight > 0; removed edges have weight 0
+    // Safety from rep exposure:
+    //   - All fields are private, final and unmodifiable lists of immutable
+    //     elements, and only counts are returned.
+
+    /** One changed edge. Immutable. */
+    private static final class Change<L> {
+        final L source;
+        final L target;
+        final int weight;
+
+        Change(L source, L target, int weight) {
+            this.source = source;
+            this.target = target;
+            this.weight = weight;
+        }
+    }
+
+    private GraphDelta(List<L> removedVertices, List<L> addedVertices, List<Change<L>> addedEdges,
+            List<Change<L>> reweightedEdges, List<Change<L>> removedEdges) {
+        this.removedVertices = Collections.unmodifiableList(removedVertices);
+        this.addedVertices = Collections.unmodifiableList(addedVertices);
+        this.addedEdges = Collections.unmodifiableList(addedEdges);
+        this.reweightedEdges = Collections.unmodifiableList(reweightedEdges);
+        this.removedEdges = Collections.unmodifiableList(removedEdges);
+        checkRep();
+    }
+
+    private void checkRep() {
+        final Set<L> removed = new HashSet<>(removedVertices);
+        assert removed.size() == removedVertices.size() : "Vertex removed twice";
+        final Set<L> added = new HashSet<>(addedVertices);
+        assert added.size() == addedVertices.size() : "Vertex added twice";
+        assert Collections.disjoint(removed, added) : "Vertex both added and removed";
+        final Set<List<L>> ends = new HashSet<>();
+        for (List<Change<L>> changes : List.of(addedEdges, reweightedEdges, removedEdges)) {
+            for (Change<L> change : changes) {
+                assert ends.add(List.of(change.source, change.target)) : "Edge changed twice";
+                assert !removed.contains(change.source) && !removed.contains(change.target)
+                        : "Edge of a removed vertex";
+                assert (change.weight > 0) == (changes != removedEdges) : "Bad weight for edge change";
+            }
+        }
+    }
+
+    /**
+     * Compute the changes from one graph to another.
+     *
+     * @param <L> type of vertex labels
+     * @param from the old graph
+     * @param to the new graph
+     * @return a delta such that applying it to a graph equal to from leaves
+     *         that graph equal to to
+     */
+    public static <L> GraphDelta<L> diff(Graph<L> from, Graph<L> to) {
+        final Set<L> oldVertices = from.vertices();
+        final Set<L> newVertices = to.vertices();
+        final List<L> removedVertices = new ArrayList<>();
+        for (L vertex : oldVertices) {
+            if (!newVertices.contains(vertex)) {
+                removedVertices.add(vertex);
+            }
+        }
+        final List<L> addedVertices = new ArrayList<>();
+        final List<Change<L>> addedEdges = new ArrayList<>();
+        final List<Change<L>> reweightedEdges = new ArrayList<>();
+        final List<Change<L>> removedEdges = new ArrayList<>();
+        for (L source : newVertices) {
+            final boolean old = oldVertices.contains(source);
+            if (!old) {
+                addedVertices.add(source);
+            }
+            final Map<L, Integer> oldTargets = old ? from.targets(source) : Collections.emptyMap();
+            final Map<L, Integer> newTargets = to.targets(source);
+            for (Map.Entry<L, Integer> edge : newTargets.entrySet()) {
+                final Integer weight = oldTargets.get(edge.getKey());
+                if (weight == null) {
+                    addedEdges.add(new Change<>(source, edge.getKey(), edge.getValue()));
+                } else if (!weight.equals(edge.getValue())) {
+                    reweightedEdges.add(new Change<>(source, edge.getKey(), edge.getValue()));
+                }
+            }
+            for (L target : oldTargets.keySet()) {
+                if (!newTargets.containsKey(target) && newVertices.contains(target)) {
+                    removedEdges.add(new Change<>(source, target, 0));
+                }
+            }
+        }
+        return new GraphDelta<>(removedVertices, addedVertices, addedEdges, reweightedEdges, removedEdges);
+    }
+
+    /**
+     * Apply this delta to a graph. To apply it to a VersionedGraph as a single
+     * version, pass this method to VersionedGraph.update().
+     *
+     * @param graph graph to change; if it equals the graph this delta was
+     *        computed from, it equals the graph this delta was computed to
+     *        afterwards
+     */
+    public void apply(Graph<L> graph) {
+        if (!removedVertices.isEmpty()) {
+            BulkRemovable.removeAll(graph, removedVertices);
+        }
+        for (L vertex : addedVertices) {
+            graph.add(vertex);
+        }
+        for (List<Change<L>> changes : List.of(addedEdges, reweightedEdges, removedEdges)) {
+            for (Change<L> change : changes) {
+                graph.set(change.source, change.target, change.weight);
+            }
+        }
+    }
+
+    /**
+     * @return true iff this delta changes nothing
+     */
+    public boolean isEmpty() {
+        return removedVertices.isEmpty() && addedVertices.isEmpty() && addedEdges.isEmpty()
+                && reweightedEdges.isEmpty() && removedEdges.isEmpty();
+    }
+
+    /**
+     * @return number of vertices this delta removes
+     */
+    public int removedVertices() {
+        return removedVertices.size();
+    }
+
+    /**
+     * @return number of vertices this delta adds
+     */
+    public int addedVertices() {
+        return addedVertices.size();
+    }
+
+    /**
+     * @return number of edges this delta adds
+     */
+    public int addedEdges() {
+        return addedEdges.size();
+    }
+
+    /**
+     * @return number of existing edges whose weight this delta changes
+     */
+    public int reweightedEdges() {
+        return reweightedEdges.size();
+    }
+
+    /**
+     * @return number of edges between kept vertices that this delta removes
+     */
+    public int removedEdges() {
+        return removedEdges.size();
+    }
+
+    /**
+     * Write this delta in the binary format (as described above).
+     *
+     * @param out destination; flushed but not closed
+     * @param codec writes the labels
+     * @throws IOException if out cannot be written
+     */
+    public void write(OutputStream out, LabelCodec<L> codec) throws IOException {
+        final Map<L, Integer> indices = new HashMap<>();
+        final List<L> labels = new ArrayList<>();
+        for (List<L> vertices : List.of(removedVertices, addedVertices)) {
+            for (L vertex : vertices) {
+                index(vertex, indices, labels);
+            }
+        }
+        for (List<Change<L>> changes : List.of(addedEdges, reweightedEdges, removedEdges)) {
+            for (Change<L> change : changes) {
+                index(change.source, indices, labels);
+                index(change.target, indices, labels);
+            }
+        }
+        final DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        writeVarint(data, labels.size());
+        for (L label : labels) {
+            codec.write(label, data);
+        }
+        for (List<L> vertices : List.of(removedVertices, addedVertices)) {
+            writeVarint(data, vertices.size());
+            for (L vertex : vertices) {
+                writeVarint(data, indices.get(vertex));
+            }
+        }
+        for (List<Change<L>> changes : List.of(addedEdges, reweightedEdges, removedEdges)) {
+            writeVarint(data, changes.size());
+            for (Change<L> change : changes) {
+                writeVarint(data, indices.get(change.source));
+                writeVarint(data, indices.get(change.target));
+                if (changes != removedEdges) {
+                    writeVarint(data, change.weight);
+                }
+            }
+        }
+        data.flush();
+    }
+
+    private static <L> void index(L label, Map<L, Integer> indices, List<L> labels) {
+        if (indices.putIfAbsent(label, labels.size()) == null) {
+            labels.add(label);
+        }
+    }
+
+    /**
+     * Read a delta written by write().
+     *
+     * @param <L> type of vertex labels
+     * @param in source, positioned at the start of a written delta; reads are
+     *        buffered, so bytes after the delta may be consumed too
+     * @param codec reads the labels, the same codec the delta was written with
+     * @return the delta
+     * @throws IOException if in cannot be read or does not hold a well-formed delta
+     */
+    public static <L> GraphDelta<L> read(InputStream in, LabelCodec<L> codec) throws IOException {
+        final DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a graph delta");
+        }
+        final int version = data.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported graph delta version " + version);
+        }
+        final int labelCount = readVarint(data);
+        final List<L> labels = new ArrayList<>();
+        for (int i = 0; i < labelCount; i++) {
+            labels.add(codec.read(data));
+        }
+        final List<L> removedVertices = readVertices(data, labels);
+        final List<L> addedVertices = readVertices(data, labels);
+        final List<Change<L>> addedEdges = readEdges(data, labels, true);
+        final List<Change<L>> reweightedEdges = readEdges(data, labels, true);
+        final List<Change<L>> removedEdges = readEdges(data, labels, false);
+        return new GraphDelta<>(removedVertices, addedVertices, addedEdges, reweightedEdges, removedEdges);
+    }
+
+    private static <L> List<L> readVertices(DataInput in, List<L> labels) throws IOException {
+        final int count = readVarint(in);
+        final List<L> vertices = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            vertices.add(label(in, labels));
+        }
+        return vertices;
+    }
+
+    private static <L> List<Change<L>> readEdges(DataInput in, List<L> labels, boolean weighted)
+            throws IOException {
+        final int count = readVarint(in);
+        final List<Change<L>> edges = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            final L source = label(in, labels);
+            final L target = label(in, labels);
+            final int weight = weighted ? readVarint(in) : 0;
+            if (weighted && weight <= 0) {
+                throw new IOException("Corrupt graph delta: non-positive weight " + weight);
+            }
+            edges.add(new Change<>(source, target, weight));
+        }
+        return edges;
+    }
+
+    private static <L> L label(DataInput in, List<L> labels) throws IOException {
+        final int index = readVarint(in);
+        if (index < 0 || index >= labels.size()) {
+            throw new IOException("Corrupt graph delta: label index " + index + " out of range");
+        }
+        return labels.get(index);
+    }
+
+    private static void writeVarint(DataOutput out, int value) throws IOException {
+        while ((value & ~0x7f) != 0) {
+            out.writeByte((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarint(DataInput in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            final byte b = in.readByte();
+            value |= (b & 0x7f) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Corrupt graph delta: varint too long");
+    }
+
+    @Override
+    public String toString() {
+        return "GraphDelta(-" + removedVertices.size() + " +" + addedVertices.size() + " vertices, +"
+                + addedEdges.size() + " ~" + reweightedEdges.size() + " -" + removedEdges.size() + " edges)";
+    }
+}
@@ -0,0 +1,74 @@
+package graph;
+
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic generators of synthetic graphs for benchmarks and stress
+ * tests.
+ * 
+ * <p>Every generator takes an explicit seed and produces the same graph for the
+ * same arguments on every run and every JVM.
+ */
+public final class GraphGenerator {
+
+    private static final char[] LETTERS = "abcdefghijklmnopqrstuvwxyz".toCharArray();
+
+    private GraphGenerator() {
+        throw new AssertionError("GraphGenerator is not instantiable");
+    }
+
+    /**
+     * The label of a vertex or word of a given rank: ranks 0 .. 25 are "a" ..
+     * "z", then "aa", "ab", ... (bijective base 26), so more frequent ranks
+     * get shorter labels, as words do in natural text.
+     * 
+     * @param rank a rank, >= 0
+     * @return the label of rank, a non-empty lower-case string of letters,
+     *         different for every rank
+     */
+    public static String label(int rank) {
+        if (rank < 0) throw new IllegalArgumentException("Negative rank: " + rank);
+        final StringBuilder label = new StringBuilder();
+        for (long n = rank + 1L; n > 0; n = (n - 1) / LETTERS.length) {
+            label.append(LETTERS[(int) ((n - 1) % LETTERS.length)]);
+        }
+        return label.reverse().toString();
+    }
+
+    /**
+     * Add a power-law graph to a graph, as a word-affinity graph of random
+     * text would be.
+     * 
+     * <p>Draws a number of adjacencies, each a source and a target taken
+     * independently from a Zipf distribution over vertex ranks, and adds one
+     * to the weight of the edge from the source's label to the target's (so
+     * repeated draws give heavier edges). Vertex degrees and edge weights
+     * both follow power laws. Every rank in 0 .. vertices-1 is added as a
+     * vertex, even if no edge touches it.
+     * 
+     * @param <G> type of graph
+     * @param graph graph to add to, typically empty; modified
+     * @param vertices number of vertices, >= 1
+     * @param adjacencies number of adjacencies to draw, >= 0
+     * @param exponent Zipf exponent, >= 0
+     * @param seed random seed
+     * @return graph
+     */
+    public static <G extends Graph<String>> G powerLaw(G graph, int vertices, long adjacencies,
+            double exponent, long seed) {
+        final ZipfDistribution zipf = new ZipfDistribution(vertices, exponent);
+        final SplittableRandom random = new SplittableRandom(seed);
+        final String[] labels = new String[vertices];
+        for (int rank = 0; rank < vertices; rank++) {
+            labels[rank] = label(rank);
+            graph.add(labels[rank]);
+        }
+        for (long i = 0; i < adjacencies; i++) {
+            final String source = labels[zipf.sample(random)];
+            final String target = labels[zipf.sample(random)];
+            final Integer weight = graph.targets(source).get(target);
+            graph.set(source, target, weight == null ? 1 : weight + 1);
+        }
+        return graph;
+    }
+}
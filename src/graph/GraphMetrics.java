@@ -0,0 +1,168 @@
+package graph;
+
+import java.lang.management.ManagementFactory;
+import java.util.ConcurrentModificationException;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Operation counts, latency histograms and size gauges for one graph.
+ * 
+ * <p>Instances are created by {@link InstrumentedGraph}, which records into
+ * them; they can be published through JMX with {@link #register(String)}.
+ * Gauges (vertex count, edge count, estimated bytes) are computed from the
+ * graph when read, so they cost nothing until someone asks for them; the
+ * byte estimate comes from {@link Compactable#memoryFootprint()} when the
+ * graph supports it.
+ */
+public class GraphMetrics implements GraphMetricsMBean {
+
+    /*
+     * For graphs that are not Compactable, a rough per-vertex and per-edge
+     * heap cost of a hash-map adjacency representation on a 64-bit JVM with
+     * compressed oops: a HashMap.Node and
+     * table slot for the vertex plus its (empty) inner HashMap, and a
+     * HashMap.Node, table slot and boxed Integer weight for each edge.
+     */
+    static final long BYTES_PER_VERTEX = 32 + 4 + 48 + 16;
+    static final long BYTES_PER_EDGE = 32 + 4 + 16;
+
+    private final Graph<?> graph;
+    private final LatencyHistogram set = new LatencyHistogram();
+    private final LatencyHistogram targets = new LatencyHistogram();
+    private final LatencyHistogram sources = new LatencyHistogram();
+    private volatile ObjectName registeredName;
+
+    // Abstraction function:
+    //   AF(graph, set, targets, sources) = the metrics of 'graph', where each
+    //     histogram holds the latencies of the graph operation it is named after.
+    // Representation invariant:
+    //   - graph, set, targets, sources are non-null
+    // Safety from rep exposure:
+    //   - All fields are private; 'graph' is never returned and only read.
+    //   - Histograms are returned by the package-private accessors only.
+
+    /**
+     * Create metrics for a graph.
+     * 
+     * @param graph graph whose size gauges these metrics report
+     */
+    GraphMetrics(Graph<?> graph) {
+        this.graph = graph;
+    }
+
+    LatencyHistogram setHistogram() {
+        return set;
+    }
+
+    LatencyHistogram targetsHistogram() {
+        return targets;
+    }
+
+    LatencyHistogram sourcesHistogram() {
+        return sources;
+    }
+
+    /**
+     * Publish these metrics on the platform MBean server.
+     * 
+     * @param name value of the "name" key of the MBean's ObjectName
+     * @return the ObjectName the metrics were registered under
+     * @throws JMException if the name is malformed or already registered
+     */
+    public ObjectName register(String name) throws JMException {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        final ObjectName objectName = new ObjectName("graph:type=GraphMetrics,name=" + ObjectName.quote(name));
+        server.registerMBean(this, objectName);
+        registeredName = objectName;
+        return objectName;
+    }
+
+    /**
+     * Remove these metrics from the platform MBean server, if registered.
+     * 
+     * @throws JMException if the MBean server refuses to unregister them
+     */
+    public void unregister() throws JMException {
+        final ObjectName objectName = registeredName;
+        if (objectName != null) {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            registeredName = null;
+        }
+    }
+
+    @Override public long getSetCount() { return set.count(); }
+    @Override public double getSetMeanNanos() { return set.mean(); }
+    @Override public long getSetP50Nanos() { return set.percentile(50); }
+    @Override public long getSetP99Nanos() { return set.percentile(99); }
+    @Override public long getSetMaxNanos() { return set.max(); }
+
+    @Override public long getTargetsCount() { return targets.count(); }
+    @Override public double getTargetsMeanNanos() { return targets.mean(); }
+    @Override public long getTargetsP50Nanos() { return targets.percentile(50); }
+    @Override public long getTargetsP99Nanos() { return targets.percentile(99); }
+    @Override public long getTargetsMaxNanos() { return targets.max(); }
+
+    @Override public long getSourcesCount() { return sources.count(); }
+    @Override public double getSourcesMeanNanos() { return sources.mean(); }
+    @Override public long getSourcesP50Nanos() { return sources.percentile(50); }
+    @Override public long getSourcesP99Nanos() { return sources.percentile(99); }
+    @Override public long getSourcesMaxNanos() { return sources.max(); }
+
+    @Override
+    public long getVertexCount() {
+        try {
+            return graph.vertices().size();
+        } catch (ConcurrentModificationException e) {
+            return -1;
+        }
+    }
+
+    @Override
+    public long getEdgeCount() {
+        try {
+            return countEdges(graph);
+        } catch (ConcurrentModificationException e) {
+            return -1;
+        }
+    }
+
+    @Override
+    public long getEstimatedBytes() {
+        if (graph instanceof Compactable) {
+            try {
+                return ((Compactable) graph).memoryFootprint().totalBytes();
+            } catch (ConcurrentModificationException e) {
+                return -1;
+            }
+        }
+        final long vertices = getVertexCount();
+        final long edges = getEdgeCount();
+        if (vertices < 0 || edges < 0) {
+            return -1;
+        }
+        return vertices * BYTES_PER_VERTEX + edges * BYTES_PER_EDGE;
+    }
+
+    @Override
+    public void reset() {
+        set.reset();
+        targets.reset();
+        sources.reset();
+    }
+
+    private static <L> long countEdges(Graph<L> graph) {
+        long edges = 0;
+        for (L vertex : graph.vertices()) {
+            edges += graph.targets(vertex).size();
+        }
+        return edges;
+    }
+
+    @Override
+    public String toString() {
+        return "set: " + set + "\ntargets: " + targets + "\nsources: " + sources + "\n";
+    }
+}
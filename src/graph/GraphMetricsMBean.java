@@ -0,0 +1,34 @@
+package graph;
+
+/**
+ * JMX management interface for {@link GraphMetrics}.
+ * 
+ * <p>Latencies are in nanoseconds. Gauges that cannot be read consistently
+ * while the graph is being modified report -1.
+ */
+public interface GraphMetricsMBean {
+
+    long getSetCount();
+    double getSetMeanNanos();
+    long getSetP50Nanos();
+    long getSetP99Nanos();
+    long getSetMaxNanos();
+
+    long getTargetsCount();
+    double getTargetsMeanNanos();
+    long getTargetsP50Nanos();
+    long getTargetsP99Nanos();
+    long getTargetsMaxNanos();
+
+    long getSourcesCount();
+    double getSourcesMeanNanos();
+    long getSourcesP50Nanos();
+    long getSourcesP99Nanos();
+    long getSourcesMaxNanos();
+
+    long getVertexCount();
+    long getEdgeCount();
+    long getEstimatedBytes();
+
+    void reset();
+}
@@ -0,0 +1,99 @@
+package graph;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A Graph decorator that records operation counts and latencies.
+ * 
+ * <p>Every call is forwarded to the wrapped graph; calls to set, targets and
+ * sources are timed into the histograms of {@link #metrics()}. The wrapped
+ * graph is not instrumented on its own, so code that does not wrap its graph
+ * pays nothing for this class.
+ *
+ * @param <L> type of vertex labels in this graph, must be immutable
+ */
+public class InstrumentedGraph<L> implements Graph<L> {
+
+    private final Graph<L> delegate;
+    private final GraphMetrics metrics;
+
+    // Abstraction function:
+    //   AF(delegate, metrics) = the graph AF(delegate), whose operations so far
+    //     are summarized by 'metrics'.
+    // Representation invariant:
+    //   - delegate != null, metrics != null
+    // Safety from rep exposure:
+    //   - Fields are private and final.
+    //   - 'delegate' is never returned; results are those of the wrapped graph.
+    //   - 'metrics' is returned deliberately so it can be read and published.
+
+    /**
+     * Wrap a graph.
+     * 
+     * @param delegate graph to forward all operations to; clients should not
+     *        use it directly afterwards, or those calls will not be recorded
+     */
+    public InstrumentedGraph(Graph<L> delegate) {
+        if (delegate == null) throw new IllegalArgumentException("Delegate graph cannot be null");
+        this.delegate = delegate;
+        this.metrics = new GraphMetrics(delegate);
+    }
+
+    /**
+     * @return the metrics recorded for this graph
+     */
+    public GraphMetrics metrics() {
+        return metrics;
+    }
+
+    @Override
+    public boolean add(L vertex) {
+        return delegate.add(vertex);
+    }
+
+    @Override
+    public int set(L source, L target, int weight) {
+        final long start = System.nanoTime();
+        try {
+            return delegate.set(source, target, weight);
+        } finally {
+            metrics.setHistogram().record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public boolean remove(L vertex) {
+        return delegate.remove(vertex);
+    }
+
+    @Override
+    public Set<L> vertices() {
+        return delegate.vertices();
+    }
+
+    @Override
+    public Map<L, Integer> sources(L target) {
+        final long start = System.nanoTime();
+        try {
+            return delegate.sources(target);
+        } finally {
+            metrics.sourcesHistogram().record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Map<L, Integer> targets(L source) {
+        final long start = System.nanoTime();
+        try {
+            return delegate.targets(source);
+        } finally {
+            metrics.targetsHistogram().record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return delegate.toString();
+    }
+}
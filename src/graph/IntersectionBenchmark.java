@@ -0,0 +1,142 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Micro-benchmark for BridgeIntersection.
+ * 
+ * <p>Builds neighbor lists whose lengths and members follow a Zipf
+ * distribution, as in a word-affinity graph, then times best-bridge search
+ * over random pairs of lists with: the adaptive kernel, merge only, galloping
+ * only, and probing a HashMap of the second list for each id of the first
+ * (what GraphPoet does over Graph.targets() and Graph.sources()). Reports
+ * nanoseconds per pair and a checksum that must agree across methods.
+ */
+public class IntersectionBenchmark {
+
+    /**
+     * Run the benchmark.
+     * 
+     * @param args optionally: number of vertices (default 100000), number of
+     *        neighbor lists (default 2000), number of pairs per round
+     *        (default 200000), Zipf exponent (default 1.0), random seed
+     *        (default 1)
+     */
+    public static void main(String[] args) {
+        final int vertices = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        final int lists = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        final int pairs = args.length > 2 ? Integer.parseInt(args[2]) : 200_000;
+        final double exponent = args.length > 3 ? Double.parseDouble(args[3]) : 1.0;
+        final long seed = args.length > 4 ? Long.parseLong(args[4]) : 1;
+
+        final SplittableRandom random = new SplittableRandom(seed);
+        final ZipfDistribution zipf = new ZipfDistribution(vertices, exponent);
+        final int[][] ids = new int[lists][];
+        final int[][] weights = new int[lists][];
+        final Map<Integer, Integer>[] maps = newMaps(lists);
+        long edges = 0;
+        for (int l = 0; l < lists; l++) {
+            // list lengths follow the same power law: the l-th most frequent
+            // word has degree proportional to 1 / (l + 1)^exponent
+            final int degree = Math.max(1, (int) (vertices / 2 / Math.pow(l + 1, exponent)));
+            ids[l] = sortedDistinct(zipf, degree, random);
+            weights[l] = new int[ids[l].length];
+            maps[l] = new HashMap<>();
+            for (int i = 0; i < ids[l].length; i++) {
+                weights[l][i] = 1 + zipf.sample(random) % 64;
+                maps[l].put(ids[l][i], weights[l][i]);
+            }
+            edges += ids[l].length;
+        }
+        final int[] firsts = new int[pairs];
+        final int[] seconds = new int[pairs];
+        for (int p = 0; p < pairs; p++) {
+            firsts[p] = random.nextInt(lists);
+            seconds[p] = random.nextInt(lists);
+        }
+        System.out.printf("%d lists, %.1f mean degree, %d pairs%n", lists, (double) edges / lists, pairs);
+
+        final String[] names = { "adaptive", "merge", "gallop", "hash-probe" };
+        for (int round = 0; round < 5; round++) {
+            final boolean warmup = round < 2;
+            for (int method = 0; method < names.length; method++) {
+                final long start = System.nanoTime();
+                long checksum = 0;
+                for (int p = 0; p < pairs; p++) {
+                    final int a = firsts[p];
+                    final int b = seconds[p];
+                    final int best;
+                    switch (method) {
+                    case 0:
+                        best = BridgeIntersection.best(ids[a], weights[a], ids[a].length,
+                                ids[b], weights[b], ids[b].length);
+                        break;
+                    case 1:
+                        best = BridgeIntersection.merge(ids[a], weights[a], ids[a].length,
+                                ids[b], weights[b], ids[b].length);
+                        break;
+                    case 2:
+                        best = ids[a].length <= ids[b].length
+                                ? BridgeIntersection.gallop(ids[a], weights[a], ids[a].length,
+                                        ids[b], weights[b], ids[b].length)
+                                : BridgeIntersection.gallop(ids[b], weights[b], ids[b].length,
+                                        ids[a], weights[a], ids[a].length);
+                        break;
+                    default:
+                        best = hashProbe(ids[a], weights[a], maps[b]);
+                        break;
+                    }
+                    checksum += best;
+                }
+                final long elapsed = System.nanoTime() - start;
+                if (!warmup) {
+                    System.out.printf("round %d %-10s %8.1f ns/pair  checksum %d%n",
+                            round - 1, names[method], (double) elapsed / pairs, checksum);
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static Map<Integer, Integer>[] newMaps(int length) {
+        return new Map[length];
+    }
+
+    /**
+     * Baseline: look up every id of the first list in a hash map of the second.
+     */
+    private static int hashProbe(int[] a, int[] aWeights, Map<Integer, Integer> b) {
+        int best = -1;
+        int bestWeight = 0;
+        for (int i = 0; i < a.length; i++) {
+            final Integer weight = b.get(a[i]);
+            if (weight != null && (aWeights[i] + weight > bestWeight
+                    || (aWeights[i] + weight == bestWeight && a[i] < best))) {
+                best = a[i];
+                bestWeight = aWeights[i] + weight;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return up to size distinct ranks drawn from zipf, in increasing order
+     */
+    private static int[] sortedDistinct(ZipfDistribution zipf, int size, SplittableRandom random) {
+        final int[] drawn = new int[size];
+        for (int i = 0; i < size; i++) {
+            drawn[i] = zipf.sample(random);
+        }
+        Arrays.sort(drawn);
+        int distinct = 0;
+        for (int i = 0; i < size; i++) {
+            if (distinct == 0 || drawn[i] != drawn[distinct - 1]) {
+                drawn[distinct++] = drawn[i];
+            }
+        }
+        return Arrays.copyOf(drawn, distinct);
+    }
+}
@@ -0,0 +1,68 @@
+package graph;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Converts vertex labels to and from bytes, for graph representations that
+ * store labels outside the heap.
+ *
+ * @param <L> type of vertex labels
+ */
+public interface LabelCodec<L> {
+
+    /**
+     * Codec for String labels of any length, written as a byte count followed
+     * by their UTF-8 encoding.
+     */
+    public static final LabelCodec<String> STRING = new LabelCodec<String>() {
+        @Override
+        public void write(String label, DataOutput out) throws IOException {
+            final byte[] bytes = label.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        @Override
+        public String read(DataInput in) throws IOException {
+            final int length = in.readInt();
+            if (length < 0) throw new IOException("Negative label length " + length);
+            final byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    };
+
+    /** Codec for Integer labels, written as four bytes. */
+    public static final LabelCodec<Integer> INTEGER = new LabelCodec<Integer>() {
+        @Override
+        public void write(Integer label, DataOutput out) throws IOException {
+            out.writeInt(label);
+        }
+
+        @Override
+        public Integer read(DataInput in) throws IOException {
+            return in.readInt();
+        }
+    };
+
+    /**
+     * Write a label.
+     * 
+     * @param label label to write, not null
+     * @param out destination
+     * @throws IOException if out cannot be written
+     */
+    public void write(L label, DataOutput out) throws IOException;
+
+    /**
+     * Read a label written by write().
+     * 
+     * @param in source, positioned at the start of a written label
+     * @return the label
+     * @throws IOException if in cannot be read or does not hold a label
+     */
+    public L read(DataInput in) throws IOException;
+}
@@ -0,0 +1,140 @@
+package graph;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of latencies in nanoseconds.
+ * 
+ * <p>Buckets are log-linear in the style of HdrHistogram: each power of two
+ * is split into {@value #SUB_BUCKETS} equal sub-buckets, so any recorded value
+ * is reported with a relative error of at most 1/{@value #SUB_BUCKETS}.
+ * Recording is a single atomic increment and never blocks, so it is safe to
+ * call from many threads on a hot path.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    // Abstraction function:
+    //   AF(counts, total, sum, max) = a multiset of recorded latencies, where
+    //     counts[i] values fall in the range [lowerBound(i), lowerBound(i + 1)),
+    //     'total' is the size of the multiset, 'sum' the sum of its values and
+    //     'max' its largest value (0 if empty).
+    // Representation invariant:
+    //   - total is the sum of counts[i] once all concurrent record() calls return
+    //   - total, sum, max >= 0
+    // Safety from rep exposure:
+    //   - All fields are private and final; only primitive summaries are returned.
+
+    /**
+     * Record one latency.
+     * 
+     * @param nanos elapsed time in nanoseconds; negative values are recorded as 0
+     */
+    public void record(long nanos) {
+        final long value = Math.max(0, nanos);
+        counts.incrementAndGet(bucketOf(value));
+        total.incrementAndGet();
+        sum.addAndGet(value);
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    /**
+     * @return number of latencies recorded
+     */
+    public long count() {
+        return total.get();
+    }
+
+    /**
+     * @return mean recorded latency in nanoseconds, or 0 if nothing was recorded
+     */
+    public double mean() {
+        final long n = total.get();
+        return n == 0 ? 0 : (double) sum.get() / n;
+    }
+
+    /**
+     * @return largest recorded latency in nanoseconds, or 0 if nothing was recorded
+     */
+    public long max() {
+        return max.get();
+    }
+
+    /**
+     * Estimate a percentile of the recorded latencies.
+     * 
+     * @param percentile requested percentile, 0 <= percentile <= 100
+     * @return upper bound of the bucket holding the requested percentile, capped
+     *         at max(); 0 if nothing was recorded
+     */
+    public long percentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be in [0, 100]");
+        }
+        final long n = total.get();
+        if (n == 0) {
+            return 0;
+        }
+        final long rank = Math.max(1, (long) Math.ceil(percentile / 100 * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(lowerBound(i + 1) - 1, max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Forget all recorded latencies.
+     * Not atomic with respect to concurrent record() calls.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        total.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+
+    private static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        final int magnitude = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        final int sub = (int) (value >>> magnitude) - SUB_BUCKETS;
+        return (magnitude + 1) * SUB_BUCKETS + sub;
+    }
+
+    private static long lowerBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        final int magnitude = bucket / SUB_BUCKETS - 1;
+        final long sub = bucket % SUB_BUCKETS + SUB_BUCKETS;
+        if (magnitude >= Long.SIZE - 1 - SUB_BUCKET_BITS) {
+            return Long.MAX_VALUE; // past the largest recordable value
+        }
+        return sub << magnitude;
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + count() + " mean=" + (long) mean() + "ns p50=" + percentile(50)
+                + "ns p99=" + percentile(99) + "ns max=" + max() + "ns";
+    }
+}
@@ -0,0 +1,377 @@
+package graph;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A read-only graph of string labels served straight from a memory-mapped
+ * image file.
+ * 
+ * <p>An image is written once from any Graph&lt;String&gt; by write(). Vertices
+ * are numbered in increasing label order (String.compareTo), and the image
+ * holds, as big-endian int arrays, the label offsets, then the out-edges and
+ * in-edges of every vertex in compressed sparse row form sorted by neighbor
+ * id, followed by the UTF-8 label bytes:
+ * <pre>
+ *   magic, version, n, edges, labelBytes, 0
+ *   labelOffsets[n+1]
+ *   outOffsets[n+1], outTargets[edges], outWeights[edges]
+ *   inOffsets[n+1], inSources[edges], inWeights[edges]
+ *   labels[labelBytes]
+ * </pre>
+ * 
+ * <p>open() only maps the file and checks its header, so it costs the same
+ * for any graph size: no parsing, no hashing, no per-vertex objects. Labels
+ * are found by binary search over the sorted labels, and the operating
+ * system pages in only the parts of the image that queries touch. Images are
+ * limited to 2 GiB.
+ * 
+ * <p>Immutable and threadsafe; the Graph mutators throw
+ * UnsupportedOperationException. The image file must not be modified while
+ * it is mapped.
+ */
+public class MappedGraph implements Graph<String> {
+
+    private static final int MAGIC = 0x47504d47; // "GPMG"
+    private static final int VERSION = 1;
+    private static final int HEADER_INTS = 6;
+
+    private final int vertexCount;
+    private final int edgeCount;
+    private final IntBuffer labelOffsets;
+    private final IntBuffer outOffsets;
+    private final IntBuffer outTargets;
+    private final IntBuffer outWeights;
+    private final IntBuffer inOffsets;
+    private final IntBuffer inSources;
+    private final IntBuffer inWeights;
+    private final ByteBuffer labels;
+
+    // Abstraction function:
+    //   AF(vertexCount, ..., labels) = the graph with vertices label(0) ..
+    //     label(vertexCount-1), where label(i) is the UTF-8 decoding of
+    //     labels[labelOffsets[i] .. labelOffsets[i+1]), and an edge
+    //     label(s) -> label(outTargets[e]) of weight outWeights[e] for each e
+    //     in outOffsets[s] .. outOffsets[s+1]-1; the in-arrays list the same
+    //     edges by target.
+    // Representation invariant:
+    //   - the offset buffers have vertexCount + 1 entries, start at 0, are
+    //     non-decreasing, and end at edgeCount (label offsets: labels' limit)
+    //   - labels are distinct and in strictly increasing order
+    //   - neighbor ids within each vertex's range are strictly increasing and
+    //     in 0 .. vertexCount-1; weights are > 0
+    //   (checked only as far as the header: checking the rest would read the
+    //   whole image, which open() is designed to avoid)
+    // Safety from rep exposure:
+    //   - All fields are private and final; buffers are read-only and never
+    //     returned, and queries copy out of them.
+    // Thread safety argument:
+    //   - The buffers are never written, and are only read with absolute
+    //     gets or through per-call duplicate() views.
+
+    private MappedGraph(ByteBuffer image) throws IOException {
+        final IntBuffer ints = image.asIntBuffer();
+        if (ints.limit() < HEADER_INTS || ints.get(0) != MAGIC) {
+            throw new IOException("Not a graph image");
+        }
+        if (ints.get(1) != VERSION) {
+            throw new IOException("Unsupported graph image version " + ints.get(1));
+        }
+        this.vertexCount = ints.get(2);
+        this.edgeCount = ints.get(3);
+        final int labelBytes = ints.get(4);
+        final long intCount = HEADER_INTS + 3L * (vertexCount + 1) + 4L * edgeCount;
+        if (vertexCount < 0 || edgeCount < 0 || labelBytes < 0
+                || intCount * 4 + labelBytes != image.limit()) {
+            throw new IOException("Truncated or corrupt graph image");
+        }
+        int position = HEADER_INTS;
+        this.labelOffsets = slice(ints, position, vertexCount + 1);
+        position += vertexCount + 1;
+        this.outOffsets = slice(ints, position, vertexCount + 1);
+        position += vertexCount + 1;
+        this.outTargets = slice(ints, position, edgeCount);
+        position += edgeCount;
+        this.outWeights = slice(ints, position, edgeCount);
+        position += edgeCount;
+        this.inOffsets = slice(ints, position, vertexCount + 1);
+        position += vertexCount + 1;
+        this.inSources = slice(ints, position, edgeCount);
+        position += edgeCount;
+        this.inWeights = slice(ints, position, edgeCount);
+        position += edgeCount;
+        final ByteBuffer labelView = image.duplicate();
+        labelView.position(position * 4);
+        this.labels = labelView.slice().asReadOnlyBuffer();
+        checkRep();
+    }
+
+    private static IntBuffer slice(IntBuffer ints, int position, int length) {
+        final IntBuffer view = ints.duplicate();
+        view.position(position);
+        view.limit(position + length);
+        return view.slice().asReadOnlyBuffer();
+    }
+
+    private void checkRep() {
+        assert labelOffsets.get(0) == 0 && labelOffsets.get(vertexCount) == labels.limit() : "Bad label offsets";
+        assert outOffsets.get(0) == 0 && outOffsets.get(vertexCount) == edgeCount : "Bad out offsets";
+        assert inOffsets.get(0) == 0 && inOffsets.get(vertexCount) == edgeCount : "Bad in offsets";
+    }
+
+    /**
+     * Map a graph image.
+     * 
+     * @param image file written by write()
+     * @return the graph in image
+     * @throws IOException if image cannot be read, or is not a graph image
+     */
+    public static MappedGraph open(File image) throws IOException {
+        try (FileChannel channel = FileChannel.open(image.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Graph image larger than 2 GiB");
+            }
+            // the mapping stays valid after the channel is closed
+            return new MappedGraph(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Write an image of a graph.
+     * 
+     * @param graph graph to write; must not change while being written
+     * @param image file to create or overwrite
+     * @throws IOException if image cannot be written, or would exceed 2 GiB
+     */
+    public static void write(Graph<String> graph, File image) throws IOException {
+        final String[] sorted = graph.vertices().toArray(new String[0]);
+        Arrays.sort(sorted);
+        final int n = sorted.length;
+        final Map<String, Integer> ids = new HashMap<>(n * 4 / 3 + 1);
+        for (int i = 0; i < n; i++) {
+            ids.put(sorted[i], i);
+        }
+        final byte[][] labelBytes = new byte[n][];
+        final int[] labelOffsets = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            labelBytes[i] = sorted[i].getBytes(StandardCharsets.UTF_8);
+            labelOffsets[i + 1] = Math.addExact(labelOffsets[i], labelBytes[i].length);
+        }
+
+        final int[] outOffsets = new int[n + 1];
+        final int[][] targets = new int[n][];
+        final int[][] targetWeights = new int[n][];
+        final int[] inOffsets = new int[n + 1];
+        for (int s = 0; s < n; s++) {
+            final Map<String, Integer> edges = graph.targets(sorted[s]);
+            final long[] packed = new long[edges.size()];
+            int i = 0;
+            for (Map.Entry<String, Integer> edge : edges.entrySet()) {
+                packed[i++] = (long) ids.get(edge.getKey()) << 32 | edge.getValue();
+            }
+            Arrays.sort(packed);
+            targets[s] = new int[packed.length];
+            targetWeights[s] = new int[packed.length];
+            for (i = 0; i < packed.length; i++) {
+                targets[s][i] = (int) (packed[i] >>> 32);
+                targetWeights[s][i] = (int) packed[i];
+                inOffsets[targets[s][i] + 1]++;
+            }
+            outOffsets[s + 1] = Math.addExact(outOffsets[s], packed.length);
+        }
+        final int edges = outOffsets[n];
+        for (int t = 0; t < n; t++) {
+            inOffsets[t + 1] += inOffsets[t];
+        }
+        final int[] inSources = new int[edges];
+        final int[] inWeights = new int[edges];
+        final int[] next = Arrays.copyOf(inOffsets, n);
+        // sources are visited in increasing id, so each in-list comes out sorted
+        for (int s = 0; s < n; s++) {
+            for (int i = 0; i < targets[s].length; i++) {
+                final int slot = next[targets[s][i]]++;
+                inSources[slot] = s;
+                inWeights[slot] = targetWeights[s][i];
+            }
+        }
+        if ((HEADER_INTS + 3L * (n + 1) + 4L * edges) * 4 + labelOffsets[n] > Integer.MAX_VALUE) {
+            throw new IOException("Graph image would be larger than 2 GiB");
+        }
+
+        try (OutputStream file = Files.newOutputStream(image.toPath());
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+            for (int value : new int[] { MAGIC, VERSION, n, edges, labelOffsets[n], 0 }) {
+                out.writeInt(value);
+            }
+            writeInts(out, labelOffsets);
+            writeInts(out, outOffsets);
+            for (int[] row : targets) {
+                writeInts(out, row);
+            }
+            for (int[] row : targetWeights) {
+                writeInts(out, row);
+            }
+            writeInts(out, inOffsets);
+            writeInts(out, inSources);
+            writeInts(out, inWeights);
+            for (byte[] label : labelBytes) {
+                out.write(label);
+            }
+        }
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    /**
+     * @return number of vertices; ids range over 0 .. vertexCount() - 1
+     */
+    public int vertexCount() {
+        return vertexCount;
+    }
+
+    /**
+     * @param id a vertex id, 0 <= id < vertexCount()
+     * @return the label of that vertex
+     */
+    public String label(int id) {
+        final int start = labelOffsets.get(id);
+        final byte[] bytes = new byte[labelOffsets.get(id + 1) - start];
+        final ByteBuffer view = labels.duplicate();
+        view.position(start);
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Find a vertex by binary search over the sorted labels.
+     * 
+     * @param label a label
+     * @return the id of the vertex with that label, or -1 if there is none
+     */
+    public int id(String label) {
+        int low = 0;
+        int high = vertexCount - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final int comparison = label(mid).compareTo(label);
+            if (comparison < 0) {
+                low = mid + 1;
+            } else if (comparison > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Find the best bridge between two vertices.
+     * 
+     * @param first a label
+     * @param second a label
+     * @return the label b maximizing weight(first -> b) + weight(b -> second),
+     *         the lexicographically smallest among ties, or null if there is
+     *         no two-edge path from first to second
+     */
+    public String bestBridge(String first, String second) {
+        final int source = id(first);
+        final int target = id(second);
+        if (source < 0 || target < 0) {
+            return null;
+        }
+        final int outStart = outOffsets.get(source);
+        final int outLength = outOffsets.get(source + 1) - outStart;
+        final int inStart = inOffsets.get(target);
+        final int inLength = inOffsets.get(target + 1) - inStart;
+        if (outLength == 0 || inLength == 0) {
+            return null;
+        }
+        final int[] targets = copy(outTargets, outStart, outLength);
+        final int[] targetWeights = copy(outWeights, outStart, outLength);
+        final int[] sources = copy(inSources, inStart, inLength);
+        final int[] sourceWeights = copy(inWeights, inStart, inLength);
+        // ids follow label order, so the smallest id among ties is the smallest label
+        final int bridge = BridgeIntersection.best(targets, targetWeights, outLength,
+                sources, sourceWeights, inLength);
+        return bridge < 0 ? null : label(bridge);
+    }
+
+    private static int[] copy(IntBuffer buffer, int start, int length) {
+        final IntBuffer view = buffer.duplicate();
+        view.position(start);
+        final int[] result = new int[length];
+        view.get(result);
+        return result;
+    }
+
+    @Override
+    public boolean add(String vertex) {
+        throw new UnsupportedOperationException("MappedGraph is read-only");
+    }
+
+    @Override
+    public int set(String source, String target, int weight) {
+        throw new UnsupportedOperationException("MappedGraph is read-only");
+    }
+
+    @Override
+    public boolean remove(String vertex) {
+        throw new UnsupportedOperationException("MappedGraph is read-only");
+    }
+
+    @Override
+    public Set<String> vertices() {
+        final Set<String> result = new HashSet<>(vertexCount * 4 / 3 + 1);
+        for (int id = 0; id < vertexCount; id++) {
+            result.add(label(id));
+        }
+        return result;
+    }
+
+    @Override
+    public Map<String, Integer> sources(String target) {
+        final int id = id(target);
+        return id < 0 ? Collections.emptyMap() : toMap(inOffsets, inSources, inWeights, id);
+    }
+
+    @Override
+    public Map<String, Integer> targets(String source) {
+        final int id = id(source);
+        return id < 0 ? Collections.emptyMap() : toMap(outOffsets, outTargets, outWeights, id);
+    }
+
+    private Map<String, Integer> toMap(IntBuffer offsets, IntBuffer neighbors, IntBuffer weights, int id) {
+        final int start = offsets.get(id);
+        final int end = offsets.get(id + 1);
+        final Map<String, Integer> result = new HashMap<>((end - start) * 4 / 3 + 1);
+        for (int e = start; e < end; e++) {
+            result.put(label(neighbors.get(e)), weights.get(e));
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "MappedGraph(" + vertexCount + " vertices, " + edgeCount + " edges)";
+    }
+}
@@ -0,0 +1,142 @@
+package graph;
+
+/**
+ * An estimate of the heap used by a graph representation.
+ * 
+ * <p>Estimates assume a 64-bit JVM with compressed oops and compressed class
+ * pointers (12-byte object headers, 4-byte references, 8-byte alignment).
+ * Vertex labels are not counted, since they are shared with the client.
+ * Hash tables and array lists are assumed to be no larger than their contents
+ * require, so the estimate is a lower bound until the graph is compacted.
+ * 
+ * <p>Immutable.
+ */
+public class MemoryFootprint {
+
+    static final long OBJECT_HEADER = 12;
+    static final long REFERENCE = 4;
+    static final long HASH_MAP = 48;
+    static final long HASH_MAP_NODE = 32;
+    static final long HASH_SET = 16;
+    static final long ARRAY_LIST = 24;
+    static final long BOXED_INTEGER = 16;
+
+    private final long vertices;
+    private final long edges;
+    private final long vertexBytes;
+    private final long edgeBytes;
+    private final long boxingBytes;
+
+    // Abstraction function:
+    //   AF(vertices, edges, vertexBytes, edgeBytes, boxingBytes) = the footprint
+    //     of a graph with 'vertices' vertices and 'edges' edges, where
+    //     'vertexBytes' is attributed to vertices and the containers holding
+    //     them, 'edgeBytes' to edges, and 'boxingBytes' is the part of
+    //     'edgeBytes' spent on boxed Integer weights.
+    // Representation invariant:
+    //   - all fields >= 0
+    //   - boxingBytes <= edgeBytes
+    // Safety from rep exposure:
+    //   - All fields are private, final and primitive.
+
+    /**
+     * Create a footprint estimate.
+     * 
+     * @param vertices number of vertices
+     * @param edges number of edges
+     * @param vertexBytes bytes attributed to vertices and their containers
+     * @param edgeBytes bytes attributed to edges, including boxingBytes
+     * @param boxingBytes bytes spent on boxed Integer weights
+     */
+    public MemoryFootprint(long vertices, long edges, long vertexBytes, long edgeBytes, long boxingBytes) {
+        if (vertices < 0 || edges < 0 || vertexBytes < 0 || edgeBytes < 0 || boxingBytes < 0) {
+            throw new IllegalArgumentException("Footprint values must be non-negative");
+        }
+        if (boxingBytes > edgeBytes) {
+            throw new IllegalArgumentException("Boxing bytes cannot exceed edge bytes");
+        }
+        this.vertices = vertices;
+        this.edges = edges;
+        this.vertexBytes = vertexBytes;
+        this.edgeBytes = edgeBytes;
+        this.boxingBytes = boxingBytes;
+    }
+
+    public long vertices() {
+        return vertices;
+    }
+
+    public long edges() {
+        return edges;
+    }
+
+    public long vertexBytes() {
+        return vertexBytes;
+    }
+
+    public long edgeBytes() {
+        return edgeBytes;
+    }
+
+    public long boxingBytes() {
+        return boxingBytes;
+    }
+
+    public long totalBytes() {
+        return vertexBytes + edgeBytes;
+    }
+
+    /**
+     * @return vertexBytes() / vertices(), or 0 if there are no vertices
+     */
+    public double bytesPerVertex() {
+        return vertices == 0 ? 0 : (double) vertexBytes / vertices;
+    }
+
+    /**
+     * @return edgeBytes() / edges(), or 0 if there are no edges
+     */
+    public double bytesPerEdge() {
+        return edges == 0 ? 0 : (double) edgeBytes / edges;
+    }
+
+    /**
+     * @param length number of reference or int elements
+     * @return size of an array of 4-byte elements with that length
+     */
+    static long arrayBytes(long length) {
+        return align(16 + 4 * length);
+    }
+
+    /**
+     * @param entries number of entries in a HashMap or HashSet
+     * @return size of the bucket table a HashMap needs for that many entries
+     *         at the default load factor; 0 for an empty map
+     */
+    static long tableBytes(int entries) {
+        if (entries == 0) {
+            return 0;
+        }
+        final int minimum = (int) Math.ceil(entries / 0.75);
+        final int capacity = Integer.highestOneBit(minimum * 2 - 1);
+        return arrayBytes(capacity);
+    }
+
+    /**
+     * @param weight an edge weight stored as an Integer
+     * @return extra bytes boxing it costs; 0 if it comes from the Integer cache
+     */
+    static long boxingBytes(int weight) {
+        return weight >= -128 && weight <= 127 ? 0 : BOXED_INTEGER;
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d vertices, %d edges: %d bytes (%.1f bytes/vertex, %.1f bytes/edge, %d bytes boxing)",
+                vertices, edges, totalBytes(), bytesPerVertex(), bytesPerEdge(), boxingBytes);
+    }
+}
@@ -0,0 +1,583 @@
+package graph;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * A Graph stored on disk in hash partitions, for graphs larger than the heap.
+ * 
+ * <p>Vertices are assigned to one of a fixed number of partitions by a hash
+ * of their label's encoding under the codec, not by hashCode(), so a
+ * directory written by one JVM partitions the same way when another opens
+ * it. Each partition is a segment file holding, for each of its
+ * vertices, the vertex's outgoing and incoming edges. At most a fixed number
+ * of segments are held in memory; the least recently used one is written back
+ * (if changed) and dropped when another is needed. targets(v) and sources(v)
+ * read only v's segment; set() touches the segments of its two endpoints;
+ * vertices() reads every segment.
+ * 
+ * <p>Large graphs should be built with {@link #bulkLoad}, which sorts the
+ * edges into partition order on disk in bounded memory and writes each
+ * segment once, instead of loading segments back and forth.
+ * 
+ * <p>Threadsafe. Changes are written to disk on eviction, flush() and close().
+ *
+ * @param <L> type of vertex labels in this graph, must be immutable
+ */
+public class PartitionedGraph<L> implements Graph<L>, Closeable {
+
+    // "GPM2": partitions by the hash of encoded labels; "GPMF" directories
+    // partitioned by hashCode() and are not readable
+    private static final int MANIFEST_MAGIC = 0x47504d32;
+    private static final int SEGMENT_MAGIC = 0x47534547;
+    private static final String MANIFEST = "partitions";
+
+    private final File directory;
+    private final LabelCodec<L> codec;
+    private final int partitions;
+    private final int cachedSegments;
+    private final LabelBytes labelBytes = new LabelBytes();
+    private final DataOutputStream labelOut = new DataOutputStream(labelBytes);
+    private final LinkedHashMap<Integer, Segment<L>> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private long segmentReads = 0;
+    private boolean closed = false;
+
+    // Abstraction function:
+    //   AF(directory, cache) = the graph whose vertices and edges are those of
+    //     partition p's segment for every p, where a segment is cache.get(p)
+    //     if present and otherwise the segment file for p (empty if absent).
+    // Representation invariant:
+    //   - cache.size() <= cachedSegments
+    //   - every vertex v is in segment partition(v) only
+    //   - s -> t has weight w in segment(s).out iff it has weight w in
+    //     segment(t).in, and w > 0
+    // Safety from rep exposure:
+    //   - All fields are private; segments are never returned, and query
+    //     results are copies.
+    // Thread safety argument:
+    //   - all access to cache, segments, labelBytes and files holds the lock
+    //     on this, except in bulkLoad() before the graph is returned.
+
+    /**
+     * Open or create a partitioned graph.
+     * 
+     * @param directory directory holding the segment files; created if missing
+     * @param codec codec for vertex labels
+     * @param partitions number of partitions, > 0; must match the number the
+     *        directory was created with, if it exists
+     * @param cachedSegments maximum number of segments held in memory, >= 2
+     * @throws IOException if the directory cannot be created or read, or was
+     *         created with a different number of partitions
+     */
+    public PartitionedGraph(File directory, LabelCodec<L> codec, int partitions, int cachedSegments)
+            throws IOException {
+        if (partitions <= 0) throw new IllegalArgumentException("partitions must be positive");
+        if (cachedSegments < 2) throw new IllegalArgumentException("cachedSegments must be at least 2");
+        this.directory = directory;
+        this.codec = codec;
+        this.partitions = partitions;
+        this.cachedSegments = cachedSegments;
+        Files.createDirectories(directory.toPath());
+        final File manifest = new File(directory, MANIFEST);
+        if (manifest.exists()) {
+            try (DataInputStream in = new DataInputStream(new FileInputStream(manifest))) {
+                if (in.readInt() != MANIFEST_MAGIC) throw new IOException("Not a partitioned graph: " + directory);
+                final int existing = in.readInt();
+                if (existing != partitions) {
+                    throw new IOException(directory + " has " + existing + " partitions, not " + partitions);
+                }
+            }
+        } else {
+            try (DataOutputStream out = new DataOutputStream(new FileOutputStream(manifest))) {
+                out.writeInt(MANIFEST_MAGIC);
+                out.writeInt(partitions);
+            }
+        }
+    }
+
+    /**
+     * Build a partitioned graph from a stream of edges with an external sort.
+     * 
+     * <p>Edges are buffered runEdges at a time, sorted by partition and
+     * written to temporary run files, which are then merged in partition
+     * order so that each segment is built in memory and written exactly once.
+     * Memory use is bounded by runEdges and the size of the largest segment.
+     * 
+     * @param <L> type of vertex labels
+     * @param directory directory to build the graph in; must not already hold one
+     * @param codec codec for vertex labels
+     * @param partitions number of partitions, > 0
+     * @param cachedSegments maximum number of segments the returned graph
+     *        holds in memory, >= 2
+     * @param edges edges to set, in order, as (source, target, weight) with
+     *        weight >= 0; a later edge between the same vertices replaces an
+     *        earlier one, and weight 0 only adds the vertices
+     * @param runEdges number of edges sorted in memory at once, > 0
+     * @return the loaded graph
+     * @throws IOException if a file cannot be written or read
+     */
+    public static <L> PartitionedGraph<L> bulkLoad(File directory, LabelCodec<L> codec, int partitions,
+            int cachedSegments, Iterator<? extends WeightedEdge<L>> edges, int runEdges) throws IOException {
+        if (runEdges <= 0) throw new IllegalArgumentException("runEdges must be positive");
+        if (new File(directory, MANIFEST).exists()) throw new IOException("Graph already exists in " + directory);
+        final PartitionedGraph<L> graph = new PartitionedGraph<>(directory, codec, partitions, cachedSegments);
+        final List<File> runs = new ArrayList<>();
+        try {
+            long sequence = 0;
+            final List<Record<L>> buffer = new ArrayList<>();
+            while (edges.hasNext()) {
+                final WeightedEdge<L> edge = edges.next();
+                if (edge.weight() < 0) throw new IllegalArgumentException("Weight must be non-negative");
+                buffer.add(new Record<>(graph.partition(edge.source()), sequence, true,
+                        edge.source(), edge.target(), edge.weight()));
+                buffer.add(new Record<>(graph.partition(edge.target()), sequence, false,
+                        edge.target(), edge.source(), edge.weight()));
+                sequence++;
+                if (buffer.size() >= 2L * runEdges) {
+                    runs.add(graph.writeRun(buffer, runs.size()));
+                    buffer.clear();
+                }
+            }
+            if (!buffer.isEmpty()) {
+                runs.add(graph.writeRun(buffer, runs.size()));
+            }
+            graph.mergeRuns(runs);
+        } finally {
+            for (File run : runs) {
+                Files.deleteIfExists(run.toPath());
+            }
+        }
+        return graph;
+    }
+
+    /**
+     * An edge given to bulkLoad.
+     *
+     * @param <L> type of vertex labels
+     */
+    public interface WeightedEdge<L> {
+        L source();
+        L target();
+        int weight();
+    }
+
+    @Override
+    public synchronized boolean add(L vertex) {
+        final Segment<L> segment = segment(partition(vertex));
+        if (segment.out.containsKey(vertex)) {
+            return false;
+        }
+        segment.addVertex(vertex);
+        return true;
+    }
+
+    @Override
+    public synchronized int set(L source, L target, int weight) {
+        if (weight < 0) throw new IllegalArgumentException("Weight must be non-negative");
+        final int previous = segment(partition(source)).setOut(source, target, weight);
+        segment(partition(target)).setIn(target, source, weight);
+        return previous;
+    }
+
+    @Override
+    public synchronized boolean remove(L vertex) {
+        final int partition = partition(vertex);
+        Segment<L> segment = segment(partition);
+        if (!segment.out.containsKey(vertex)) {
+            return false;
+        }
+        final Set<L> targets = new HashSet<>(segment.out.get(vertex).keySet());
+        final Set<L> sources = new HashSet<>(segment.in.get(vertex).keySet());
+        for (L target : targets) {
+            segment(partition(target)).setIn(target, vertex, 0);
+        }
+        for (L source : sources) {
+            segment(partition(source)).setOut(source, vertex, 0);
+        }
+        segment = segment(partition);
+        segment.out.remove(vertex);
+        segment.in.remove(vertex);
+        segment.dirty = true;
+        return true;
+    }
+
+    @Override
+    public synchronized Set<L> vertices() {
+        final Set<L> vertices = new HashSet<>();
+        for (int p = 0; p < partitions; p++) {
+            vertices.addAll(segment(p).out.keySet());
+        }
+        return vertices;
+    }
+
+    @Override
+    public synchronized Map<L, Integer> sources(L target) {
+        return new HashMap<>(segment(partition(target)).in.getOrDefault(target, Collections.emptyMap()));
+    }
+
+    @Override
+    public synchronized Map<L, Integer> targets(L source) {
+        return new HashMap<>(segment(partition(source)).out.getOrDefault(source, Collections.emptyMap()));
+    }
+
+    /**
+     * Write every changed segment in memory to disk.
+     * 
+     * @throws IOException if a segment cannot be written
+     */
+    public synchronized void flush() throws IOException {
+        for (Map.Entry<Integer, Segment<L>> entry : cache.entrySet()) {
+            if (entry.getValue().dirty) {
+                writeSegment(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Flush and drop all segments from memory. The graph must not be used
+     * afterwards.
+     * 
+     * @throws IOException if a segment cannot be written
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (!closed) {
+            flush();
+            cache.clear();
+            closed = true;
+        }
+    }
+
+    /**
+     * @return number of segment files read from disk so far
+     */
+    synchronized long segmentReads() {
+        return segmentReads;
+    }
+
+    /**
+     * @return number of segments currently held in memory
+     */
+    synchronized int cachedSegmentCount() {
+        return cache.size();
+    }
+
+    private int partition(L vertex) {
+        labelBytes.reset();
+        try {
+            codec.write(vertex, labelOut);
+            labelOut.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot encode label", e);
+        }
+        final int hash = labelBytes.hash();
+        return Math.floorMod(hash ^ (hash >>> 16), partitions);
+    }
+
+    /** A byte buffer that hashes its contents in place. */
+    private static final class LabelBytes extends ByteArrayOutputStream {
+
+        /**
+         * @return the 32-bit FNV-1a hash of the bytes written since the last
+         *         reset(), which depends only on those bytes
+         */
+        int hash() {
+            int hash = 0x811c9dc5;
+            for (int i = 0; i < count; i++) {
+                hash = (hash ^ (buf[i] & 0xff)) * 0x01000193;
+            }
+            return hash;
+        }
+    }
+
+    private File segmentFile(int partition) {
+        return new File(directory, "segment-" + partition);
+    }
+
+    /**
+     * Get a segment, reading it and evicting the least recently used one if
+     * needed. The result must not be used after the next call to segment().
+     */
+    private Segment<L> segment(int partition) {
+        if (closed) throw new IllegalStateException("PartitionedGraph is closed");
+        Segment<L> segment = cache.get(partition);
+        if (segment != null) {
+            return segment;
+        }
+        try {
+            if (cache.size() >= cachedSegments) {
+                final Iterator<Map.Entry<Integer, Segment<L>>> eldest = cache.entrySet().iterator();
+                final Map.Entry<Integer, Segment<L>> evicted = eldest.next();
+                if (evicted.getValue().dirty) {
+                    writeSegment(evicted.getKey(), evicted.getValue());
+                }
+                eldest.remove();
+            }
+            segment = readSegment(partition);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        cache.put(partition, segment);
+        return segment;
+    }
+
+    private Segment<L> readSegment(int partition) throws IOException {
+        final Segment<L> segment = new Segment<>();
+        final File file = segmentFile(partition);
+        if (!file.exists()) {
+            return segment;
+        }
+        segmentReads++;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != SEGMENT_MAGIC) throw new IOException("Not a graph segment: " + file);
+            final int vertices = in.readInt();
+            for (int i = 0; i < vertices; i++) {
+                final L vertex = codec.read(in);
+                segment.out.put(vertex, readEdges(in));
+                segment.in.put(vertex, readEdges(in));
+            }
+        }
+        return segment;
+    }
+
+    private Map<L, Integer> readEdges(DataInputStream in) throws IOException {
+        final int count = in.readInt();
+        final Map<L, Integer> edges = new HashMap<>(count * 4 / 3 + 1);
+        for (int i = 0; i < count; i++) {
+            final L vertex = codec.read(in);
+            edges.put(vertex, in.readInt());
+        }
+        return edges;
+    }
+
+    private void writeSegment(int partition, Segment<L> segment) throws IOException {
+        final File file = segmentFile(partition);
+        if (segment.out.isEmpty()) {
+            Files.deleteIfExists(file.toPath());
+            segment.dirty = false;
+            return;
+        }
+        final File temporary = new File(directory, file.getName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)))) {
+            out.writeInt(SEGMENT_MAGIC);
+            out.writeInt(segment.out.size());
+            for (Map.Entry<L, Map<L, Integer>> entry : segment.out.entrySet()) {
+                codec.write(entry.getKey(), out);
+                writeEdges(entry.getValue(), out);
+                writeEdges(segment.in.get(entry.getKey()), out);
+            }
+        }
+        Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        segment.dirty = false;
+    }
+
+    private void writeEdges(Map<L, Integer> edges, DataOutputStream out) throws IOException {
+        out.writeInt(edges.size());
+        for (Map.Entry<L, Integer> edge : edges.entrySet()) {
+            codec.write(edge.getKey(), out);
+            out.writeInt(edge.getValue());
+        }
+    }
+
+    /** Sort one run of bulk-load records by partition and write it to a file. */
+    private File writeRun(List<Record<L>> records, int number) throws IOException {
+        records.sort(Record.ORDER);
+        final File run = new File(directory, "run-" + number + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(run)))) {
+            for (Record<L> record : records) {
+                record.write(out, codec);
+            }
+        }
+        return run;
+    }
+
+    /** Merge sorted runs, building and writing one segment at a time. */
+    private void mergeRuns(List<File> runs) throws IOException {
+        final PriorityQueue<RunReader<L>> queue = new PriorityQueue<>(
+                Math.max(1, runs.size()), Comparator.comparing(reader -> reader.current, Record.ORDER));
+        final List<RunReader<L>> readers = new ArrayList<>();
+        try {
+            for (File run : runs) {
+                final RunReader<L> reader = new RunReader<>(run, codec);
+                readers.add(reader);
+                if (reader.advance()) {
+                    queue.add(reader);
+                }
+            }
+            int partition = -1;
+            Segment<L> segment = null;
+            while (!queue.isEmpty()) {
+                final RunReader<L> reader = queue.remove();
+                final Record<L> record = reader.current;
+                if (record.partition != partition) {
+                    if (segment != null) {
+                        writeSegment(partition, segment);
+                    }
+                    partition = record.partition;
+                    segment = new Segment<>();
+                }
+                if (record.outgoing) {
+                    segment.setOut(record.vertex, record.other, record.weight);
+                } else {
+                    segment.setIn(record.vertex, record.other, record.weight);
+                }
+                if (reader.advance()) {
+                    queue.add(reader);
+                }
+            }
+            if (segment != null) {
+                writeSegment(partition, segment);
+            }
+        } finally {
+            for (RunReader<L> reader : readers) {
+                reader.close();
+            }
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "PartitionedGraph(" + directory + ", " + partitions + " partitions, "
+                + cache.size() + " cached)";
+    }
+
+    /**
+     * The vertices of one partition with their outgoing and incoming edges.
+     * Mutable; owned by a PartitionedGraph.
+     */
+    private static final class Segment<L> {
+
+        final Map<L, Map<L, Integer>> out = new HashMap<>();
+        final Map<L, Map<L, Integer>> in = new HashMap<>();
+        boolean dirty = false;
+
+        // Abstraction function:
+        //   AF(out, in) = the vertices out.keySet(), where out.get(v) maps v's
+        //     targets and in.get(v) maps v's sources to edge weights.
+        // Representation invariant:
+        //   - out and in have the same keys; all weights > 0
+        //   - dirty if out or in differ from the segment's file
+
+        void addVertex(L vertex) {
+            if (!out.containsKey(vertex)) {
+                out.put(vertex, new HashMap<>());
+                in.put(vertex, new HashMap<>());
+                dirty = true;
+            }
+        }
+
+        /** Set weight of source -> other in source's out map; 0 removes it. */
+        int setOut(L source, L other, int weight) {
+            addVertex(source);
+            return setEdge(out.get(source), other, weight);
+        }
+
+        /** Set weight of other -> target in target's in map; 0 removes it. */
+        int setIn(L target, L other, int weight) {
+            addVertex(target);
+            return setEdge(in.get(target), other, weight);
+        }
+
+        private int setEdge(Map<L, Integer> edges, L other, int weight) {
+            final Integer previous = weight == 0 ? edges.remove(other) : edges.put(other, weight);
+            if (previous == null ? weight != 0 : previous != weight) {
+                dirty = true;
+            }
+            return previous == null ? 0 : previous;
+        }
+    }
+
+    /** One side of an edge given to bulkLoad, tagged with its partition. Immutable. */
+    private static final class Record<L> {
+
+        static final Comparator<Record<?>> ORDER = Comparator.<Record<?>>comparingInt(record -> record.partition)
+                .thenComparingLong(record -> record.sequence);
+
+        final int partition;
+        final long sequence;
+        final boolean outgoing;
+        final L vertex;
+        final L other;
+        final int weight;
+
+        Record(int partition, long sequence, boolean outgoing, L vertex, L other, int weight) {
+            this.partition = partition;
+            this.sequence = sequence;
+            this.outgoing = outgoing;
+            this.vertex = vertex;
+            this.other = other;
+            this.weight = weight;
+        }
+
+        void write(DataOutputStream out, LabelCodec<L> codec) throws IOException {
+            out.writeInt(partition);
+            out.writeLong(sequence);
+            out.writeBoolean(outgoing);
+            codec.write(vertex, out);
+            codec.write(other, out);
+            out.writeInt(weight);
+        }
+
+        static <L> Record<L> read(DataInputStream in, LabelCodec<L> codec) throws IOException {
+            final int partition = in.readInt();
+            final long sequence = in.readLong();
+            final boolean outgoing = in.readBoolean();
+            final L vertex = codec.read(in);
+            final L other = codec.read(in);
+            return new Record<>(partition, sequence, outgoing, vertex, other, in.readInt());
+        }
+    }
+
+    /** Reads the records of one sorted run in order. */
+    private static final class RunReader<L> implements Closeable {
+
+        private final DataInputStream in;
+        private final LabelCodec<L> codec;
+        Record<L> current;
+
+        RunReader(File run, LabelCodec<L> codec) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(run)));
+            this.codec = codec;
+        }
+
+        /** @return true iff another record was read into current */
+        boolean advance() throws IOException {
+            try {
+                current = Record.read(in, codec);
+                return true;
+            } catch (EOFException e) {
+                current = null;
+                return false;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,397 @@
+package graph;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * An immutable hash map whose updates return new maps that share structure
+ * with the old one.
+ * 
+ * <p>Implemented as a hash array mapped trie: each level consumes five bits of
+ * the key's hash code, and nodes store only their non-empty slots, indexed by
+ * a 32-bit bitmap. plus() and minus() copy one path from the root, so they
+ * cost O(log32 n) time and allocation, and every earlier map stays valid.
+ * Keys whose hash codes are fully equal share a collision node.
+ * 
+ * <p>Immutable; the Map mutators inherited from AbstractMap throw
+ * UnsupportedOperationException. Null keys and values are not allowed.
+ *
+ * @param <K> type of keys, must be immutable
+ * @param <V> type of values, must be immutable
+ */
+final class PersistentMap<K, V> extends AbstractMap<K, V> {
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    private static final PersistentMap<?, ?> EMPTY = new PersistentMap<>(null, 0);
+
+    private final Object root;
+    private final int size;
+
+    // Abstraction function:
+    //   AF(root, size) = the map holding the Leaf entries reachable from root
+    //     (none if root == null).
+    // Representation invariant:
+    //   - root is null, a Leaf, a Bitmap or a Collision node
+    //   - a Leaf at depth d (root at depth 0) sits in the slot of a Bitmap
+    //     selected by bits [5(d-1), 5d) of its hash, below Bitmaps selected by
+    //     its earlier bits; a Collision node holds >= 2 leaves with one hash
+    //   - no Bitmap is empty, and no key appears twice
+    //   - size is the number of leaves
+    // Safety from rep exposure:
+    //   - All fields are private and final; nodes are never mutated after
+    //     construction and never returned; entries are immutable.
+
+    private PersistentMap(Object root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * @param <K> type of keys
+     * @param <V> type of values
+     * @return the empty map
+     */
+    @SuppressWarnings("unchecked")
+    static <K, V> PersistentMap<K, V> empty() {
+        return (PersistentMap<K, V>) EMPTY;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        if (key == null) {
+            return null;
+        }
+        final int hash = key.hashCode();
+        Object node = root;
+        for (int shift = 0; node != null; shift += BITS) {
+            if (node instanceof Leaf) {
+                final Leaf leaf = (Leaf) node;
+                return leaf.hash == hash && leaf.key.equals(key) ? (V) leaf.value : null;
+            }
+            if (node instanceof Collision) {
+                final Collision collision = (Collision) node;
+                return collision.hash == hash ? (V) collision.get(key) : null;
+            }
+            final Bitmap bitmap = (Bitmap) node;
+            final int bit = 1 << ((hash >>> shift) & MASK);
+            if ((bitmap.bitmap & bit) == 0) {
+                return null;
+            }
+            node = bitmap.slots[bitmap.index(bit)];
+        }
+        return null;
+    }
+
+    /**
+     * @param key key to map, not null
+     * @param value value to map it to, not null
+     * @return a map equal to this one except that key maps to value
+     */
+    PersistentMap<K, V> plus(K key, V value) {
+        Objects.requireNonNull(key, "Key cannot be null");
+        Objects.requireNonNull(value, "Value cannot be null");
+        final Leaf leaf = new Leaf(key, value);
+        if (root == null) {
+            return new PersistentMap<>(leaf, 1);
+        }
+        final boolean[] added = new boolean[1];
+        final Object newRoot = plus(root, 0, leaf, added);
+        return newRoot == root ? this : new PersistentMap<>(newRoot, added[0] ? size + 1 : size);
+    }
+
+    /**
+     * @param key key to unmap
+     * @return a map equal to this one except that key is not mapped
+     */
+    PersistentMap<K, V> minus(Object key) {
+        if (root == null || key == null) {
+            return this;
+        }
+        final Object newRoot = minus(root, 0, key.hashCode(), key);
+        if (newRoot == root) {
+            return this;
+        }
+        return newRoot == null ? empty() : new PersistentMap<>(newRoot, size - 1);
+    }
+
+    private static Object plus(Object node, int shift, Leaf leaf, boolean[] added) {
+        if (node instanceof Leaf) {
+            final Leaf existing = (Leaf) node;
+            if (existing.hash == leaf.hash && existing.key.equals(leaf.key)) {
+                return existing.value.equals(leaf.value) ? existing : leaf;
+            }
+            added[0] = true;
+            if (existing.hash == leaf.hash) {
+                return new Collision(leaf.hash, new Leaf[] { existing, leaf });
+            }
+            return branch(shift, existing, existing.hash, leaf);
+        }
+        if (node instanceof Collision) {
+            final Collision collision = (Collision) node;
+            if (collision.hash != leaf.hash) {
+                added[0] = true;
+                return branch(shift, collision, collision.hash, leaf);
+            }
+            return collision.plus(leaf, added);
+        }
+        final Bitmap bitmap = (Bitmap) node;
+        final int bit = 1 << ((leaf.hash >>> shift) & MASK);
+        final int index = bitmap.index(bit);
+        if ((bitmap.bitmap & bit) == 0) {
+            added[0] = true;
+            return bitmap.insert(bit, index, leaf);
+        }
+        final Object child = bitmap.slots[index];
+        final Object newChild = plus(child, shift + BITS, leaf, added);
+        return newChild == child ? bitmap : bitmap.replace(index, newChild);
+    }
+
+    /**
+     * Make a node holding an existing node and a leaf with a different hash,
+     * both of which belong at this shift.
+     */
+    private static Object branch(int shift, Object node, int nodeHash, Leaf leaf) {
+        final int nodeBits = (nodeHash >>> shift) & MASK;
+        final int leafBits = (leaf.hash >>> shift) & MASK;
+        if (nodeBits == leafBits) {
+            return new Bitmap(1 << nodeBits, new Object[] { branch(shift + BITS, node, nodeHash, leaf) });
+        }
+        final Object[] slots = nodeBits < leafBits ? new Object[] { node, leaf } : new Object[] { leaf, node };
+        return new Bitmap((1 << nodeBits) | (1 << leafBits), slots);
+    }
+
+    /**
+     * @return node without key, the same node if key is absent, a single Leaf
+     *         if only one entry remains below a non-root position, or null if
+     *         no entries remain
+     */
+    private static Object minus(Object node, int shift, int hash, Object key) {
+        if (node instanceof Leaf) {
+            final Leaf leaf = (Leaf) node;
+            return leaf.hash == hash && leaf.key.equals(key) ? null : leaf;
+        }
+        if (node instanceof Collision) {
+            final Collision collision = (Collision) node;
+            return collision.hash == hash ? collision.minus(key) : collision;
+        }
+        final Bitmap bitmap = (Bitmap) node;
+        final int bit = 1 << ((hash >>> shift) & MASK);
+        if ((bitmap.bitmap & bit) == 0) {
+            return bitmap;
+        }
+        final int index = bitmap.index(bit);
+        final Object child = bitmap.slots[index];
+        final Object newChild = minus(child, shift + BITS, hash, key);
+        if (newChild == child) {
+            return bitmap;
+        }
+        if (newChild != null) {
+            return bitmap.replace(index, newChild);
+        }
+        if (bitmap.slots.length == 1) {
+            return null;
+        }
+        final Bitmap smaller = bitmap.delete(bit, index);
+        if (shift > 0 && smaller.slots.length == 1 && smaller.slots[0] instanceof Leaf) {
+            return smaller.slots[0];
+        }
+        return smaller;
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new AbstractSet<Map.Entry<K, V>>() {
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public Iterator<Map.Entry<K, V>> iterator() {
+                return new EntryIterator();
+            }
+        };
+    }
+
+    /** A key-value pair, with the key's hash code cached. Immutable. */
+    private static final class Leaf extends AbstractMap.SimpleImmutableEntry<Object, Object> {
+
+        private static final long serialVersionUID = 1L;
+
+        final Object key;
+        final Object value;
+        final int hash;
+
+        Leaf(Object key, Object value) {
+            super(key, value);
+            this.key = key;
+            this.value = value;
+            this.hash = key.hashCode();
+        }
+    }
+
+    /** Interior node: the slots present in the bitmap, in bit order. Immutable. */
+    private static final class Bitmap {
+
+        final int bitmap;
+        final Object[] slots;
+
+        Bitmap(int bitmap, Object[] slots) {
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+
+        int index(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        Bitmap insert(int bit, int index, Object slot) {
+            final Object[] copy = new Object[slots.length + 1];
+            System.arraycopy(slots, 0, copy, 0, index);
+            copy[index] = slot;
+            System.arraycopy(slots, index, copy, index + 1, slots.length - index);
+            return new Bitmap(bitmap | bit, copy);
+        }
+
+        Bitmap replace(int index, Object slot) {
+            final Object[] copy = slots.clone();
+            copy[index] = slot;
+            return new Bitmap(bitmap, copy);
+        }
+
+        Bitmap delete(int bit, int index) {
+            final Object[] copy = new Object[slots.length - 1];
+            System.arraycopy(slots, 0, copy, 0, index);
+            System.arraycopy(slots, index + 1, copy, index, slots.length - index - 1);
+            return new Bitmap(bitmap & ~bit, copy);
+        }
+    }
+
+    /** Leaves whose keys have the same hash code. Immutable. */
+    private static final class Collision {
+
+        final int hash;
+        final Leaf[] leaves;
+
+        Collision(int hash, Leaf[] leaves) {
+            this.hash = hash;
+            this.leaves = leaves;
+        }
+
+        Object get(Object key) {
+            for (Leaf leaf : leaves) {
+                if (leaf.key.equals(key)) {
+                    return leaf.value;
+                }
+            }
+            return null;
+        }
+
+        Object plus(Leaf leaf, boolean[] added) {
+            for (int i = 0; i < leaves.length; i++) {
+                if (leaves[i].key.equals(leaf.key)) {
+                    if (leaves[i].value.equals(leaf.value)) {
+                        return this;
+                    }
+                    final Leaf[] copy = leaves.clone();
+                    copy[i] = leaf;
+                    return new Collision(hash, copy);
+                }
+            }
+            added[0] = true;
+            final Leaf[] copy = new Leaf[leaves.length + 1];
+            System.arraycopy(leaves, 0, copy, 0, leaves.length);
+            copy[leaves.length] = leaf;
+            return new Collision(hash, copy);
+        }
+
+        Object minus(Object key) {
+            for (int i = 0; i < leaves.length; i++) {
+                if (leaves[i].key.equals(key)) {
+                    if (leaves.length == 2) {
+                        return leaves[1 - i];
+                    }
+                    final Leaf[] copy = new Leaf[leaves.length - 1];
+                    System.arraycopy(leaves, 0, copy, 0, i);
+                    System.arraycopy(leaves, i + 1, copy, i, leaves.length - i - 1);
+                    return new Collision(hash, copy);
+                }
+            }
+            return this;
+        }
+    }
+
+    /** Depth-first iterator over the leaves of the trie. */
+    private final class EntryIterator implements Iterator<Map.Entry<K, V>> {
+
+        private final Deque<Object[]> arrays = new ArrayDeque<>();
+        private final Deque<Integer> positions = new ArrayDeque<>();
+        private Leaf next;
+
+        EntryIterator() {
+            if (root != null) {
+                arrays.push(new Object[] { root });
+                positions.push(0);
+            }
+            advance();
+        }
+
+        private void advance() {
+            next = null;
+            while (next == null && !arrays.isEmpty()) {
+                final Object[] array = arrays.peek();
+                final int position = positions.pop();
+                if (position == array.length) {
+                    arrays.pop();
+                    continue;
+                }
+                positions.push(position + 1);
+                final Object node = array[position];
+                if (node instanceof Leaf) {
+                    next = (Leaf) node;
+                } else if (node instanceof Collision) {
+                    arrays.push(((Collision) node).leaves);
+                    positions.push(0);
+                } else {
+                    arrays.push(((Bitmap) node).slots);
+                    positions.push(0);
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Map.Entry<K, V> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            final Leaf current = next;
+            advance();
+            return (Map.Entry<K, V>) (Map.Entry<?, ?>) current;
+        }
+    }
+}
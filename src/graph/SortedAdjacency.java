@@ -0,0 +1,230 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A frozen copy of a graph's edges with every vertex's neighbors sorted by
+ * decreasing weight.
+ * 
+ * <p>Supports top-k neighbor queries that touch only k edges, and a
+ * best-bridge search (the vertex b maximizing weight(a -> b) + weight(b -> c))
+ * that reads both neighbor lists in decreasing weight order and stops as soon
+ * as no unread vertex can beat the best one found, in the manner of Fagin's
+ * threshold algorithm.
+ * 
+ * <p>Immutable; later changes to the source graph are not reflected.
+ *
+ * @param <L> type of vertex labels, must be immutable
+ */
+public class SortedAdjacency<L> {
+
+    private final Map<L, Neighbors<L>> out;
+    private final Map<L, Neighbors<L>> in;
+
+    // Abstraction function:
+    //   AF(out, in) = the weighted directed graph with an edge a -> b of weight w
+    //     iff out.get(a) lists b with weight w, iff in.get(b) lists a with weight w.
+    // Representation invariant:
+    //   - out and in describe the same edges, as above
+    //   - no Neighbors object is empty (vertices without neighbors are absent)
+    // Safety from rep exposure:
+    //   - All fields are private and final; Neighbors arrays are never returned.
+    //   - Query results are new maps.
+
+    private SortedAdjacency(Map<L, Neighbors<L>> out, Map<L, Neighbors<L>> in) {
+        this.out = out;
+        this.in = in;
+        checkRep();
+    }
+
+    /**
+     * Freeze the edges of a graph.
+     * 
+     * @param <L> type of vertex labels
+     * @param graph graph to copy
+     * @return sorted adjacency of graph's current edges
+     */
+    public static <L> SortedAdjacency<L> of(Graph<L> graph) {
+        final Map<L, Map<L, Integer>> sources = new HashMap<>();
+        final Map<L, Neighbors<L>> out = new HashMap<>();
+        for (L source : graph.vertices()) {
+            final Map<L, Integer> targets = graph.targets(source);
+            if (!targets.isEmpty()) {
+                out.put(source, new Neighbors<>(targets));
+            }
+            for (Map.Entry<L, Integer> edge : targets.entrySet()) {
+                sources.computeIfAbsent(edge.getKey(), target -> new HashMap<>()).put(source, edge.getValue());
+            }
+        }
+        final Map<L, Neighbors<L>> in = new HashMap<>();
+        for (Map.Entry<L, Map<L, Integer>> entry : sources.entrySet()) {
+            in.put(entry.getKey(), new Neighbors<>(entry.getValue()));
+        }
+        return new SortedAdjacency<>(out, in);
+    }
+
+    private void checkRep() {
+        long outEdges = 0;
+        for (Neighbors<L> neighbors : out.values()) {
+            assert neighbors.size() > 0 : "Empty neighbor list";
+            outEdges += neighbors.size();
+        }
+        long inEdges = 0;
+        for (Neighbors<L> neighbors : in.values()) {
+            assert neighbors.size() > 0 : "Empty neighbor list";
+            inEdges += neighbors.size();
+        }
+        assert outEdges == inEdges : "Out and in adjacency disagree";
+    }
+
+    /**
+     * Get the heaviest edges out of a vertex.
+     * 
+     * @param source a vertex label
+     * @param k maximum number of edges to return, k >= 0
+     * @return map from the targets of the (at most) k heaviest edges out of
+     *         source to their weights, iterating in order of decreasing weight;
+     *         among equal weights, which edges are returned is unspecified
+     */
+    public Map<L, Integer> topTargets(L source, int k) {
+        return top(out.get(source), k);
+    }
+
+    /**
+     * Get the heaviest edges into a vertex.
+     * 
+     * @param target a vertex label
+     * @param k maximum number of edges to return, k >= 0
+     * @return map from the sources of the (at most) k heaviest edges into
+     *         target to their weights, iterating in order of decreasing weight;
+     *         among equal weights, which edges are returned is unspecified
+     */
+    public Map<L, Integer> topSources(L target, int k) {
+        return top(in.get(target), k);
+    }
+
+    private static <L> Map<L, Integer> top(Neighbors<L> neighbors, int k) {
+        if (k < 0) throw new IllegalArgumentException("k must be non-negative");
+        final Map<L, Integer> result = new LinkedHashMap<>();
+        if (neighbors == null) {
+            return result;
+        }
+        for (int i = 0; i < Math.min(k, neighbors.size()); i++) {
+            result.put(neighbors.label(i), neighbors.weight(i));
+        }
+        return result;
+    }
+
+    /**
+     * Find the heaviest two-edge path between two vertices.
+     * 
+     * @param first start of the path
+     * @param second end of the path
+     * @param ties order used to choose among bridges of equal path weight
+     * @return the vertex b maximizing weight(first -> b) + weight(b -> second),
+     *         smallest according to ties among equally heavy ones, or null if
+     *         there is no two-edge path from first to second
+     */
+    public L bestBridge(L first, L second, Comparator<? super L> ties) {
+        final Neighbors<L> fromFirst = out.get(first);
+        final Neighbors<L> toSecond = in.get(second);
+        if (fromFirst == null || toSecond == null) {
+            return null;
+        }
+        L best = null;
+        long bestWeight = 0;
+        int i = 0;
+        int j = 0;
+        // Any vertex present in both lists has been seen once either list is
+        // exhausted, so the search can stop there.
+        while (i < fromFirst.size() && j < toSecond.size()) {
+            final long threshold = (long) fromFirst.weight(i) + toSecond.weight(j);
+            if (best != null && bestWeight > threshold) {
+                break;
+            }
+            final L viaOut = fromFirst.label(i);
+            final int inWeight = toSecond.weightOf(viaOut);
+            if (inWeight > 0) {
+                final long total = (long) fromFirst.weight(i) + inWeight;
+                if (total > bestWeight || (total == bestWeight && ties.compare(viaOut, best) < 0)) {
+                    best = viaOut;
+                    bestWeight = total;
+                }
+            }
+            i++;
+            final L viaIn = toSecond.label(j);
+            final int outWeight = fromFirst.weightOf(viaIn);
+            if (outWeight > 0) {
+                final long total = (long) outWeight + toSecond.weight(j);
+                if (total > bestWeight || (total == bestWeight && ties.compare(viaIn, best) < 0)) {
+                    best = viaIn;
+                    bestWeight = total;
+                }
+            }
+            j++;
+        }
+        return best;
+    }
+
+    @Override
+    public String toString() {
+        return "SortedAdjacency(" + out.size() + " sources, " + in.size() + " targets)";
+    }
+
+    /**
+     * The neighbors of one vertex, sorted by decreasing weight, with a hash
+     * index for looking up the weight of a given neighbor.
+     * 
+     * <p>Immutable.
+     */
+    private static class Neighbors<L> {
+
+        private final Object[] labels;
+        private final int[] weights;
+        private final Map<L, Integer> index;
+
+        // Abstraction function:
+        //   AF(labels, weights, index) = the neighbors labels[i] with edge
+        //     weights weights[i]; index maps each labels[i] to weights[i].
+        // Representation invariant:
+        //   - labels.length == weights.length == index.size()
+        //   - weights is non-increasing and all weights > 0
+        // Safety from rep exposure:
+        //   - All fields are private and final; arrays and index are never returned.
+
+        Neighbors(Map<L, Integer> edges) {
+            final List<Map.Entry<L, Integer>> sorted = new ArrayList<>(edges.entrySet());
+            Collections.sort(sorted, (a, b) -> Integer.compare(b.getValue(), a.getValue()));
+            this.labels = new Object[sorted.size()];
+            this.weights = new int[sorted.size()];
+            for (int i = 0; i < sorted.size(); i++) {
+                labels[i] = sorted.get(i).getKey();
+                weights[i] = sorted.get(i).getValue();
+            }
+            this.index = new HashMap<>(edges);
+        }
+
+        int size() {
+            return weights.length;
+        }
+
+        @SuppressWarnings("unchecked")
+        L label(int i) {
+            return (L) labels[i];
+        }
+
+        int weight(int i) {
+            return weights[i];
+        }
+
+        int weightOf(L label) {
+            return index.getOrDefault(label, 0);
+        }
+    }
+}
@@ -0,0 +1,326 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * A Graph that readers can query without locks while writers change it,
+ * using multi-version concurrency control.
+ * 
+ * <p>Every committed change publishes a new immutable {@link Snapshot} of the
+ * whole graph. Snapshots are built from persistent hash maps, so a change
+ * copies only the O(log n) map nodes on the paths it touches and shares the
+ * rest with the previous version. Queries on the VersionedGraph itself read
+ * the latest snapshot; snapshot() pins one, so a sequence of queries sees a
+ * single consistent version even while writers keep going. update() commits
+ * a batch of changes as one version, so readers see all of it or none, as do
+ * removeAll() and retainIf(); every snapshot keeps an index of in-edges, so
+ * those visit only the edges of the removed vertices.
+ * Maps and sets returned by queries are immutable and never change.
+ * 
+ * <p>Threadsafe. Writers are serialized; readers never block.
+ *
+ * @param <L> type of vertex labels in this graph, must be immutable
+ */
+public class VersionedGraph<L> implements Graph<L>, BulkRemovable<L> {
+
+    private volatile Snapshot<L> current = new Snapshot<>(0, PersistentMap.empty(), PersistentMap.empty());
+
+    // Abstraction function:
+    //   AF(current) = AF(current)
+    // Representation invariant:
+    //   - each published snapshot's version is one more than the previous one's
+    // Safety from rep exposure:
+    //   - 'current' is private; the snapshots it refers to are immutable, so
+    //     handing them (or their maps) out is safe.
+    // Thread safety argument:
+    //   - 'current' is volatile and snapshots are immutable, so readers see a
+    //     complete snapshot without locking.
+    //   - writers hold the lock on this while building and publishing the
+    //     next snapshot, so no change is lost.
+
+    /**
+     * @return the latest snapshot, which later changes to this graph do not affect
+     */
+    public Snapshot<L> snapshot() {
+        return current;
+    }
+
+    /**
+     * Apply a batch of changes and publish them as a single version.
+     * 
+     * @param changes mutates the graph it is given, which starts equal to this
+     *        graph and must not be used after changes returns; if it throws,
+     *        none of its changes are published
+     * @return the snapshot published, or the current one if nothing changed
+     */
+    public synchronized Snapshot<L> update(Consumer<Graph<L>> changes) {
+        final Writer<L> writer = new Writer<>(current);
+        changes.accept(writer);
+        return publish(writer);
+    }
+
+    private Snapshot<L> publish(Writer<L> writer) {
+        final Snapshot<L> next = writer.finish();
+        if (next != null) {
+            current = next;
+        }
+        return current;
+    }
+
+    @Override
+    public synchronized boolean add(L vertex) {
+        final Writer<L> writer = new Writer<>(current);
+        final boolean added = writer.add(vertex);
+        publish(writer);
+        return added;
+    }
+
+    @Override
+    public synchronized int set(L source, L target, int weight) {
+        final Writer<L> writer = new Writer<>(current);
+        final int previous = writer.set(source, target, weight);
+        publish(writer);
+        return previous;
+    }
+
+    @Override
+    public synchronized boolean remove(L vertex) {
+        final Writer<L> writer = new Writer<>(current);
+        final boolean removed = writer.remove(vertex);
+        publish(writer);
+        return removed;
+    }
+
+    @Override
+    public synchronized int removeAll(Collection<? extends L> vertices) {
+        final Writer<L> writer = new Writer<>(current);
+        int removed = 0;
+        for (L vertex : vertices) {
+            removed += writer.remove(vertex) ? 1 : 0;
+        }
+        publish(writer);
+        return removed;
+    }
+
+    @Override
+    public synchronized int retainIf(Predicate<? super L> keep) {
+        final List<L> victims = new ArrayList<>();
+        for (L vertex : current.vertices()) {
+            if (!keep.test(vertex)) {
+                victims.add(vertex);
+            }
+        }
+        return removeAll(victims);
+    }
+
+    @Override
+    public Set<L> vertices() {
+        return current.vertices();
+    }
+
+    @Override
+    public Map<L, Integer> sources(L target) {
+        return current.sources(target);
+    }
+
+    @Override
+    public Map<L, Integer> targets(L source) {
+        return current.targets(source);
+    }
+
+    @Override
+    public String toString() {
+        return current.toString();
+    }
+
+    /**
+     * One immutable version of a VersionedGraph.
+     * 
+     * <p>Implements the Graph observers; the mutators throw
+     * UnsupportedOperationException.
+     *
+     * @param <L> type of vertex labels, must be immutable
+     */
+    public static final class Snapshot<L> implements Graph<L> {
+
+        private final long version;
+        private final PersistentMap<L, PersistentMap<L, Integer>> out;
+        private final PersistentMap<L, PersistentMap<L, Integer>> in;
+
+        // Abstraction function:
+        //   AF(version, out, in) = version number 'version' of a graph whose
+        //     vertices are the keys of out, with an edge s -> t of weight w iff
+        //     out.get(s).get(t) == w.
+        // Representation invariant:
+        //   - out and in have the same keys
+        //   - out.get(s).get(t) == w iff in.get(t).get(s) == w, and w > 0
+        // Safety from rep exposure:
+        //   - All fields are private, final and immutable.
+
+        private Snapshot(long version, PersistentMap<L, PersistentMap<L, Integer>> out,
+                PersistentMap<L, PersistentMap<L, Integer>> in) {
+            this.version = version;
+            this.out = out;
+            this.in = in;
+        }
+
+        /**
+         * @return number of changes committed before this version
+         */
+        public long version() {
+            return version;
+        }
+
+        @Override
+        public boolean add(L vertex) {
+            throw new UnsupportedOperationException("Snapshots are immutable");
+        }
+
+        @Override
+        public int set(L source, L target, int weight) {
+            throw new UnsupportedOperationException("Snapshots are immutable");
+        }
+
+        @Override
+        public boolean remove(L vertex) {
+            throw new UnsupportedOperationException("Snapshots are immutable");
+        }
+
+        @Override
+        public Set<L> vertices() {
+            return Collections.unmodifiableSet(out.keySet());
+        }
+
+        @Override
+        public Map<L, Integer> sources(L target) {
+            return in.getOrDefault(target, PersistentMap.empty());
+        }
+
+        @Override
+        public Map<L, Integer> targets(L source) {
+            return out.getOrDefault(source, PersistentMap.empty());
+        }
+
+        @Override
+        public String toString() {
+            final StringBuilder result = new StringBuilder("Version ").append(version).append(":\n");
+            for (Map.Entry<L, PersistentMap<L, Integer>> entry : out.entrySet()) {
+                result.append(entry.getKey()).append(" -> ").append(entry.getValue()).append("\n");
+            }
+            return result.toString();
+        }
+    }
+
+    /**
+     * Builds the next version from a base snapshot. Not threadsafe; used by
+     * one writer holding the graph's lock.
+     */
+    private static final class Writer<L> implements Graph<L> {
+
+        private final Snapshot<L> base;
+        private PersistentMap<L, PersistentMap<L, Integer>> out;
+        private PersistentMap<L, PersistentMap<L, Integer>> in;
+        private boolean finished = false;
+
+        // Abstraction function:
+        //   AF(base, out, in) = the graph with vertices out.keySet() and edges
+        //     as in Snapshot, about to become the version after base.
+        // Representation invariant:
+        //   - out and in satisfy Snapshot's invariant
+        // Safety from rep exposure:
+        //   - Fields are private; returned maps are immutable.
+
+        Writer(Snapshot<L> base) {
+            this.base = base;
+            this.out = base.out;
+            this.in = base.in;
+        }
+
+        /**
+         * @return the next version, or null if nothing changed
+         */
+        Snapshot<L> finish() {
+            finished = true;
+            if (out == base.out && in == base.in) {
+                return null;
+            }
+            return new Snapshot<>(base.version + 1, out, in);
+        }
+
+        private void checkOpen() {
+            if (finished) throw new IllegalStateException("Update already committed");
+        }
+
+        @Override
+        public boolean add(L vertex) {
+            checkOpen();
+            if (out.containsKey(vertex)) {
+                return false;
+            }
+            out = out.plus(vertex, PersistentMap.empty());
+            in = in.plus(vertex, PersistentMap.empty());
+            return true;
+        }
+
+        @Override
+        public int set(L source, L target, int weight) {
+            checkOpen();
+            if (weight < 0) throw new IllegalArgumentException("Weight must be non-negative");
+            add(source);
+            add(target);
+            final PersistentMap<L, Integer> sourceOut = out.get(source);
+            final int previous = sourceOut.getOrDefault(target, 0);
+            if (weight == 0) {
+                if (previous != 0) {
+                    out = out.plus(source, sourceOut.minus(target));
+                    in = in.plus(target, in.get(target).minus(source));
+                }
+            } else if (weight != previous) {
+                out = out.plus(source, sourceOut.plus(target, weight));
+                in = in.plus(target, in.get(target).plus(source, weight));
+            }
+            return previous;
+        }
+
+        @Override
+        public boolean remove(L vertex) {
+            checkOpen();
+            final PersistentMap<L, Integer> vertexOut = out.get(vertex);
+            if (vertexOut == null) {
+                return false;
+            }
+            final PersistentMap<L, Integer> vertexIn = in.get(vertex);
+            for (L target : vertexOut.keySet()) {
+                in = in.plus(target, in.get(target).minus(vertex));
+            }
+            for (L source : vertexIn.keySet()) {
+                out = out.plus(source, out.get(source).minus(vertex));
+            }
+            out = out.minus(vertex);
+            in = in.minus(vertex);
+            return true;
+        }
+
+        @Override
+        public Set<L> vertices() {
+            return Collections.unmodifiableSet(out.keySet());
+        }
+
+        @Override
+        public Map<L, Integer> sources(L target) {
+            return in.getOrDefault(target, PersistentMap.empty());
+        }
+
+        @Override
+        public Map<L, Integer> targets(L source) {
+            return out.getOrDefault(source, PersistentMap.empty());
+        }
+    }
+}
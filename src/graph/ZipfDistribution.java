@@ -0,0 +1,117 @@
+package graph;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.SplittableRandom;
+
+/**
+ * A Zipf distribution over the ranks 0 .. n-1: rank r is drawn with
+ * probability proportional to 1 / (r + 1)^exponent.
+ * 
+ * <p>Sampling uses Vose's alias method, so each draw costs one random int, one
+ * random double and two array reads regardless of n. Given the same
+ * SplittableRandom seed, the sequence of draws is the same on every JVM.
+ * 
+ * <p>Immutable and threadsafe; the caller supplies the random source.
+ */
+public class ZipfDistribution {
+
+    private final double exponent;
+    private final double total;
+    private final double[] threshold;
+    private final int[] alias;
+
+    // Abstraction function:
+    //   AF(exponent, total, threshold, alias) = the Zipf distribution with the given
+    //     exponent over ranks 0 .. threshold.length-1; column i of the alias
+    //     table yields i with probability threshold[i] and alias[i] otherwise.
+    // Representation invariant:
+    //   - threshold.length == alias.length >= 1
+    //   - 0 <= threshold[i] <= 1, 0 <= alias[i] < alias.length
+    //   - exponent >= 0; total is the sum of weight(r) over all ranks r
+    // Safety from rep exposure:
+    //   - All fields are private and final, and arrays are never returned.
+
+    /**
+     * Create a Zipf distribution.
+     * 
+     * @param n number of ranks, >= 1
+     * @param exponent skew, >= 0; 0 is uniform, about 1 is natural-language text
+     */
+    public ZipfDistribution(int n, double exponent) {
+        if (n < 1) throw new IllegalArgumentException("Need at least one rank");
+        if (!(exponent >= 0)) throw new IllegalArgumentException("Bad exponent: " + exponent);
+        this.exponent = exponent;
+        this.threshold = new double[n];
+        this.alias = new int[n];
+        double sum = 0;
+        for (int rank = 0; rank < n; rank++) {
+            sum += weight(rank);
+        }
+        this.total = sum;
+        final Deque<Integer> small = new ArrayDeque<>();
+        final Deque<Integer> large = new ArrayDeque<>();
+        for (int rank = 0; rank < n; rank++) {
+            threshold[rank] = weight(rank) * n / total;
+            (threshold[rank] < 1 ? small : large).push(rank);
+        }
+        while (!small.isEmpty() && !large.isEmpty()) {
+            final int less = small.pop();
+            final int more = large.pop();
+            alias[less] = more;
+            threshold[more] -= 1 - threshold[less];
+            (threshold[more] < 1 ? small : large).push(more);
+        }
+        // left-overs are 1 up to rounding error
+        for (int rank : small) {
+            threshold[rank] = 1;
+            alias[rank] = rank;
+        }
+        for (int rank : large) {
+            threshold[rank] = 1;
+            alias[rank] = rank;
+        }
+        checkRep();
+    }
+
+    private void checkRep() {
+        assert threshold.length == alias.length && threshold.length >= 1 : "Bad table size";
+        assert exponent >= 0 : "Bad exponent";
+    }
+
+    private double weight(int rank) {
+        // StrictMath, not Math: Math.pow may differ by an ulp between JVMs
+        return 1 / StrictMath.pow(rank + 1, exponent);
+    }
+
+    /**
+     * @return number of ranks
+     */
+    public int size() {
+        return threshold.length;
+    }
+
+    /**
+     * @param rank a rank, 0 <= rank < size()
+     * @return probability of drawing rank
+     */
+    public double probability(int rank) {
+        return weight(rank) / total;
+    }
+
+    /**
+     * Draw a rank.
+     * 
+     * @param random source of randomness; advanced by two draws
+     * @return a rank in 0 .. size()-1
+     */
+    public int sample(SplittableRandom random) {
+        final int column = random.nextInt(threshold.length);
+        return random.nextDouble() < threshold[column] ? column : alias[column];
+    }
+
+    @Override
+    public String toString() {
+        return "Zipf(" + threshold.length + ", " + exponent + ")";
+    }
+}
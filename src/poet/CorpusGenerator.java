@@ -0,0 +1,162 @@
+package poet;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.SplittableRandom;
+
+import graph.GraphGenerator;
+import graph.ZipfDistribution;
+
+/**
+ * Deterministic generator of synthetic text corpora for benchmarks and load
+ * tests.
+ * 
+ * <p>A generated corpus is a stream of words drawn independently from a Zipf
+ * distribution over a fixed vocabulary; the word of rank r is
+ * GraphGenerator.label(r), so frequent words are short. Words are separated by
+ * single spaces, with a newline after every lineWords words. The same
+ * arguments always generate the same text, and text is written as it is
+ * generated, so corpora much larger than the heap can be produced.
+ * 
+ * <p>Immutable.
+ */
+public class CorpusGenerator {
+
+    private final ZipfDistribution zipf;
+    private final String[] words;
+    private final int lineWords;
+    private final long seed;
+
+    // Abstraction function:
+    //   AF(zipf, words, lineWords, seed) = the infinite text whose i-th word is
+    //     words[r_i], where r_0, r_1, ... are zipf's draws from a
+    //     SplittableRandom seeded with seed, broken into lines of lineWords words.
+    // Representation invariant:
+    //   - words.length == zipf.size(); words[r] == GraphGenerator.label(r)
+    //   - lineWords >= 1
+    // Safety from rep exposure:
+    //   - All fields are private and final; words is never returned.
+
+    /**
+     * Create a corpus generator.
+     * 
+     * @param vocabulary number of distinct words, >= 1
+     * @param exponent Zipf exponent, >= 0; about 1 is natural-language text
+     * @param lineWords words per line, >= 1
+     * @param seed random seed
+     */
+    public CorpusGenerator(int vocabulary, double exponent, int lineWords, long seed) {
+        if (lineWords < 1) throw new IllegalArgumentException("Need at least one word per line");
+        this.zipf = new ZipfDistribution(vocabulary, exponent);
+        this.words = new String[vocabulary];
+        for (int rank = 0; rank < vocabulary; rank++) {
+            words[rank] = GraphGenerator.label(rank);
+        }
+        this.lineWords = lineWords;
+        this.seed = seed;
+        checkRep();
+    }
+
+    private void checkRep() {
+        assert words.length == zipf.size() : "Vocabulary size mismatch";
+        assert lineWords >= 1 : "Bad line length";
+    }
+
+    /**
+     * Write the start of the generated text.
+     * 
+     * @param out where to write; not closed
+     * @param bytes size of text to write: words are written until at least
+     *        this many characters (all ASCII) have been written, then a final
+     *        newline
+     * @return number of words written
+     * @throws IOException if out cannot be written
+     */
+    public long write(Writer out, long bytes) throws IOException {
+        final SplittableRandom random = new SplittableRandom(seed);
+        long written = 0;
+        long count = 0;
+        while (written < bytes) {
+            final String word = words[zipf.sample(random)];
+            count++;
+            final char separator = count % lineWords == 0 ? '\n' : ' ';
+            out.write(word);
+            out.write(separator);
+            written += word.length() + 1;
+        }
+        if (count % lineWords != 0) {
+            out.write('\n');
+        }
+        return count;
+    }
+
+    /**
+     * Write the start of the generated text to a file.
+     * 
+     * @param file file to create or overwrite
+     * @param bytes as for write(Writer, long)
+     * @return number of words written
+     * @throws IOException if file cannot be written
+     */
+    public long write(File file, long bytes) throws IOException {
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                Files.newOutputStream(file.toPath()), StandardCharsets.US_ASCII), 1 << 16)) {
+            return write(out, bytes);
+        }
+    }
+
+    /**
+     * Generate a corpus file.
+     * 
+     * @param args output file and size, with an optional k, m or g suffix
+     *        (e.g. 64m or 10g), then optionally: vocabulary size (default
+     *        100000), Zipf exponent (default 1.0), words per line (default 12),
+     *        random seed (default 1)
+     * @throws IOException if the file cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: CorpusGenerator file size [vocabulary] [exponent] [lineWords] [seed]");
+            System.exit(2);
+        }
+        final File file = new File(args[0]);
+        final long bytes = parseSize(args[1]);
+        final int vocabulary = args.length > 2 ? Integer.parseInt(args[2]) : 100_000;
+        final double exponent = args.length > 3 ? Double.parseDouble(args[3]) : 1.0;
+        final int lineWords = args.length > 4 ? Integer.parseInt(args[4]) : 12;
+        final long seed = args.length > 5 ? Long.parseLong(args[5]) : 1;
+        
+        final long start = System.nanoTime();
+        final long count = new CorpusGenerator(vocabulary, exponent, lineWords, seed).write(file, bytes);
+        System.out.printf("wrote %d words, %d bytes to %s in %d ms%n",
+                count, file.length(), file, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * @param size a non-negative number with an optional k, m or g suffix (powers of 1024)
+     * @return size in bytes
+     */
+    static long parseSize(String size) {
+        final String lower = size.trim().toLowerCase();
+        final int shift;
+        switch (lower.isEmpty() ? ' ' : lower.charAt(lower.length() - 1)) {
+        case 'k': shift = 10; break;
+        case 'm': shift = 20; break;
+        case 'g': shift = 30; break;
+        default: shift = 0; break;
+        }
+        final long number = Long.parseLong(shift == 0 ? lower : lower.substring(0, lower.length() - 1));
+        if (number < 0) throw new IllegalArgumentException("Negative size: " + size);
+        return number << shift;
+    }
+
+    @Override
+    public String toString() {
+        return "CorpusGenerator(" + zipf + ", " + lineWords + " words per line, seed " + seed + ")";
+    }
+}
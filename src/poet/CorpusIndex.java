@@ -0,0 +1,142 @@
+package poet;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An inverted index from words to their positions in a corpus.
+ * 
+ * <p>Words are interned to dense int ids; the corpus is kept as one int per
+ * word, and the positions of each word are stored contiguously in one shared
+ * int array (compressed sparse row layout), so the whole index costs about
+ * eight bytes per corpus word plus the vocabulary.
+ * From it, the followers or predecessors of any one word, with the number of
+ * times each occurs next to it, can be counted without building an affinity
+ * graph for the whole corpus.
+ * 
+ * <p>Immutable.
+ */
+class CorpusIndex {
+
+    private final String[] vocabulary;
+    private final Map<String, Integer> ids;
+    private final int[] tokens;
+    private final int[] offsets;
+    private final int[] positions;
+
+    // Abstraction function:
+    //   AF(vocabulary, ids, tokens, offsets, positions) = the corpus whose i-th
+    //     word is vocabulary[tokens[i]]; the occurrences of word id w are at the
+    //     positions positions[offsets[w]] .. positions[offsets[w + 1] - 1].
+    // Representation invariant:
+    //   - ids.get(vocabulary[w]) == w for every id w, and ids has no other keys
+    //   - 0 <= tokens[i] < vocabulary.length
+    //   - offsets.length == vocabulary.length + 1, offsets[0] == 0,
+    //     offsets is non-decreasing and offsets[vocabulary.length] == tokens.length
+    //   - positions holds each index of tokens exactly once, ascending within
+    //     each word's range, and tokens[p] == w for each p in w's range
+    // Safety from rep exposure:
+    //   - All fields are private and final, and never returned.
+    //   - followers() and predecessors() return new maps.
+
+    /**
+     * Index a corpus.
+     * 
+     * @param words the words of the corpus in order, already lower case
+     */
+    CorpusIndex(String[] words) {
+        this.ids = new HashMap<>();
+        this.tokens = new int[words.length];
+        for (int i = 0; i < words.length; i++) {
+            Integer id = ids.get(words[i]);
+            if (id == null) {
+                id = ids.size();
+                ids.put(words[i], id);
+            }
+            tokens[i] = id;
+        }
+        this.vocabulary = new String[ids.size()];
+        for (Map.Entry<String, Integer> entry : ids.entrySet()) {
+            vocabulary[entry.getValue()] = entry.getKey();
+        }
+
+        this.offsets = new int[vocabulary.length + 1];
+        for (int token : tokens) {
+            offsets[token + 1]++;
+        }
+        for (int w = 0; w < vocabulary.length; w++) {
+            offsets[w + 1] += offsets[w];
+        }
+        this.positions = new int[tokens.length];
+        final int[] next = new int[vocabulary.length];
+        System.arraycopy(offsets, 0, next, 0, vocabulary.length);
+        for (int i = 0; i < tokens.length; i++) {
+            positions[next[tokens[i]]++] = i;
+        }
+        checkRep();
+    }
+
+    private void checkRep() {
+        assert offsets.length == vocabulary.length + 1 : "Offsets do not match vocabulary";
+        assert offsets[vocabulary.length] == tokens.length : "Positions do not cover the corpus";
+        assert ids.size() == vocabulary.length : "Vocabulary and ids differ";
+    }
+
+    /**
+     * @return number of distinct words in the corpus
+     */
+    int vocabularySize() {
+        return vocabulary.length;
+    }
+
+    /**
+     * @return number of words in the corpus
+     */
+    int length() {
+        return tokens.length;
+    }
+
+    /**
+     * Count the words that directly follow a word.
+     * 
+     * @param word a lower-case word
+     * @return map from each word that follows some occurrence of word in the
+     *         corpus to the number of times it does; empty if word is not in
+     *         the corpus
+     */
+    Map<String, Integer> followers(String word) {
+        return neighbors(word, 1);
+    }
+
+    /**
+     * Count the words that directly precede a word.
+     * 
+     * @param word a lower-case word
+     * @return map from each word that precedes some occurrence of word in the
+     *         corpus to the number of times it does; empty if word is not in
+     *         the corpus
+     */
+    Map<String, Integer> predecessors(String word) {
+        return neighbors(word, -1);
+    }
+
+    private Map<String, Integer> neighbors(String word, int step) {
+        final Map<String, Integer> counts = new HashMap<>();
+        final Integer id = ids.get(word);
+        if (id == null) {
+            return counts;
+        }
+        for (int i = offsets[id]; i < offsets[id + 1]; i++) {
+            final int neighbor = positions[i] + step;
+            if (neighbor >= 0 && neighbor < tokens.length) {
+                counts.merge(vocabulary[tokens[neighbor]], 1, Integer::sum);
+            }
+        }
+        return counts;
+    }
+
+    @Override
+    public String toString() {
+        return "CorpusIndex(" + tokens.length + " words, " + vocabulary.length + " distinct)";
+    }
+}
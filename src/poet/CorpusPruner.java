@@ -0,0 +1,157 @@
+package poet;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import graph.Graph;
+
+/**
+ * Loads the affinity graph of a corpus (as described in GraphPoet) without
+ * its rare words and light edges.
+ * 
+ * <p>The corpus is streamed from disk twice and never held in memory. The
+ * first pass counts every word exactly and, if light edges are to be dropped,
+ * every adjacency approximately in a count-min sketch. The second pass counts
+ * exactly only the adjacencies between frequent words that the sketch says
+ * may be heavy enough; since the sketch never underestimates, no heavy edge
+ * is missed. Only the surviving words and edges are ever added to the graph.
+ */
+final class CorpusPruner {
+
+    private CorpusPruner() {
+        throw new AssertionError("CorpusPruner is not instantiable");
+    }
+
+    /**
+     * Add the pruned affinity graph of a corpus to a graph.
+     * 
+     * <p>A word is kept if it occurs at least minWordCount times in the corpus.
+     * An edge w1 -> w2 is kept if w1 and w2 are both kept and w1 is followed by
+     * w2 at least minEdgeWeight times; its weight is that number, as in the
+     * unpruned graph. Adjacencies involving a dropped word are discarded, not
+     * bridged over.
+     * 
+     * @param corpus text file to read
+     * @param minWordCount smallest number of occurrences of a kept word, >= 1
+     * @param minEdgeWeight smallest weight of a kept edge, >= 1
+     * @param graph graph to add the kept words and edges to; modified
+     * @throws IOException if the corpus file cannot be found or read
+     */
+    static void load(File corpus, int minWordCount, int minEdgeWeight, Graph<String> graph) throws IOException {
+        if (minWordCount < 1) throw new IllegalArgumentException("minWordCount must be positive");
+        if (minEdgeWeight < 1) throw new IllegalArgumentException("minEdgeWeight must be positive");
+
+        // pass 1: exact word counts, approximate adjacency counts
+        final Map<String, Integer> ids = new HashMap<>();
+        final List<String> vocabulary = new ArrayList<>();
+        final int[][] counts = { new int[1024] };
+        final long corpusWords = Math.max(1, Files.size(corpus.toPath()) / 6);
+        final CountMinSketch sketch = minEdgeWeight <= 1 ? null : CountMinSketch.forItems(corpusWords);
+        final int[] previous = { -1 };
+        forEachWord(corpus, word -> {
+            Integer id = ids.get(word);
+            if (id == null) {
+                id = vocabulary.size();
+                ids.put(word, id);
+                vocabulary.add(word);
+                if (id == counts[0].length) {
+                    counts[0] = Arrays.copyOf(counts[0], id * 2);
+                }
+            }
+            counts[0][id]++;
+            if (sketch != null && previous[0] >= 0) {
+                sketch.add(key(previous[0], id));
+            }
+            previous[0] = id;
+        });
+
+        final boolean[] kept = new boolean[vocabulary.size()];
+        for (int id = 0; id < kept.length; id++) {
+            kept[id] = counts[0][id] >= minWordCount;
+            if (kept[id]) {
+                graph.add(vocabulary.get(id));
+            }
+        }
+
+        // pass 2: exact counts of candidate edges only
+        final CountTable edges = new CountTable(0);
+        previous[0] = -1;
+        forEachWord(corpus, word -> {
+            final int id = ids.get(word);
+            if (previous[0] >= 0 && kept[previous[0]] && kept[id]) {
+                final long key = key(previous[0], id);
+                if (sketch == null || sketch.estimate(key) >= minEdgeWeight) {
+                    edges.increment(key);
+                }
+            }
+            previous[0] = id;
+        });
+        edges.forEach((key, weight) -> {
+            if (weight >= minEdgeWeight) {
+                graph.set(vocabulary.get((int) (key >>> 32) - 1), vocabulary.get((int) key - 1), weight);
+            }
+        });
+    }
+
+    /**
+     * @return a non-zero key for the adjacency of two word ids
+     */
+    private static long key(int source, int target) {
+        return (long) (source + 1) << 32 | (target + 1);
+    }
+
+    /** Receives the words of a corpus. */
+    private interface WordVisitor {
+        void visit(String word) throws IOException;
+    }
+
+    /**
+     * Stream the words of a corpus, split and lower-cased as in GraphPoet.
+     * 
+     * @param corpus text file to read
+     * @param visitor called with each word in order
+     * @throws IOException if the corpus file cannot be found or read
+     */
+    private static void forEachWord(File corpus, WordVisitor visitor) throws IOException {
+        // decoded like new String(bytes): malformed input is replaced, not rejected
+        try (Reader in = new InputStreamReader(Files.newInputStream(corpus.toPath()), Charset.defaultCharset())) {
+            final char[] buffer = new char[1 << 16];
+            final StringBuilder partial = new StringBuilder();
+            for (int length = in.read(buffer); length >= 0; length = in.read(buffer)) {
+                int start = 0;
+                for (int i = 0; i < length; i++) {
+                    if (isSpace(buffer[i])) {
+                        if (partial.length() > 0) {
+                            visitor.visit(partial.append(buffer, start, i - start).toString().toLowerCase());
+                            partial.setLength(0);
+                        } else if (i > start) {
+                            visitor.visit(new String(buffer, start, i - start).toLowerCase());
+                        }
+                        start = i + 1;
+                    }
+                }
+                // a word may continue in the next buffer
+                partial.append(buffer, start, length - start);
+            }
+            if (partial.length() > 0) {
+                visitor.visit(partial.toString().toLowerCase());
+            }
+        }
+    }
+
+    /**
+     * @return true iff c matches the regular expression \s
+     */
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r';
+    }
+}
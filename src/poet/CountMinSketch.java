@@ -0,0 +1,104 @@
+package poet;
+
+/**
+ * A count-min sketch: approximate counts of long keys in fixed memory.
+ * 
+ * <p>Each key is counted in one cell of each of DEPTH rows of width cells,
+ * chosen by independent hashes; its estimate is the smallest of those cells.
+ * Estimates are never below the true count, and exceed it by at most
+ * e * total / width with probability at least 1 - e^-DEPTH.
+ * 
+ * <p>Mutable. Not threadsafe.
+ */
+class CountMinSketch {
+
+    private static final int DEPTH = 4;
+    /** Largest row forItems() builds, in cells: four rows of 4 MiB each. */
+    static final int MAX_WIDTH = 1 << 20;
+    private static final long[] SEEDS = {
+        0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L,
+    };
+
+    private final int[] cells;
+    private final int mask;
+
+    // Abstraction function:
+    //   AF(cells, mask) = a sketch whose row r is cells[r * (mask + 1) ..
+    //     (r + 1) * (mask + 1) - 1]; a key's count is the minimum over rows r
+    //     of its cell cell(r, key).
+    // Representation invariant:
+    //   - mask + 1 is a power of two; cells.length == DEPTH * (mask + 1)
+    //   - cells[i] >= 0
+    // Safety from rep exposure:
+    //   - All fields are private and final; cells is never returned.
+
+    /**
+     * Create an empty sketch.
+     * 
+     * @param width cells per row, rounded up to a power of two, >= 1
+     */
+    CountMinSketch(int width) {
+        int rounded = 1;
+        while (rounded < width) {
+            rounded <<= 1;
+        }
+        this.mask = rounded - 1;
+        this.cells = new int[DEPTH * rounded];
+    }
+
+    /**
+     * Create an empty sketch sized for counting a stream of keys: one cell per
+     * item, up to MAX_WIDTH cells per row.
+     * 
+     * @param items number of keys that will be added, >= 0
+     * @return an empty sketch of width min(MAX_WIDTH, max(1, items))
+     */
+    static CountMinSketch forItems(long items) {
+        return new CountMinSketch((int) Math.min(MAX_WIDTH, Math.max(1, items)));
+    }
+
+    /**
+     * Add one to the count of a key.
+     * 
+     * @param key key to count
+     */
+    void add(long key) {
+        for (int row = 0; row < DEPTH; row++) {
+            final int cell = cell(row, key);
+            if (cells[cell] != Integer.MAX_VALUE) {
+                cells[cell]++;
+            }
+        }
+    }
+
+    /**
+     * @param key key to look up
+     * @return an estimate of the number of times key was added, at least the true number
+     */
+    int estimate(long key) {
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            estimate = Math.min(estimate, cells[cell(row, key)]);
+        }
+        return estimate;
+    }
+
+    /**
+     * @return heap used by the sketch's cells, in bytes
+     */
+    long bytes() {
+        return 16 + 4L * cells.length;
+    }
+
+    private int cell(int row, long key) {
+        long z = (key + SEEDS[row]) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z ^= z >>> 31;
+        return row * (mask + 1) + ((int) z & mask);
+    }
+
+    @Override
+    public String toString() {
+        return "CountMinSketch(" + DEPTH + " x " + (mask + 1) + ")";
+    }
+}
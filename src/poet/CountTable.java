@@ -0,0 +1,171 @@
+package poet;
+
+/**
+ * A map from non-zero long keys to positive int counts, stored in two
+ * primitive arrays with open addressing and linear probing, so an entry costs
+ * twelve bytes divided by the load factor and no objects.
+ * 
+ * <p>Mutable. Not threadsafe for writers; safe for concurrent readers once no
+ * more writes happen.
+ */
+class CountTable {
+
+    private static final double MAX_LOAD = 0.6;
+
+    private long[] keys;
+    private int[] counts;
+    private int size = 0;
+
+    // Abstraction function:
+    //   AF(keys, counts) = the map from keys[i] to counts[i] for every i with
+    //     keys[i] != 0.
+    // Representation invariant:
+    //   - keys.length == counts.length, a power of two
+    //   - counts[i] > 0 iff keys[i] != 0; no key appears twice
+    //   - every key sits in the first empty-free probe run from its home slot
+    //   - size is the number of non-zero keys, size <= MAX_LOAD * keys.length
+    // Safety from rep exposure:
+    //   - All fields are private and arrays are never returned.
+
+    /**
+     * Create an empty table.
+     * 
+     * @param expected number of keys expected, >= 0
+     */
+    CountTable(int expected) {
+        int capacity = 16;
+        while (capacity * MAX_LOAD < expected) {
+            capacity <<= 1;
+        }
+        this.keys = new long[capacity];
+        this.counts = new int[capacity];
+    }
+
+    /**
+     * @return number of keys in the table
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @param key a non-zero key
+     * @return count of key, or 0 if absent
+     */
+    int get(long key) {
+        final int mask = keys.length - 1;
+        for (int slot = home(key, mask);; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return counts[slot];
+            }
+            if (keys[slot] == 0) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Add one to the count of a key.
+     * 
+     * @param key a non-zero key
+     */
+    void increment(long key) {
+        if (key == 0) throw new IllegalArgumentException("Key cannot be 0");
+        if (size + 1 > MAX_LOAD * keys.length) {
+            resize(keys.length << 1, 1);
+        }
+        final int mask = keys.length - 1;
+        for (int slot = home(key, mask);; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                counts[slot]++;
+                return;
+            }
+            if (keys[slot] == 0) {
+                keys[slot] = key;
+                counts[slot] = 1;
+                size++;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Drop every key whose count is below a threshold, and shrink the table
+     * to fit the remaining keys.
+     * 
+     * @param minCount smallest count to keep
+     */
+    void prune(int minCount) {
+        int kept = 0;
+        for (int count : counts) {
+            if (count >= minCount) {
+                kept++;
+            }
+        }
+        int capacity = 16;
+        while (capacity * MAX_LOAD < kept) {
+            capacity <<= 1;
+        }
+        resize(capacity, minCount);
+    }
+
+    /**
+     * Visit every key with its count, in no particular order.
+     * 
+     * @param visitor called once per key; must not modify this table
+     */
+    void forEach(Visitor visitor) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != 0) {
+                visitor.visit(keys[slot], counts[slot]);
+            }
+        }
+    }
+
+    /** Receives the entries of a CountTable. */
+    interface Visitor {
+        /**
+         * @param key a key of the table
+         * @param count its count, > 0
+         */
+        void visit(long key, int count);
+    }
+
+    /**
+     * @return heap used by the table's arrays, in bytes
+     */
+    long bytes() {
+        return 16 + 8L * keys.length + 16 + 4L * counts.length;
+    }
+
+    private void resize(int capacity, int minCount) {
+        final long[] oldKeys = keys;
+        final int[] oldCounts = counts;
+        keys = new long[capacity];
+        counts = new int[capacity];
+        size = 0;
+        final int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0 && oldCounts[i] >= minCount) {
+                int slot = home(oldKeys[i], mask);
+                while (keys[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                counts[slot] = oldCounts[i];
+                size++;
+            }
+        }
+    }
+
+    private static int home(long key, int mask) {
+        // scramble, so that keys packed from small ints do not cluster
+        final long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    @Override
+    public String toString() {
+        return "CountTable(" + size + " keys, " + bytes() + " bytes)";
+    }
+}
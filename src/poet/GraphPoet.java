@@ -5,8 +5,20 @@ package poet;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.IntStream;
 
 import graph.Graph;
+import graph.InstrumentedGraph;
+import graph.MappedGraph;
+import graph.SortedAdjacency;
 
 /**
  * A graph-based poetry generator.
@@ -44,6 +56,8 @@ import graph.Graph;
  * <p>the output poem would be:
  * <pre>    Test of the system.    </pre>
  * 
+ * <p>GraphPoet is threadsafe: poem() may be called from several threads at once.
+ * 
  * <p>PS2 instructions: this is a required ADT class, and you MUST NOT weaken
  * the required specifications. However, you MAY strengthen the specifications
  * and you MAY add additional methods.
@@ -52,14 +66,52 @@ import graph.Graph;
  */
 public class GraphPoet {
     
-    private final Graph<String> graph = Graph.empty();
+    /** Number of input words from which poem() resolves bridges in parallel. */
+    private static final int PARALLEL_THRESHOLD = 1 << 13;
+    /** Number of input words each parallel task handles. */
+    private static final int CHUNK_WORDS = 1 << 10;
+    
+    private final Graph<String> graph;
+    private final PoetMetrics metrics;
+    private final CorpusIndex index;
+    private final Set<String> targetsLoaded;
+    private final Set<String> sourcesLoaded;
+    private final SortedAdjacency<String> sorted;
+    private final NGramModel ngrams;
+    private final MappedGraph image;
     
     // Abstraction function:
-    //   TODO
+    //   AF(graph, metrics, index, targetsLoaded, sourcesLoaded) = a poet whose
+    //     word affinity graph is 'graph' if index == null; otherwise the graph
+    //     of the corpus indexed by 'index', of which 'graph' holds the outgoing
+    //     edges of the words in targetsLoaded and the incoming edges of the
+    //     words in sourcesLoaded. If metrics != null, poem() calls and graph
+    //     operations are recorded there. If sorted != null, it is a frozen
+    //     copy of graph used to search for bridges. If ngrams != null, bridges
+    //     are chosen by the longest context of the poem so far that ngrams has
+    //     seen before falling back to graph. If image != null, graph is image.
     // Representation invariant:
-    //   TODO
+    //   - every vertex of graph is a non-empty lower-case word without whitespace
+    //   - index, targetsLoaded and sourcesLoaded are all null or all non-null
+    //   - index == null or sorted == null
+    //   - ngrams == null or (index == null and sorted == null)
+    //   - image == null or (graph == image and metrics, index, sorted and
+    //     ngrams are all null)
+    //   - if sorted != null, it has exactly the edges of graph
+    //   - for w in targetsLoaded, graph.targets(w) equals index.followers(w);
+    //     for w in sourcesLoaded, graph.sources(w) equals index.predecessors(w)
     // Safety from rep exposure:
-    //   TODO
+    //   - All fields are private and final; graph, index, sorted, ngrams,
+    //     image and the loaded sets are never returned.
+    //   - 'metrics' only exposes counts and latencies, never the graph.
+    // Thread safety argument:
+    //   - an eager poet never mutates graph after construction, and an image
+    //     poet's graph is immutable.
+    //   - a lazy poet only touches graph and the loaded sets while holding
+    //     graph's lock.
+    //   - a parallel poem() only shares the input words, which are never
+    //     written, and the bridge and offset arrays, where each slot is
+    //     written by one task and read after the stream that wrote it ends.
     
     /**
      * Create a new poet with the graph from corpus (as described above).
@@ -68,21 +120,460 @@ public class GraphPoet {
      * @throws IOException if the corpus file cannot be found or read
      */
     public GraphPoet(File corpus) throws IOException {
-        throw new RuntimeException("not implemented");
+        this(corpus, false);
+    }
+    
+    /**
+     * Create a new poet with the graph from corpus (as described above),
+     * optionally recording operation counts and latencies.
+     * 
+     * @param corpus text file from which to derive the poet's affinity graph
+     * @param instrumented if true, record poem() and graph latencies into
+     *        metrics(); if false, poems are generated without any bookkeeping
+     * @throws IOException if the corpus file cannot be found or read
+     */
+    public GraphPoet(File corpus, boolean instrumented) throws IOException {
+        this(readWords(corpus), instrumented, Mode.EAGER);
+    }
+    
+    /**
+     * Create a new poet that derives its affinity graph on demand.
+     * 
+     * <p>The corpus is only indexed up front; the edges into and out of a word
+     * are counted the first time poem() needs them and kept from then on.
+     * Poems are identical to those of a poet created with the constructor.
+     * 
+     * @param corpus text file from which to derive the poet's affinity graph
+     * @param instrumented if true, record poem() and graph latencies into
+     *        metrics(); if false, poems are generated without any bookkeeping
+     * @return a lazy poet for corpus
+     * @throws IOException if the corpus file cannot be found or read
+     */
+    public static GraphPoet lazy(File corpus, boolean instrumented) throws IOException {
+        return new GraphPoet(readWords(corpus), instrumented, Mode.LAZY);
+    }
+    
+    /**
+     * Create a new poet whose affinity graph is frozen after construction into
+     * neighbor lists sorted by decreasing weight.
+     * 
+     * <p>Bridge search reads the out-edges of the first word and the in-edges
+     * of the second heaviest first, and stops once no unread word can beat the
+     * best bridge found, so pairs of high-degree words do not need a scan of
+     * every neighbor. Poems are identical to those of a poet created with the
+     * constructor, at the cost of keeping the sorted copy of the graph.
+     * 
+     * @param corpus text file from which to derive the poet's affinity graph
+     * @param instrumented if true, record poem() and graph latencies into
+     *        metrics(); if false, poems are generated without any bookkeeping
+     * @return a frozen poet for corpus
+     * @throws IOException if the corpus file cannot be found or read
+     */
+    public static GraphPoet frozen(File corpus, boolean instrumented) throws IOException {
+        return new GraphPoet(readWords(corpus), instrumented, Mode.FROZEN);
+    }
+    
+    /**
+     * Create a new poet that also counts n-grams of the corpus, and chooses
+     * each bridge word using the words before it in the poem as well.
+     * 
+     * <p>A bridge b between w1 and w2 is scored, for the longest context length
+     * m &lt;= contextLength available, by how often the last m words of the
+     * poem so far (ending in w1) are followed by b, plus how often the last
+     * m - 1 of them and b are followed by w2. Only candidates from the
+     * affinity graph are considered. If no candidate scores above zero at
+     * length m, m is shortened; below length 2, the bridge is chosen from the
+     * affinity graph alone, as for a poet created with the constructor.
+     * 
+     * <p>N-grams seen fewer than minCount times are dropped after counting,
+     * which bounds the memory of the model on large corpora.
+     * 
+     * @param corpus text file from which to derive the poet's affinity graph
+     * @param instrumented if true, record poem() and graph latencies into
+     *        metrics(); if false, poems are generated without any bookkeeping
+     * @param contextLength longest context to count, 2 &lt;= contextLength &lt;= 4
+     * @param minCount smallest n-gram count kept, &gt;= 1
+     * @return an n-gram poet for corpus
+     * @throws IOException if the corpus file cannot be found or read
+     */
+    public static GraphPoet nGram(File corpus, boolean instrumented, int contextLength, int minCount)
+            throws IOException {
+        final String[] words = readWords(corpus);
+        return new GraphPoet(words, instrumented, Mode.EAGER, new NGramModel(words, contextLength, minCount));
+    }
+    
+    /**
+     * Create a new poet whose affinity graph leaves out rare words and light
+     * edges.
+     * 
+     * <p>Words occurring fewer than minWordCount times in the corpus are not
+     * vertices of the graph, and edges of weight less than minEdgeWeight are
+     * not in it; adjacencies involving a dropped word are discarded. The
+     * corpus is read twice, streaming, and dropped words and edges are never
+     * added to the graph, so building is faster and the graph smaller. With
+     * both thresholds 1, the poet is equivalent to one created with the
+     * constructor.
+     * 
+     * @param corpus text file from which to derive the poet's affinity graph
+     * @param instrumented if true, record poem() and graph latencies into
+     *        metrics(); if false, poems are generated without any bookkeeping
+     * @param minWordCount smallest number of occurrences of a word in the graph, &gt;= 1
+     * @param minEdgeWeight smallest weight of an edge in the graph, &gt;= 1
+     * @return a pruned poet for corpus
+     * @throws IOException if the corpus file cannot be found or read
+     */
+    public static GraphPoet pruned(File corpus, boolean instrumented, int minWordCount, int minEdgeWeight)
+            throws IOException {
+        final GraphPoet poet = new GraphPoet(new String[0], instrumented, Mode.EAGER);
+        CorpusPruner.load(corpus, minWordCount, minEdgeWeight, poet.graph);
+        poet.checkRep();
+        return poet;
+    }
+    
+    /**
+     * Create a new poet from a graph image written by writeImage().
+     * 
+     * <p>The image is memory-mapped rather than read: no corpus is tokenized
+     * and no hash table is built, so the poet is ready in about the same time
+     * for any corpus size, and pages of the image are read only as poems need
+     * them. Poems are identical to those of the poet that wrote the image.
+     * 
+     * @param image file written by writeImage()
+     * @return a poet for the graph in image
+     * @throws IOException if image cannot be read, or is not a graph image
+     */
+    public static GraphPoet fromImage(File image) throws IOException {
+        return new GraphPoet(MappedGraph.open(image));
+    }
+    
+    /** How a poet builds and searches its affinity graph. */
+    private enum Mode { EAGER, LAZY, FROZEN }
+    
+    private GraphPoet(String[] words, boolean instrumented, Mode mode) {
+        this(words, instrumented, mode, null);
     }
     
-    // TODO checkRep
+    private GraphPoet(MappedGraph image) {
+        this.graph = image;
+        this.metrics = null;
+        this.index = null;
+        this.targetsLoaded = null;
+        this.sourcesLoaded = null;
+        this.sorted = null;
+        this.ngrams = null;
+        this.image = image;
+        checkRep();
+    }
+    
+    private GraphPoet(String[] words, boolean instrumented, Mode mode, NGramModel ngrams) {
+        if (instrumented) {
+            final InstrumentedGraph<String> instrumentedGraph = new InstrumentedGraph<>(Graph.empty());
+            this.graph = instrumentedGraph;
+            this.metrics = new PoetMetrics(instrumentedGraph.metrics());
+        } else {
+            this.graph = Graph.empty();
+            this.metrics = null;
+        }
+        if (mode == Mode.LAZY) {
+            this.index = new CorpusIndex(words);
+            this.targetsLoaded = new HashSet<>();
+            this.sourcesLoaded = new HashSet<>();
+        } else {
+            this.index = null;
+            this.targetsLoaded = null;
+            this.sourcesLoaded = null;
+            for (int i = 0; i < words.length; i++) {
+                graph.add(words[i]);
+                if (i + 1 < words.length) {
+                    final int weight = graph.targets(words[i]).getOrDefault(words[i + 1], 0);
+                    graph.set(words[i], words[i + 1], weight + 1);
+                }
+            }
+        }
+        this.sorted = mode == Mode.FROZEN ? SortedAdjacency.of(graph) : null;
+        this.ngrams = ngrams;
+        this.image = null;
+        checkRep();
+    }
+    
+    /**
+     * Read a corpus.
+     * 
+     * @param corpus text file to read
+     * @return the words of corpus in order, in lower case
+     * @throws IOException if the corpus file cannot be found or read
+     */
+    static String[] readWords(File corpus) throws IOException {
+        final String[] words = words(new String(Files.readAllBytes(corpus.toPath())));
+        for (int i = 0; i < words.length; i++) {
+            words[i] = words[i].toLowerCase();
+        }
+        return words;
+    }
+    
+    private void checkRep() {
+        assert (index == null) == (targetsLoaded == null) : "Lazy state incomplete";
+        assert (index == null) == (sourcesLoaded == null) : "Lazy state incomplete";
+        assert index == null || sorted == null : "Lazy poet cannot be frozen";
+        assert ngrams == null || (index == null && sorted == null) : "N-gram poet must be eager";
+        if (image != null) {
+            // checking every word would read the whole image
+            assert graph == image && metrics == null && sorted == null && ngrams == null : "Bad image poet";
+            return;
+        }
+        for (String word : graph.vertices()) {
+            assert !word.isEmpty() : "Empty word in graph";
+            assert word.equals(word.toLowerCase()) : "Word not lower case: " + word;
+            assert !word.matches(".*\\s.*") : "Word contains whitespace: " + word;
+        }
+    }
+    
+    /**
+     * Write this poet's affinity graph as an image for fromImage().
+     * 
+     * <p>Only the affinity graph is written: a poet created from the image
+     * generates the same poems as this one unless this is an n-gram poet.
+     * 
+     * @param file file to create or overwrite
+     * @throws IOException if file cannot be written
+     * @throws UnsupportedOperationException if this poet was created lazy()
+     */
+    public void writeImage(File file) throws IOException {
+        if (index != null) throw new UnsupportedOperationException("A lazy poet has no complete graph");
+        MappedGraph.write(graph, file);
+    }
+    
+    /**
+     * @return metrics of this poet, if it was created instrumented
+     */
+    public Optional<PoetMetrics> metrics() {
+        return Optional.ofNullable(metrics);
+    }
     
     /**
      * Generate a poem.
      * 
+     * <p>If several bridge words share the maximum path weight, the one that
+     * comes first in lexicographic order is inserted.
+     * 
+     * <p>Long inputs are split into chunks whose bridges are found in parallel,
+     * unless this is a lazy poet, whose lookups share one lock, or an n-gram
+     * poet, whose every bridge depends on the ones before it. The poem is the
+     * same either way.
+     * 
      * @param input string from which to create the poem
      * @return poem (as described above)
      */
     public String poem(String input) {
-        throw new RuntimeException("not implemented");
+        final long start = metrics == null ? 0 : System.nanoTime();
+        final String[] words = words(input);
+        final String poem = words.length >= PARALLEL_THRESHOLD && index == null && ngrams == null
+                ? parallelPoem(words) : sequentialPoem(words);
+        if (metrics != null) {
+            metrics.recordPoem(System.nanoTime() - start);
+        }
+        return poem;
     }
     
-    // TODO toString()
+    private String sequentialPoem(String[] words) {
+        final StringBuilder poem = new StringBuilder();
+        final List<String> history = ngrams == null ? null : new ArrayList<>();
+        for (int i = 0; i < words.length; i++) {
+            final String word = words[i].toLowerCase();
+            if (i > 0) {
+                final String bridge = history == null
+                        ? bridge(words[i - 1].toLowerCase(), word)
+                        : contextBridge(history, word);
+                if (bridge != null) {
+                    poem.append(' ').append(bridge);
+                    if (history != null) {
+                        history.add(bridge);
+                    }
+                }
+                poem.append(' ');
+            }
+            poem.append(words[i]);
+            if (history != null) {
+                history.add(word);
+            }
+        }
+        return poem.toString();
+    }
+    
+    /**
+     * Generate a poem on the common fork-join pool: each chunk of words finds
+     * its bridges and its length in the poem, then, once the chunk offsets are
+     * known, copies itself into its place in one array of exactly the poem's
+     * length.
+     * 
+     * @param words words of the input, not an n-gram or lazy poet's
+     * @return the same poem as sequentialPoem(words)
+     */
+    private String parallelPoem(String[] words) {
+        final String[] bridges = new String[words.length];
+        final int chunks = (words.length + CHUNK_WORDS - 1) / CHUNK_WORDS;
+        final int[] offsets = new int[chunks + 1];
+        IntStream.range(0, chunks).parallel().forEach(chunk -> {
+            final int end = Math.min(words.length, (chunk + 1) * CHUNK_WORDS);
+            int length = 0;
+            for (int i = chunk * CHUNK_WORDS; i < end; i++) {
+                if (i > 0) {
+                    bridges[i] = bridge(words[i - 1].toLowerCase(), words[i].toLowerCase());
+                    length += bridges[i] == null ? 1 : bridges[i].length() + 2;
+                }
+                length += words[i].length();
+            }
+            offsets[chunk + 1] = length;
+        });
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            offsets[chunk + 1] += offsets[chunk];
+        }
+        final char[] poem = new char[offsets[chunks]];
+        IntStream.range(0, chunks).parallel().forEach(chunk -> {
+            final int end = Math.min(words.length, (chunk + 1) * CHUNK_WORDS);
+            int at = offsets[chunk];
+            for (int i = chunk * CHUNK_WORDS; i < end; i++) {
+                if (i > 0) {
+                    if (bridges[i] != null) {
+                        poem[at++] = ' ';
+                        bridges[i].getChars(0, bridges[i].length(), poem, at);
+                        at += bridges[i].length();
+                    }
+                    poem[at++] = ' ';
+                }
+                words[i].getChars(0, words[i].length(), poem, at);
+                at += words[i].length();
+            }
+        });
+        return new String(poem);
+    }
+    
+    /**
+     * Find the bridge word between two words.
+     * 
+     * @param first lower-case word before the bridge
+     * @param second lower-case word after the bridge
+     * @return the word b maximizing weight(first -> b) + weight(b -> second),
+     *         lexicographically smallest among ties, or null if there is no
+     *         two-edge path from first to second
+     */
+    private String bridge(String first, String second) {
+        if (image != null) {
+            return image.bestBridge(first, second);
+        }
+        if (sorted != null) {
+            return sorted.bestBridge(first, second, Comparator.naturalOrder());
+        }
+        if (index == null) {
+            return bestBridge(first, second);
+        }
+        synchronized (graph) {
+            if (targetsLoaded.add(first)) {
+                for (Map.Entry<String, Integer> edge : index.followers(first).entrySet()) {
+                    graph.set(first, edge.getKey(), edge.getValue());
+                }
+            }
+            if (sourcesLoaded.add(second)) {
+                for (Map.Entry<String, Integer> edge : index.predecessors(second).entrySet()) {
+                    graph.set(edge.getKey(), second, edge.getValue());
+                }
+            }
+            return bestBridge(first, second);
+        }
+    }
+    
+    /**
+     * Find the bridge word after a poem so far, using the n-gram model.
+     * 
+     * @param history lower-case words of the poem so far, non-empty
+     * @param second lower-case word after the bridge
+     * @return the bridge chosen by the longest context with a non-zero score,
+     *         lexicographically smallest among ties (as described in nGram()),
+     *         or bridge(last word of history, second) if there is none
+     */
+    private String contextBridge(List<String> history, String second) {
+        final String first = history.get(history.size() - 1);
+        final Map<String, Integer> fromFirst = graph.targets(first);
+        if (fromFirst.isEmpty()) {
+            return null;
+        }
+        final Map<String, Integer> toSecond = graph.sources(second);
+        for (int m = Math.min(ngrams.maxContext(), history.size()); m >= 2; m--) {
+            String best = null;
+            int bestScore = 0;
+            for (String candidate : fromFirst.keySet()) {
+                if (!toSecond.containsKey(candidate)) {
+                    continue;
+                }
+                final int score = ngrams.count(history, m, null, candidate)
+                        + ngrams.count(history, m, candidate, second);
+                if (score > bestScore || (score == bestScore && score > 0 && candidate.compareTo(best) < 0)) {
+                    best = candidate;
+                    bestScore = score;
+                }
+            }
+            if (best != null) {
+                return best;
+            }
+        }
+        return bestBridge(first, second);
+    }
+    
+    /**
+     * Find the bridge word between two words in graph.
+     * 
+     * @param first lower-case word before the bridge
+     * @param second lower-case word after the bridge
+     * @return as for bridge(first, second), assuming graph.targets(first) and
+     *         graph.sources(second) are complete
+     */
+    private String bestBridge(String first, String second) {
+        final Map<String, Integer> fromFirst = graph.targets(first);
+        if (fromFirst.isEmpty()) {
+            return null;
+        }
+        final Map<String, Integer> toSecond = graph.sources(second);
+        String best = null;
+        int bestWeight = 0;
+        for (Map.Entry<String, Integer> entry : fromFirst.entrySet()) {
+            final Integer weight = toSecond.get(entry.getKey());
+            if (weight == null) {
+                continue;
+            }
+            final int total = entry.getValue() + weight;
+            if (total > bestWeight || (total == bestWeight && entry.getKey().compareTo(best) < 0)) {
+                best = entry.getKey();
+                bestWeight = total;
+            }
+        }
+        return best;
+    }
+    
+    /**
+     * Split text into words.
+     * 
+     * @param text text to split
+     * @return the non-empty runs of non-whitespace characters in text, in order
+     */
+    static String[] words(String text) {
+        final String trimmed = text.trim();
+        return trimmed.isEmpty() ? new String[0] : trimmed.split("\\s+");
+    }
+    
+    @Override
+    public String toString() {
+        if (index != null) {
+            synchronized (graph) {
+                return "GraphPoet(lazy, " + index + ")" + graph.vertices();
+            }
+        }
+        if (ngrams != null) {
+            return "GraphPoet(" + ngrams + ")" + graph.vertices();
+        }
+        if (image != null) {
+            return "GraphPoet(" + image + ")";
+        }
+        return "GraphPoet" + graph.vertices();
+    }
     
 }
@@ -0,0 +1,273 @@
+package poet;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * A graph-based poetry generator over several corpora at once.
+ * 
+ * <p>Each corpus defines a word affinity graph as described in GraphPoet. A
+ * MultiCorpusPoet holds all of them in one structure: the words of every
+ * corpus are interned once into a shared vocabulary, the union of their edges
+ * is stored once, and each corpus contributes only a column of edge weights,
+ * one int per edge of the union.
+ * 
+ * <p>A poem is generated against a blend: a non-negative factor for each
+ * corpus. The blended graph has an edge w1 -> w2 of weight
+ * sum over corpora c of factor(c) * weight_c(w1 -> w2), when that is positive.
+ * poem(input, blend) returns what GraphPoet.poem(input) would return for a
+ * poet whose affinity graph is the blended graph, including its tie-breaking
+ * rule, without building that graph.
+ * 
+ * <p>For example, with corpora "news" and "fiction", the blend
+ * {news=1.0} gives the poems of a GraphPoet on news alone, and
+ * {news=1.0, fiction=0.5} counts every fiction adjacency half as much as a news one.
+ * 
+ * <p>Immutable and threadsafe.
+ */
+public class MultiCorpusPoet {
+
+    private final Map<String, Integer> corpora;
+    private final String[] vocabulary;
+    private final Map<String, Integer> ids;
+    private final int[] outOffsets;
+    private final int[] outTargets;
+    private final int[] inOffsets;
+    private final int[] inSources;
+    private final int[] inEdges;
+    private final int[][] weights;
+
+    // Abstraction function:
+    //   AF(corpora, vocabulary, ..., weights) = the affinity graphs of the
+    //     corpora named by corpora's keys, where corpus corpora.get(name) = c
+    //     has an edge vocabulary[s] -> vocabulary[outTargets[e]] of weight
+    //     weights[c][e] for each s and each e in outOffsets[s] .. outOffsets[s+1]-1
+    //     with weights[c][e] > 0.
+    // Representation invariant:
+    //   - corpora's values are 0 .. weights.length-1, each once
+    //   - vocabulary is sorted and duplicate-free; ids.get(vocabulary[w]) == w
+    //     for every id w, and ids has no other keys
+    //   - outOffsets and inOffsets have length vocabulary.length + 1, start at
+    //     0, are non-decreasing and end at the number of edges E
+    //   - outTargets within each source's range are strictly increasing; so
+    //     are inSources within each target's range
+    //   - in-edge j of target t is edge inEdges[j], whose source is inSources[j]
+    //     and whose target is t; inEdges is a permutation of 0 .. E-1
+    //   - every weights[c] has length E, entries >= 0, and every edge has a
+    //     positive weight in at least one corpus
+    // Safety from rep exposure:
+    //   - All fields are private and final, and never returned; corpora()
+    //     returns an unmodifiable view of the names.
+    // Thread safety argument:
+    //   - The rep is never mutated after construction, and poem() only
+    //     allocates local state.
+
+    /**
+     * Create a new poet for several corpora.
+     * 
+     * @param corpora text files from which to derive the affinity graphs, by
+     *        corpus name; must not be empty
+     * @throws IOException if a corpus file cannot be found or read
+     */
+    public MultiCorpusPoet(Map<String, File> corpora) throws IOException {
+        if (corpora.isEmpty()) throw new IllegalArgumentException("No corpora");
+        final String[][] texts = new String[corpora.size()][];
+        final Map<String, Integer> names = new LinkedHashMap<>();
+        final TreeSet<String> words = new TreeSet<>();
+        for (Map.Entry<String, File> corpus : corpora.entrySet()) {
+            final int c = names.size();
+            names.put(corpus.getKey(), c);
+            texts[c] = GraphPoet.readWords(corpus.getValue());
+            words.addAll(Arrays.asList(texts[c]));
+        }
+        this.corpora = Collections.unmodifiableMap(names);
+        this.vocabulary = words.toArray(new String[0]);
+        this.ids = new HashMap<>(vocabulary.length * 4 / 3 + 1);
+        for (int w = 0; w < vocabulary.length; w++) {
+            ids.put(vocabulary[w], w);
+        }
+
+        // each adjacency as (source << 32 | target), sorted per corpus and merged
+        final long[][] pairs = new long[texts.length][];
+        int total = 0;
+        for (int c = 0; c < texts.length; c++) {
+            pairs[c] = new long[Math.max(0, texts[c].length - 1)];
+            for (int i = 0; i + 1 < texts[c].length; i++) {
+                pairs[c][i] = (long) ids.get(texts[c][i]) << 32 | ids.get(texts[c][i + 1]);
+            }
+            Arrays.sort(pairs[c]);
+            total += pairs[c].length;
+        }
+        final long[] edges = new long[total];
+        int filled = 0;
+        for (long[] corpusPairs : pairs) {
+            System.arraycopy(corpusPairs, 0, edges, filled, corpusPairs.length);
+            filled += corpusPairs.length;
+        }
+        Arrays.sort(edges);
+        int edgeCount = 0;
+        for (int i = 0; i < edges.length; i++) {
+            if (edgeCount == 0 || edges[i] != edges[edgeCount - 1]) {
+                edges[edgeCount++] = edges[i];
+            }
+        }
+
+        this.weights = new int[texts.length][edgeCount];
+        for (int c = 0; c < texts.length; c++) {
+            int e = 0;
+            for (long pair : pairs[c]) {
+                while (edges[e] != pair) {
+                    e++;
+                }
+                weights[c][e]++;
+            }
+        }
+
+        this.outOffsets = new int[vocabulary.length + 1];
+        this.outTargets = new int[edgeCount];
+        this.inOffsets = new int[vocabulary.length + 1];
+        for (int e = 0; e < edgeCount; e++) {
+            outOffsets[(int) (edges[e] >>> 32) + 1]++;
+            outTargets[e] = (int) edges[e];
+            inOffsets[outTargets[e] + 1]++;
+        }
+        for (int w = 0; w < vocabulary.length; w++) {
+            outOffsets[w + 1] += outOffsets[w];
+            inOffsets[w + 1] += inOffsets[w];
+        }
+        this.inSources = new int[edgeCount];
+        this.inEdges = new int[edgeCount];
+        final int[] next = Arrays.copyOf(inOffsets, vocabulary.length);
+        // edges are in source order, so each target's sources come out sorted
+        for (int e = 0; e < edgeCount; e++) {
+            final int slot = next[outTargets[e]]++;
+            inSources[slot] = (int) (edges[e] >>> 32);
+            inEdges[slot] = e;
+        }
+        checkRep();
+    }
+
+    private void checkRep() {
+        assert corpora.size() == weights.length : "Corpus count mismatch";
+        assert outOffsets.length == vocabulary.length + 1 : "Bad out offsets";
+        assert inOffsets.length == vocabulary.length + 1 : "Bad in offsets";
+        assert outOffsets[vocabulary.length] == outTargets.length : "Bad out offsets";
+        assert inOffsets[vocabulary.length] == inSources.length : "Bad in offsets";
+        for (int w = 0; w + 1 < vocabulary.length; w++) {
+            assert vocabulary[w].compareTo(vocabulary[w + 1]) < 0 : "Vocabulary not sorted";
+        }
+    }
+
+    /**
+     * @return the names of this poet's corpora
+     */
+    public Set<String> corpora() {
+        return corpora.keySet();
+    }
+
+    /**
+     * @return number of distinct words over all corpora
+     */
+    public int vocabularySize() {
+        return vocabulary.length;
+    }
+
+    /**
+     * @return number of distinct adjacencies over all corpora
+     */
+    public int edgeCount() {
+        return outTargets.length;
+    }
+
+    /**
+     * Generate a poem from a blend of corpora.
+     * 
+     * @param input string from which to create the poem
+     * @param blend non-negative factor for each corpus, by name; corpora not
+     *        named have factor 0
+     * @return poem (as described above)
+     * @throws IllegalArgumentException if blend names an unknown corpus or
+     *         has a negative or non-finite factor
+     */
+    public String poem(String input, Map<String, Double> blend) {
+        final double[] factors = new double[weights.length];
+        for (Map.Entry<String, Double> entry : blend.entrySet()) {
+            final Integer c = corpora.get(entry.getKey());
+            if (c == null) throw new IllegalArgumentException("Unknown corpus: " + entry.getKey());
+            final double factor = entry.getValue();
+            if (!(factor >= 0) || Double.isInfinite(factor)) {
+                throw new IllegalArgumentException("Bad factor for " + entry.getKey() + ": " + factor);
+            }
+            factors[c] = factor;
+        }
+        final String[] words = GraphPoet.words(input);
+        final StringBuilder poem = new StringBuilder();
+        for (int i = 0; i < words.length; i++) {
+            if (i > 0) {
+                final Integer first = ids.get(words[i - 1].toLowerCase());
+                final Integer second = ids.get(words[i].toLowerCase());
+                final int bridge = first == null || second == null ? -1 : bridge(first, second, factors);
+                if (bridge >= 0) {
+                    poem.append(' ').append(vocabulary[bridge]);
+                }
+                poem.append(' ');
+            }
+            poem.append(words[i]);
+        }
+        return poem.toString();
+    }
+
+    /**
+     * Find the bridge word between two words in a blended graph.
+     * 
+     * @param first id of the word before the bridge
+     * @param second id of the word after the bridge
+     * @param factors factor of each corpus
+     * @return id b maximizing blended weight(first -> b) + weight(b -> second)
+     *         over b with both weights positive, smallest among ties, or -1
+     */
+    private int bridge(int first, int second, double[] factors) {
+        int best = -1;
+        double bestWeight = 0;
+        int i = outOffsets[first];
+        final int outEnd = outOffsets[first + 1];
+        int j = inOffsets[second];
+        final int inEnd = inOffsets[second + 1];
+        while (i < outEnd && j < inEnd) {
+            final int x = outTargets[i];
+            final int y = inSources[j];
+            if (x == y) {
+                final double toBridge = blended(i, factors);
+                final double fromBridge = blended(inEdges[j], factors);
+                if (toBridge > 0 && fromBridge > 0 && toBridge + fromBridge > bestWeight) {
+                    best = x;
+                    bestWeight = toBridge + fromBridge;
+                }
+            }
+            i += x <= y ? 1 : 0;
+            j += y <= x ? 1 : 0;
+        }
+        return best;
+    }
+
+    private double blended(int edge, double[] factors) {
+        double weight = 0;
+        for (int c = 0; c < factors.length; c++) {
+            weight += factors[c] * weights[c][edge];
+        }
+        return weight;
+    }
+
+    @Override
+    public String toString() {
+        return "MultiCorpusPoet(" + corpora.keySet() + ", " + vocabulary.length + " words, "
+                + outTargets.length + " edges)";
+    }
+}
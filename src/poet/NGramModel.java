@@ -0,0 +1,159 @@
+package poet;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Counts of word n-grams in a corpus, for contexts of two or more words.
+ * 
+ * <p>For each context length m from 2 to a maximum, the model counts how
+ * often each sequence of m words is followed by each word. An n-gram is
+ * stored only as a 64-bit hash of its word ids in a primitive CountTable, so
+ * memory is twelve-odd bytes per distinct n-gram regardless of its length;
+ * distinct n-grams whose hashes collide share a count, which at 64 bits is
+ * rare enough to ignore. N-grams seen fewer than a minimum number of times
+ * are pruned.
+ * 
+ * <p>When pruning, each context length is counted in two passes, as
+ * CorpusPruner counts edges: the first counts every n-gram approximately in
+ * a fixed-size count-min sketch, and the second counts exactly only the
+ * n-grams the sketch says may reach the minimum. Since the sketch never
+ * underestimates, no kept n-gram is missed, and the table never holds the
+ * long tail of n-grams seen once, so its peak size follows the number of
+ * frequent n-grams rather than the length of the corpus.
+ * 
+ * <p>Immutable.
+ */
+class NGramModel {
+
+    private final Map<String, Integer> ids;
+    private final int maxContext;
+    private final CountTable[] tables;
+
+    // Abstraction function:
+    //   AF(ids, maxContext, tables) = for each m in 2..maxContext, the counts
+    //     of (m-word context, next word) pairs in the corpus, where pair p has
+    //     count tables[m].get(key(p)) if that is at least the pruning threshold,
+    //     and 0 otherwise.
+    // Representation invariant:
+    //   - 2 <= maxContext; tables.length == maxContext + 1; tables[0] and
+    //     tables[1] are null, the rest non-null
+    //   - ids maps distinct words to distinct ids
+    // Safety from rep exposure:
+    //   - All fields are private and final, and never returned.
+
+    /**
+     * Count the n-grams of a corpus.
+     * 
+     * @param words the words of the corpus in order, already lower case
+     * @param maxContext longest context length to count, 2 <= maxContext <= 4
+     * @param minCount smallest count kept after pruning, >= 1
+     */
+    NGramModel(String[] words, int maxContext, int minCount) {
+        if (maxContext < 2 || maxContext > 4) throw new IllegalArgumentException("Context length must be 2 to 4");
+        if (minCount < 1) throw new IllegalArgumentException("minCount must be positive");
+        this.maxContext = maxContext;
+        this.ids = new HashMap<>();
+        final int[] tokens = new int[words.length];
+        for (int i = 0; i < words.length; i++) {
+            tokens[i] = ids.computeIfAbsent(words[i], word -> ids.size());
+        }
+        this.tables = new CountTable[maxContext + 1];
+        for (int m = 2; m <= maxContext; m++) {
+            final CountMinSketch sketch = minCount <= 1 ? null : CountMinSketch.forItems(tokens.length);
+            if (sketch != null) {
+                for (int end = m; end < tokens.length; end++) {
+                    sketch.add(key(tokens, end - m, m, tokens[end]));
+                }
+            }
+            final CountTable table = new CountTable(0);
+            for (int end = m; end < tokens.length; end++) {
+                final long key = key(tokens, end - m, m, tokens[end]);
+                if (sketch == null || sketch.estimate(key) >= minCount) {
+                    table.increment(key);
+                }
+            }
+            if (minCount > 1) {
+                table.prune(minCount);
+            }
+            tables[m] = table;
+        }
+    }
+
+    /**
+     * @return longest context length counted
+     */
+    int maxContext() {
+        return maxContext;
+    }
+
+    /**
+     * Count how often a context is followed by a word.
+     * 
+     * @param history lower-case words; the context is its last m words
+     * @param m context length, 2 <= m <= maxContext() and m <= history.size()
+     * @param extra if non-null, a word appended to history before taking the context
+     * @param next lower-case word following the context
+     * @return number of times the context is followed by next in the corpus,
+     *         or 0 if that is below the pruning threshold
+     */
+    int count(List<String> history, int m, String extra, String next) {
+        final int[] context = new int[m];
+        int filled = m;
+        if (extra != null) {
+            final Integer id = ids.get(extra);
+            if (id == null) {
+                return 0;
+            }
+            context[--filled] = id;
+        }
+        for (int i = history.size() - 1; filled > 0; i--) {
+            final Integer id = ids.get(history.get(i));
+            if (id == null) {
+                return 0;
+            }
+            context[--filled] = id;
+        }
+        final Integer nextId = ids.get(next);
+        return nextId == null ? 0 : tables[m].get(key(context, 0, m, nextId));
+    }
+
+    /**
+     * @return heap used by the count tables, in bytes
+     */
+    long tableBytes() {
+        long bytes = 0;
+        for (int m = 2; m <= maxContext; m++) {
+            bytes += tables[m].bytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * Hash an n-gram to a non-zero key.
+     */
+    private static long key(int[] ids, int start, int length, int next) {
+        long hash = length;
+        for (int i = start; i < start + length; i++) {
+            hash = mix(hash * 0x9E3779B97F4A7C15L + ids[i] + 1);
+        }
+        hash = mix(hash * 0x9E3779B97F4A7C15L + next + 1);
+        return hash == 0 ? 1 : hash;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder result = new StringBuilder("NGramModel(");
+        for (int m = 2; m <= maxContext; m++) {
+            result.append(m).append(": ").append(tables[m].size()).append(m < maxContext ? ", " : "");
+        }
+        return result.append("; ").append(tableBytes()).append(" bytes)").toString();
+    }
+}
@@ -0,0 +1,105 @@
+package poet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+import graph.LatencyHistogram;
+
+/**
+ * Local load report for PoemService.
+ * 
+ * <p>Sends a fixed number of poem requests, built from random runs of corpus
+ * words, with a bounded number in flight, and reports throughput and p50/p99
+ * latency as seen by the caller.
+ */
+public class PoemLoadReport {
+    
+    /**
+     * Run a load test.
+     * 
+     * @param args corpus file, then optionally: number of requests (default
+     *        10000), requests in flight (default 64), service queue bound
+     *        (default 256), distinct inputs (default 1000), random seed
+     *        (default 1)
+     * @throws IOException if the corpus file cannot be found or read
+     * @throws InterruptedException if interrupted while waiting for requests
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 1) {
+            System.err.println("usage: PoemLoadReport corpus [requests] [concurrency] [maxPending] [distinct] [seed]");
+            System.exit(2);
+        }
+        final File corpus = new File(args[0]);
+        final int requests = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+        final int concurrency = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+        final int maxPending = args.length > 3 ? Integer.parseInt(args[3]) : 256;
+        final int distinct = args.length > 4 ? Integer.parseInt(args[4]) : 1000;
+        final long seed = args.length > 5 ? Long.parseLong(args[5]) : 1;
+        
+        final long buildStart = System.nanoTime();
+        final GraphPoet poet = new GraphPoet(corpus);
+        System.out.printf("built poet in %d ms%n", (System.nanoTime() - buildStart) / 1_000_000);
+        
+        final List<String> inputs = inputs(corpus, distinct, new Random(seed));
+        final Random random = new Random(seed);
+        final LatencyHistogram latency = new LatencyHistogram();
+        final AtomicLong rejected = new AtomicLong();
+        final Semaphore inFlight = new Semaphore(concurrency);
+        
+        try (PoemService service = new PoemService(poet, maxPending)) {
+            final long start = System.nanoTime();
+            for (int i = 0; i < requests; i++) {
+                inFlight.acquire();
+                final String input = inputs.get(random.nextInt(inputs.size()));
+                final long sent = System.nanoTime();
+                final CompletableFuture<String> poem = service.poemAsync(input);
+                poem.whenComplete((result, e) -> {
+                    if (e == null) {
+                        latency.record(System.nanoTime() - sent);
+                    } else {
+                        rejected.incrementAndGet();
+                    }
+                    inFlight.release();
+                });
+            }
+            inFlight.acquire(concurrency);
+            final double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%d requests in %.2f s (%.0f/s), %d rejected%n",
+                    requests, seconds, requests / seconds, rejected.get());
+            System.out.printf("latency p50=%.3f ms p99=%.3f ms max=%.3f ms%n",
+                    latency.percentile(50) / 1e6, latency.percentile(99) / 1e6, latency.max() / 1e6);
+        }
+    }
+    
+    /**
+     * Make random poem inputs from a corpus.
+     * 
+     * @param corpus text file to draw words from
+     * @param count number of inputs to make
+     * @param random source of randomness
+     * @return count inputs, each a run of 2 to 12 consecutive corpus words
+     * @throws IOException if the corpus file cannot be found or read
+     */
+    private static List<String> inputs(File corpus, int count, Random random) throws IOException {
+        final String[] words = new String(Files.readAllBytes(corpus.toPath())).trim().split("\\s+");
+        final List<String> inputs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            final int length = 2 + random.nextInt(11);
+            final int start = random.nextInt(Math.max(1, words.length - length));
+            final StringBuilder input = new StringBuilder();
+            for (int j = start; j < Math.min(words.length, start + length); j++) {
+                input.append(words[j]).append(' ');
+            }
+            inputs.add(input.toString().trim());
+        }
+        return inputs;
+    }
+    
+}
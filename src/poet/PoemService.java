@@ -0,0 +1,266 @@
+package poet;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An asynchronous front end for a GraphPoet.
+ * 
+ * <p>Poems are generated on an executor. At most maxPending distinct requests
+ * may be queued or running at once; further requests fail immediately with
+ * RejectedExecutionException instead of queueing without bound. Requests for
+ * an input that is already queued or running share its result rather than
+ * generating the same poem twice.
+ * 
+ * <p>Any executor may be supplied, for example one that starts a virtual
+ * thread per task on JVMs that have them; by default the service runs a fixed
+ * pool with one thread per available processor.
+ * 
+ * <p>Threadsafe.
+ */
+public class PoemService implements AutoCloseable {
+
+    private final GraphPoet poet;
+    private final Executor executor;
+    private final ExecutorService ownedExecutor;
+    private final Semaphore permits;
+    private final Map<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+    private volatile boolean closed = false;
+
+    // Abstraction function:
+    //   AF(poet, executor, permits, inFlight, closed) = a service generating
+    //     poems of 'poet' on 'executor', with the requests in inFlight queued or
+    //     running, accepting new requests iff !closed.
+    // Representation invariant:
+    //   - permits.availablePermits() + (number of queued or running tasks)
+    //     == maxPending
+    //   - every future in inFlight is for a queued or running task
+    //   - ownedExecutor is null or == executor
+    // Safety from rep exposure:
+    //   - All fields are private; futures handed to clients are copies, so
+    //     cancelling or completing them does not affect other requests.
+    // Thread safety argument:
+    //   - poet is threadsafe for poem(); inFlight is a ConcurrentHashMap and
+    //     permits a Semaphore; closed is volatile.
+    //   - a task removes its own future from inFlight and releases its permit
+    //     exactly once, in a finally block.
+
+    /**
+     * Create a service with its own thread pool.
+     * 
+     * @param poet poet to generate poems with
+     * @param maxPending maximum number of distinct requests queued or running, > 0
+     */
+    public PoemService(GraphPoet poet, int maxPending) {
+        this(poet, maxPending, Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors()), true);
+    }
+
+    /**
+     * Create a service that runs poem generation on the given executor.
+     * 
+     * @param poet poet to generate poems with
+     * @param maxPending maximum number of distinct requests queued or running, > 0
+     * @param executor executor to run poem generation on; not shut down by close()
+     */
+    public PoemService(GraphPoet poet, int maxPending, Executor executor) {
+        this(poet, maxPending, executor, false);
+    }
+
+    private PoemService(GraphPoet poet, int maxPending, Executor executor, boolean owned) {
+        if (maxPending <= 0) throw new IllegalArgumentException("maxPending must be positive");
+        if (poet == null || executor == null) throw new IllegalArgumentException("Poet and executor cannot be null");
+        this.poet = poet;
+        this.executor = executor;
+        this.ownedExecutor = owned ? (ExecutorService) executor : null;
+        this.permits = new Semaphore(maxPending);
+    }
+
+    /**
+     * Generate a poem asynchronously.
+     * 
+     * @param input string from which to create the poem
+     * @return future completed with poet.poem(input); completed exceptionally
+     *         with RejectedExecutionException if maxPending requests are already
+     *         pending or the executor refuses the task, or with
+     *         IllegalStateException if this service is closed
+     */
+    public CompletableFuture<String> poemAsync(String input) {
+        if (closed) {
+            return CompletableFuture.failedFuture(new IllegalStateException("PoemService is closed"));
+        }
+        final CompletableFuture<String> created = new CompletableFuture<>();
+        final CompletableFuture<String> existing = inFlight.putIfAbsent(input, created);
+        if (existing != null) {
+            return existing.copy();
+        }
+        if (!permits.tryAcquire()) {
+            inFlight.remove(input, created);
+            created.completeExceptionally(new RejectedExecutionException("Too many pending poem requests"));
+            return created.copy();
+        }
+        try {
+            executor.execute(() -> {
+                String poem = null;
+                Throwable failure = null;
+                try {
+                    poem = poet.poem(input);
+                } catch (RuntimeException | Error e) {
+                    failure = e;
+                }
+                // free the slot before completing, since completion runs
+                // dependents that may request the next poem
+                inFlight.remove(input, created);
+                permits.release();
+                if (failure == null) {
+                    created.complete(poem);
+                } else {
+                    created.completeExceptionally(failure);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(input, created);
+            permits.release();
+            created.completeExceptionally(e);
+        }
+        return created.copy();
+    }
+
+    /**
+     * Generate poems for a sequence of inputs as a stream.
+     * 
+     * <p>Each subscriber receives the poems for all of inputs, in order, then
+     * onComplete. Poems are only generated as the subscriber requests them:
+     * at most min(requested, window) poems are pending at any time. If a
+     * request fails (for example because the service is full), the subscriber
+     * receives onError and the stream ends.
+     * 
+     * @param inputs strings from which to create poems; iterated once per
+     *        subscriber, never concurrently
+     * @param window maximum number of poems generated ahead of delivery, > 0
+     * @return publisher of the poems for inputs
+     */
+    public Flow.Publisher<String> poems(Iterable<String> inputs, int window) {
+        if (window <= 0) throw new IllegalArgumentException("window must be positive");
+        return subscriber -> subscriber.onSubscribe(new PoemSubscription(subscriber, inputs.iterator(), window));
+    }
+
+    /**
+     * @return number of distinct requests queued or running
+     */
+    public int pending() {
+        return inFlight.size();
+    }
+
+    /**
+     * Stop accepting requests. Requests already accepted still complete.
+     * If the service created its own thread pool, the pool is shut down once
+     * they have.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdown();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "PoemService(" + pending() + " pending" + (closed ? ", closed)" : ")");
+    }
+
+    /**
+     * Delivers the poems for one subscriber in input order, generating them
+     * only as demand allows.
+     */
+    private class PoemSubscription implements Flow.Subscription {
+
+        private final Flow.Subscriber<? super String> subscriber;
+        private final Iterator<String> inputs;
+        private final int window;
+        private final Queue<CompletableFuture<String>> pending = new ArrayDeque<>();
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicInteger work = new AtomicInteger();
+        private volatile Throwable error = null;
+        private volatile boolean done = false;
+
+        // Abstraction function:
+        //   AF(subscriber, inputs, pending, requested) = a stream whose next
+        //     poems are those of 'pending' in order, followed by the poems of
+        //     the remaining 'inputs'; 'requested' more may be delivered.
+        // Representation invariant:
+        //   - pending.size() <= window
+        //   - once done, no more signals are sent to subscriber
+        //   - inputs, pending and the subscriber's signals are only used by the
+        //     thread that incremented 'work' from 0, so signals are serialized
+        // Safety from rep exposure:
+        //   - All fields are private; nothing is returned.
+
+        PoemSubscription(Flow.Subscriber<? super String> subscriber, Iterator<String> inputs, int window) {
+            this.subscriber = subscriber;
+            this.inputs = inputs;
+            this.window = window;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                error = new IllegalArgumentException("Requested count must be positive");
+            } else {
+                requested.getAndUpdate(current -> current + n < 0 ? Long.MAX_VALUE : current + n);
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            done = true;
+        }
+
+        private void drain() {
+            if (work.getAndIncrement() != 0) {
+                return;
+            }
+            do {
+                if (!done && error != null) {
+                    done = true;
+                    subscriber.onError(error);
+                }
+                while (!done && requested.get() > 0 && !pending.isEmpty() && pending.peek().isDone()) {
+                    final CompletableFuture<String> head = pending.remove();
+                    final String poem;
+                    try {
+                        poem = head.join();
+                    } catch (RuntimeException e) {
+                        done = true;
+                        subscriber.onError(e.getCause() != null ? e.getCause() : e);
+                        break;
+                    }
+                    requested.decrementAndGet();
+                    subscriber.onNext(poem);
+                }
+                while (!done && pending.size() < window && pending.size() < requested.get() && inputs.hasNext()) {
+                    final CompletableFuture<String> poem = poemAsync(inputs.next());
+                    pending.add(poem);
+                    poem.whenComplete((result, e) -> drain());
+                }
+                if (!done && pending.isEmpty() && !inputs.hasNext()) {
+                    done = true;
+                    subscriber.onComplete();
+                }
+            } while (work.decrementAndGet() != 0);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package poet;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import graph.GraphMetrics;
+import graph.LatencyHistogram;
+
+/**
+ * Poem counts and latencies for one instrumented GraphPoet, together with the
+ * metrics of its affinity graph.
+ */
+public class PoetMetrics implements PoetMetricsMBean {
+
+    private final LatencyHistogram poem = new LatencyHistogram();
+    private final GraphMetrics graphMetrics;
+    private volatile ObjectName registeredName;
+
+    // Abstraction function:
+    //   AF(poem, graphMetrics) = the metrics of a poet, where 'poem' holds the
+    //     latencies of its poem() calls and 'graphMetrics' those of its graph.
+    // Representation invariant:
+    //   - poem != null, graphMetrics != null
+    // Safety from rep exposure:
+    //   - Fields are private; the histogram is never returned.
+    //   - 'graphMetrics' is returned deliberately so it can be read and published.
+
+    PoetMetrics(GraphMetrics graphMetrics) {
+        this.graphMetrics = graphMetrics;
+    }
+
+    void recordPoem(long nanos) {
+        poem.record(nanos);
+    }
+
+    /**
+     * @return metrics of the poet's affinity graph
+     */
+    public GraphMetrics graphMetrics() {
+        return graphMetrics;
+    }
+
+    /**
+     * Publish these metrics, and those of the poet's graph, on the platform
+     * MBean server.
+     * 
+     * @param name value of the "name" key of both MBeans' ObjectNames
+     * @return the ObjectName the poet metrics were registered under
+     * @throws JMException if the name is malformed or already registered, in
+     *         which case neither MBean is left registered
+     */
+    public ObjectName register(String name) throws JMException {
+        final ObjectName objectName = new ObjectName("poet:type=PoetMetrics,name=" + ObjectName.quote(name));
+        // graph first, so a failure on either name leaves neither MBean registered
+        graphMetrics.register(name);
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        } catch (JMException e) {
+            graphMetrics.unregister();
+            throw e;
+        }
+        registeredName = objectName;
+        return objectName;
+    }
+
+    /**
+     * Remove these metrics, and those of the poet's graph, from the platform
+     * MBean server, if registered.
+     * 
+     * @throws JMException if the MBean server refuses to unregister them
+     */
+    public void unregister() throws JMException {
+        final ObjectName objectName = registeredName;
+        if (objectName != null) {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            registeredName = null;
+        }
+        graphMetrics.unregister();
+    }
+
+    @Override public long getPoemCount() { return poem.count(); }
+    @Override public double getPoemMeanNanos() { return poem.mean(); }
+    @Override public long getPoemP50Nanos() { return poem.percentile(50); }
+    @Override public long getPoemP99Nanos() { return poem.percentile(99); }
+    @Override public long getPoemMaxNanos() { return poem.max(); }
+
+    @Override
+    public void reset() {
+        poem.reset();
+        graphMetrics.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "poem: " + poem + "\n" + graphMetrics;
+    }
+}
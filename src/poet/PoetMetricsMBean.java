@@ -0,0 +1,17 @@
+package poet;
+
+/**
+ * JMX management interface for {@link PoetMetrics}.
+ * 
+ * <p>Latencies are in nanoseconds.
+ */
+public interface PoetMetricsMBean {
+
+    long getPoemCount();
+    double getPoemMeanNanos();
+    long getPoemP50Nanos();
+    long getPoemP99Nanos();
+    long getPoemMaxNanos();
+
+    void reset();
+}
@@ -0,0 +1,74 @@
+package poet;
+
+import java.io.File;
+import java.io.IOException;
+
+import graph.GraphMetrics;
+
+/**
+ * Reports what vocabulary pruning and edge thresholds save on a corpus.
+ * 
+ * <p>Builds an unpruned poet and a pruned one from the same corpus, and
+ * prints the vertex count, edge count, estimated graph heap and build time
+ * of each, with the savings. Both are built several times, alternately, and
+ * the fastest build of each is reported, so JIT warm-up does not favor
+ * either.
+ */
+public class PruningReport {
+    
+    /**
+     * Run the report.
+     * 
+     * @param args corpus file, then optionally: minimum word count (default 2),
+     *        minimum edge weight (default 2), builds of each poet (default 3)
+     * @throws IOException if the corpus file cannot be found or read
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            usage();
+        }
+        final File corpus = new File(args[0]);
+        final int minWordCount = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        final int minEdgeWeight = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+        final int rounds = args.length > 3 ? Integer.parseInt(args[3]) : 3;
+        if (rounds < 1) {
+            usage();
+        }
+        
+        GraphPoet full = null;
+        GraphPoet pruned = null;
+        long fullNanos = Long.MAX_VALUE;
+        long prunedNanos = Long.MAX_VALUE;
+        for (int round = 0; round < rounds; round++) {
+            // drop the previous poet first, so it can be collected during the build
+            full = null;
+            long start = System.nanoTime();
+            full = new GraphPoet(corpus, true);
+            fullNanos = Math.min(fullNanos, System.nanoTime() - start);
+            
+            pruned = null;
+            start = System.nanoTime();
+            pruned = GraphPoet.pruned(corpus, true, minWordCount, minEdgeWeight);
+            prunedNanos = Math.min(prunedNanos, System.nanoTime() - start);
+        }
+        final GraphMetrics fullGraph = full.metrics().get().graphMetrics();
+        final GraphMetrics prunedGraph = pruned.metrics().get().graphMetrics();
+        
+        System.out.printf("%-28s %12s %12s %8s%n", "", "full", "pruned", "saved");
+        row("vertices", fullGraph.getVertexCount(), prunedGraph.getVertexCount());
+        row("edges", fullGraph.getEdgeCount(), prunedGraph.getEdgeCount());
+        row("estimated graph bytes", fullGraph.getEstimatedBytes(), prunedGraph.getEstimatedBytes());
+        row("build ms", fullNanos / 1_000_000, prunedNanos / 1_000_000);
+        System.out.printf("(minWordCount %d, minEdgeWeight %d)%n", minWordCount, minEdgeWeight);
+    }
+    
+    private static void usage() {
+        System.err.println("usage: PruningReport corpus [minWordCount] [minEdgeWeight] [rounds >= 1]");
+        System.exit(2);
+    }
+    
+    private static void row(String name, long full, long pruned) {
+        System.out.printf("%-28s %12d %12d %7.1f%%%n", name, full, pruned,
+                full == 0 ? 0.0 : 100.0 * (full - pruned) / full);
+    }
+}
@@ -0,0 +1,20 @@
+package graph;
+
+/**
+ * Tests for AdjacencyListGraph.
+ * 
+ * This class runs the GraphInstanceTest tests against AdjacencyListGraph, as
+ * well as additional tests for the AdjacencyListGraph implementation.
+ * 
+ * Tests specific to the Graph interface should be in GraphInstanceTest.
+ */
+public class AdjacencyListGraphTest extends GraphInstanceTest {
+
+    /*
+     * Provide an AdjacencyListGraph for tests in GraphInstanceTest.
+     */
+    @Override
+    public Graph<String> emptyInstance() {
+        return new AdjacencyListGraph<>();
+    }
+}
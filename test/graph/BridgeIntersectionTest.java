@@ -0,0 +1,130 @@
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+/**
+ * Tests for BridgeIntersection.
+ */
+public class BridgeIntersectionTest {
+    
+    // Testing strategy
+    //   - lists: empty, disjoint, one common id, several common ids
+    //   - ties: best sum shared by several ids
+    //   - lengths: similar (merge, with and without block skips), skewed
+    //     beyond GALLOP_RATIO in either direction (galloping)
+    //   - lengths used: whole arrays, prefixes of longer arrays
+    //   - randomized comparison against a map-based reference
+    //   - CompressedGraph.bestBridge
+    
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+    
+    private static int best(int[] a, int[] aWeights, int[] b, int[] bWeights) {
+        return BridgeIntersection.best(a, aWeights, a.length, b, bWeights, b.length);
+    }
+    
+    @Test
+    public void testEmptyAndDisjoint() {
+        assertEquals(-1, best(new int[0], new int[0], new int[] { 1 }, new int[] { 1 }));
+        assertEquals(-1, best(new int[] { 1, 3, 5 }, new int[] { 1, 1, 1 },
+                new int[] { 0, 2, 4, 6 }, new int[] { 1, 1, 1, 1 }));
+    }
+    
+    @Test
+    public void testBestAndTies() {
+        int[] a = { 1, 2, 3, 7, 9, 10, 11, 20 };
+        int[] aWeights = { 1, 5, 1, 2, 3, 1, 1, 9 };
+        int[] b = { 2, 7, 8, 9, 12, 13, 14, 15 };
+        int[] bWeights = { 1, 4, 1, 3, 1, 1, 1, 1 };
+        // 2 -> 6, 7 -> 6, 9 -> 6: tie broken by smallest id
+        assertEquals(2, best(a, aWeights, b, bWeights));
+        assertEquals(2, best(b, bWeights, a, aWeights));
+        bWeights[3] = 4;
+        assertEquals(9, best(a, aWeights, b, bWeights));
+        // prefix lengths exclude the later ids
+        assertEquals(2, BridgeIntersection.best(a, aWeights, 4, b, bWeights, 8));
+    }
+    
+    @Test
+    public void testSkewedLengthsGallop() {
+        int[] large = new int[1000];
+        int[] largeWeights = new int[1000];
+        for (int i = 0; i < large.length; i++) {
+            large[i] = 3 * i;
+            largeWeights[i] = 1;
+        }
+        largeWeights[500] = 10;
+        int[] small = { 0, 1500, 1501, 2997 };
+        int[] smallWeights = { 5, 1, 100, 5 };
+        assertEquals(1500, best(small, smallWeights, large, largeWeights));
+        assertEquals(1500, best(large, largeWeights, small, smallWeights));
+        assertEquals(-1, best(new int[] { 1, 2999, 5000 }, new int[] { 1, 1, 1 }, large, largeWeights));
+    }
+    
+    @Test
+    public void testRandomAgainstReference() {
+        Random random = new Random(7);
+        for (int trial = 0; trial < 500; trial++) {
+            int universe = 1 + random.nextInt(2000);
+            TreeMap<Integer, Integer> a = randomList(random, universe, random.nextInt(60));
+            TreeMap<Integer, Integer> b = randomList(random, universe, random.nextInt(trial % 2 == 0 ? 60 : 2000));
+            int expected = -1;
+            int expectedWeight = 0;
+            for (Integer id : a.keySet()) {
+                if (b.containsKey(id) && a.get(id) + b.get(id) > expectedWeight) {
+                    expected = id;
+                    expectedWeight = a.get(id) + b.get(id);
+                }
+            }
+            int[] aIds = ids(a);
+            int[] aWeights = weights(a);
+            int[] bIds = ids(b);
+            int[] bWeights = weights(b);
+            String message = "trial " + trial + ": " + a + " " + b;
+            assertEquals(message, expected, best(aIds, aWeights, bIds, bWeights));
+            assertEquals(message, expected, best(bIds, bWeights, aIds, aWeights));
+            assertEquals(message, expected,
+                    BridgeIntersection.merge(aIds, aWeights, aIds.length, bIds, bWeights, bIds.length));
+            assertEquals(message, expected,
+                    BridgeIntersection.gallop(aIds, aWeights, aIds.length, bIds, bWeights, bIds.length));
+        }
+    }
+    
+    private static TreeMap<Integer, Integer> randomList(Random random, int universe, int size) {
+        TreeMap<Integer, Integer> list = new TreeMap<>();
+        for (int i = 0; i < size; i++) {
+            list.put(random.nextInt(universe), 1 + random.nextInt(4));
+        }
+        return list;
+    }
+    
+    private static int[] ids(TreeMap<Integer, Integer> list) {
+        return list.keySet().stream().mapToInt(Integer::intValue).toArray();
+    }
+    
+    private static int[] weights(TreeMap<Integer, Integer> list) {
+        return list.values().stream().mapToInt(Integer::intValue).toArray();
+    }
+    
+    @Test
+    public void testCompressedGraphBestBridge() {
+        Graph<String> graph = Graph.empty();
+        graph.set("a", "b", 1);
+        graph.set("b", "c", 1);
+        graph.set("a", "d", 2);
+        graph.set("d", "c", 1);
+        graph.set("a", "e", 1);
+        CompressedGraph<String> compressed = CompressedGraph.of(graph);
+        assertEquals("d", compressed.label(compressed.bestBridge(compressed.id("a"), compressed.id("c"))));
+        assertEquals(-1, compressed.bestBridge(compressed.id("c"), compressed.id("a")));
+        assertEquals(-1, compressed.bestBridge(compressed.id("e"), compressed.id("c")));
+    }
+    
+}
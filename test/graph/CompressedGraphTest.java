@@ -0,0 +1,97 @@
+package graph;
+
+import static graph.GraphInstanceTest.assertSameGraph;
+import static org.junit.Assert.*;
+
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests for CompressedGraph.
+ */
+public class CompressedGraphTest {
+
+    // Testing strategy:
+    // - source graph: empty, isolated vertices, self loops, random graph with
+    //   skewed degrees and weights above one varint byte
+    // - observers: label-based match the source graph; id-based return
+    //   neighbors in increasing id order
+    // - footprint: much smaller than the hash-map graph it was built from
+    // - mutators throw
+
+    @Test(expected = AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    @Test
+    public void testEmptyAndSmallGraphs() {
+        CompressedGraph<String> empty = CompressedGraph.of(Graph.empty());
+        assertEquals(0, empty.vertexCount());
+        assertTrue(empty.vertices().isEmpty());
+        assertEquals(Map.of(), empty.targets("a"));
+        assertEquals(-1, empty.id("a"));
+
+        Graph<String> graph = Graph.empty();
+        graph.add("lonely");
+        graph.set("a", "a", 1);
+        graph.set("a", "b", 300);
+        graph.set("b", "a", 2);
+        CompressedGraph<String> compressed = CompressedGraph.of(graph);
+        assertEquals(graph.vertices(), compressed.vertices());
+        assertEquals(Map.of("a", 1, "b", 300), compressed.targets("a"));
+        assertEquals(Map.of("a", 1, "b", 2), compressed.sources("a"));
+        assertEquals(Map.of(), compressed.targets("lonely"));
+        assertEquals(2, compressed.outDegree(compressed.id("a")));
+        assertEquals(0, compressed.inDegree(compressed.id("lonely")));
+    }
+
+    @Test
+    public void testMatchesSourceGraph() {
+        Random random = new Random(34);
+        Graph<Integer> graph = Graph.empty();
+        for (int i = 0; i < 20_000; i++) {
+            int source = (int) Math.abs(random.nextGaussian() * 300);
+            int target = (int) Math.abs(random.nextGaussian() * 300);
+            int weight = random.nextInt(20) == 0 ? 1000 + random.nextInt(100_000) : 1 + random.nextInt(3);
+            graph.set(source, target, weight);
+        }
+        CompressedGraph<Integer> compressed = CompressedGraph.of(graph);
+        assertSameGraph(graph, compressed);
+        int[] neighbors = new int[compressed.vertexCount()];
+        int[] weights = new int[compressed.vertexCount()];
+        for (int vertex : graph.vertices()) {
+            int degree = compressed.targets(compressed.id(vertex), neighbors, weights);
+            assertEquals(graph.targets(vertex).size(), degree);
+            for (int i = 0; i < degree; i++) {
+                assertTrue(i == 0 || neighbors[i - 1] < neighbors[i]);
+                assertEquals(graph.targets(vertex).get(compressed.label(neighbors[i])).intValue(), weights[i]);
+            }
+            degree = compressed.sources(compressed.id(vertex), neighbors, weights);
+            assertEquals(graph.sources(vertex).size(), degree);
+        }
+    }
+
+    @Test
+    public void testFootprintShrinks() {
+        AdjacencyListGraph<Integer> graph = new AdjacencyListGraph<>();
+        Random random = new Random(34);
+        for (int i = 0; i < 50_000; i++) {
+            graph.set(random.nextInt(2000), random.nextInt(2000), 1 + random.nextInt(2));
+        }
+        MemoryFootprint original = graph.memoryFootprint();
+        MemoryFootprint compressed = CompressedGraph.of(graph).memoryFootprint();
+        assertEquals(original.edges(), compressed.edges());
+        // compressed stores both directions, the original only out-edges
+        assertTrue(original + " vs " + compressed, compressed.edgeBytes() * 6 < original.edgeBytes());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testReadOnly() {
+        Graph<String> graph = Graph.empty();
+        graph.add("a");
+        CompressedGraph.of(graph).set("a", "a", 1);
+    }
+}
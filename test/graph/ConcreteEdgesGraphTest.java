@@ -2,6 +2,9 @@ package graph;
 
 import static org.junit.Assert.*;
 
+import java.util.List;
+import java.util.Random;
+
 import org.junit.Test;
 
 /**
@@ -19,7 +22,7 @@ public class ConcreteEdgesGraphTest extends GraphInstanceTest {
      */
     @Override
     public Graph<String> emptyInstance() {
-        return new ConcreteEdgesGraph();
+        return new ConcreteEdgesGraph<>();
     }
     
     /*
@@ -58,6 +61,35 @@ public class ConcreteEdgesGraphTest extends GraphInstanceTest {
         assertEquals("Vertices:\na\nb\nc\nEdges:\na -> b : 1\nb -> c : 2\n", graph.toString());
     }
 
+    // Testing strategy for bulk removal above the parallel threshold:
+    // - removeAll and retainIf on a random graph, with the threshold lowered
+    //   so the edge list is filtered in parallel; compared against a reference
+
+    @Test
+    public void testParallelBulkRemovalMatchesReference() {
+        final int threshold = ConcreteEdgesGraph.parallelThreshold;
+        ConcreteEdgesGraph.parallelThreshold = 1;
+        try {
+            ConcreteEdgesGraph<String> graph = new ConcreteEdgesGraph<>();
+            Graph<String> reference = Graph.empty();
+            Random random = new Random(39);
+            for (int i = 0; i < 400; i++) {
+                String source = "v" + random.nextInt(60);
+                String target = "v" + random.nextInt(60);
+                int weight = 1 + random.nextInt(9);
+                assertEquals(reference.set(source, target, weight), graph.set(source, target, weight));
+            }
+            List<String> victims = List.of("v1", "v2", "v3", "v5", "v8", "v13", "v21", "v34", "v55");
+            assertEquals(BulkRemovable.removeAll(reference, victims), graph.removeAll(victims));
+            assertSameGraph(reference, graph);
+            assertEquals(BulkRemovable.retainIf(reference, v -> v.hashCode() % 3 != 0),
+                    graph.retainIf(v -> v.hashCode() % 3 != 0));
+            assertSameGraph(reference, graph);
+        } finally {
+            ConcreteEdgesGraph.parallelThreshold = threshold;
+        }
+    }
+
     /*
      * Testing Edge...
      */
@@ -75,19 +107,19 @@ public class ConcreteEdgesGraphTest extends GraphInstanceTest {
     @Test
     public void testEdgeCreationAndGetters() {
         // Test typical edge
-        Edge edge = new Edge("a", "b", 1);
+        Edge<String> edge = new Edge<>("a", "b", 1);
         assertEquals("a", edge.getSource());
         assertEquals("b", edge.getTarget());
         assertEquals(1, edge.getWeight());
 
         // Test edge with empty target
-        edge = new Edge("ab", "", 0);
+        edge = new Edge<>("ab", "", 0);
         assertEquals("ab", edge.getSource());
         assertEquals("", edge.getTarget());
         assertEquals(0, edge.getWeight());
 
         // Test edge with larger weight
-        edge = new Edge("a", "b", 100);
+        edge = new Edge<>("a", "b", 100);
         assertEquals("a", edge.getSource());
         assertEquals("b", edge.getTarget());
         assertEquals(100, edge.getWeight());
@@ -96,15 +128,15 @@ public class ConcreteEdgesGraphTest extends GraphInstanceTest {
     @Test
     public void testEdgeToString() {
         // Test typical edge
-        Edge edge = new Edge("a", "b", 1);
+        Edge<String> edge = new Edge<>("a", "b", 1);
         assertEquals("a -> b : 1", edge.toString());
 
         // Test edge with empty target
-        edge = new Edge("ab", "", 0);
+        edge = new Edge<>("ab", "", 0);
         assertEquals("ab ->  : 0", edge.toString());
 
         // Test edge with larger weight
-        edge = new Edge("a", "b", 100);
+        edge = new Edge<>("a", "b", 100);
         assertEquals("a -> b : 100", edge.toString());
     }
 }
@@ -19,7 +19,7 @@ public class ConcreteVerticesGraphTest extends GraphInstanceTest {
      */
     @Override
     public Graph<String> emptyInstance() {
-        return new ConcreteVerticesGraph();
+        return new ConcreteVerticesGraph<>();
     }
 
     /*
@@ -70,7 +70,7 @@ public class ConcreteVerticesGraphTest extends GraphInstanceTest {
     @Test
     public void testVertexCreationAndEdges() {
         // Test vertex with no edges
-        Vertex vertex = new Vertex("a");
+        Vertex<String> vertex = new Vertex<>("a");
         assertEquals("a", vertex.getSource());
         assertTrue(vertex.getOutEdges().isEmpty());
 
@@ -88,7 +88,7 @@ public class ConcreteVerticesGraphTest extends GraphInstanceTest {
 
     @Test
     public void testVertexAddOutEdge() {
-        Vertex vertex = new Vertex("a");
+        Vertex<String> vertex = new Vertex<>("a");
 
         // Add first outgoing edge
         vertex.addOutEdge("b", 1);
@@ -103,7 +103,7 @@ public class ConcreteVerticesGraphTest extends GraphInstanceTest {
 
     @Test
     public void testVertexRemoveOutEdge() {
-        Vertex vertex = new Vertex("a");
+        Vertex<String> vertex = new Vertex<>("a");
         vertex.addOutEdge("b", 1);
         vertex.addOutEdge("c", 2);
 
@@ -120,7 +120,7 @@ public class ConcreteVerticesGraphTest extends GraphInstanceTest {
 
     @Test
     public void testVertexToString() {
-        Vertex vertex = new Vertex("a");
+        Vertex<String> vertex = new Vertex<>("a");
 
         // Test vertex with no outgoing edges
         assertEquals("a -> \n", vertex.toString());
@@ -0,0 +1,49 @@
+package graph;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Tests for DenseEdgesGraph.
+ *
+ * This class runs the DenseGraphInstanceTest tests against DenseEdgesGraph,
+ * as well as additional tests for the DenseEdgesGraph implementation.
+ */
+public class DenseEdgesGraphTest extends DenseGraphInstanceTest {
+
+    /*
+     * Provide a DenseEdgesGraph for tests in DenseGraphInstanceTest.
+     */
+    @Override
+    public DenseGraph emptyInstance() {
+        return new DenseEdgesGraph();
+    }
+
+    /*
+     * Testing DenseEdgesGraph...
+     */
+
+    // Testing strategy:
+    // - edgeCount: after adding, reweighting and removing edges and vertices
+    // - compact(): trims the three edge arrays to the edge count
+
+    @Test
+    public void testEdgeCountAndCompact() {
+        DenseEdgesGraph graph = new DenseEdgesGraph();
+        for (int i = 0; i < 40; i++) {
+            graph.set(i, i + 1, i + 1);
+        }
+        assertEquals(40, graph.edgeCount());
+        graph.set(3, 4, 9);
+        graph.set(5, 6, 0);
+        graph.remove(10);
+        assertEquals(37, graph.edgeCount());
+
+        graph.compact();
+        MemoryFootprint footprint = graph.memoryFootprint();
+        assertEquals(37, footprint.edges());
+        assertEquals(3 * MemoryFootprint.arrayBytes(37), footprint.edgeBytes());
+        assertEquals(9, graph.weight(3, 4));
+    }
+}
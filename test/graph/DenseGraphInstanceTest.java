@@ -0,0 +1,149 @@
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Tests for instance methods of DenseGraph.
+ *
+ * Implementation-specific tests, such as the order of neighbor ids, belong in
+ * the subclasses.
+ */
+public abstract class DenseGraphInstanceTest {
+
+    // Testing strategy:
+    // - operations: add, set (new edge, changed weight, weight 0), remove,
+    //   removeAll, retainIf, compact, in random order against a reference
+    //   Graph<Integer> with the same labels
+    // - ids: 0, sparse ids that force growth, absent ids, negative ids
+    // - observers: label-based match the reference graph; id-based agree with
+    //   them and with the degrees, in any order
+    // - footprint: no boxing bytes
+
+    /**
+     * Overridden by implementation-specific test classes.
+     *
+     * @return a new empty graph of the particular implementation being tested
+     */
+    public abstract DenseGraph emptyInstance();
+
+    @Test(expected = AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    @Test
+    public void testIntIds() {
+        DenseGraph graph = emptyInstance();
+        assertEquals(0, graph.set(0, 7, 3));
+        assertEquals(0, graph.set(0, 2, 1));
+        assertEquals(0, graph.set(0, 100, 5));
+        assertEquals(0, graph.set(5, 2, 9));
+        assertEquals(3, graph.set(0, 7, 4));
+        assertEquals(5, graph.vertexCount());
+        assertTrue(graph.contains(100));
+        assertFalse(graph.contains(99));
+        assertFalse(graph.contains(-1));
+        assertEquals(4, graph.weight(0, 7));
+        assertEquals(0, graph.weight(7, 0));
+
+        int[] ids = new int[3];
+        int[] weights = new int[3];
+        assertEquals(3, graph.outDegree(0));
+        assertEquals(3, graph.targets(0, ids, weights));
+        assertEquals(Set.of(2, 7, 100), Set.of(ids[0], ids[1], ids[2]));
+        assertEquals(2, graph.inDegree(2));
+        assertEquals(2, graph.sources(2, ids, weights));
+        assertEquals(Set.of(0, 5), Set.of(ids[0], ids[1]));
+        assertEquals(0, graph.targets(99, ids, weights));
+        assertEquals(0, graph.targets(-1, ids, weights));
+
+        assertEquals(1, graph.set(0, 2, 0));
+        assertEquals(2, graph.outDegree(0));
+        assertTrue(graph.remove(7));
+        assertFalse(graph.remove(7));
+        assertFalse(graph.remove(-3));
+        assertEquals(Map.of(100, 5), graph.targets((Integer) 0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeIdRejected() {
+        emptyInstance().set(-1, 0, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeWeightRejected() {
+        emptyInstance().set(0, 1, -1);
+    }
+
+    @Test
+    public void testMatchesReferenceGraph() {
+        Random random = new Random(43);
+        DenseGraph dense = emptyInstance();
+        Graph<Integer> reference = Graph.empty();
+        for (int step = 0; step < 2000; step++) {
+            int roll = random.nextInt(100);
+            int a = random.nextInt(60);
+            int b = random.nextInt(60);
+            if (roll < 10) {
+                assertEquals(reference.add(a), dense.add(a));
+            } else if (roll < 80) {
+                int weight = random.nextInt(3) == 0 ? 0 : 1 + random.nextInt(500);
+                assertEquals(reference.set(a, b, weight), dense.set(a, b, weight));
+            } else if (roll < 92) {
+                assertEquals(reference.remove(a), dense.remove(a));
+            } else if (roll < 96) {
+                List<Integer> victims = Arrays.asList(a, b, a + 1);
+                assertEquals(BulkRemovable.removeAll(reference, victims), dense.removeAll(victims));
+            } else if (roll < 98) {
+                assertEquals(BulkRemovable.retainIf(reference, v -> v % 7 != b % 7),
+                        dense.retainIf(v -> v % 7 != b % 7));
+            } else {
+                dense.compact();
+            }
+        }
+        assertSameGraph(reference, dense);
+        dense.compact();
+        assertSameGraph(reference, dense);
+        assertEquals(0, dense.memoryFootprint().boxingBytes());
+    }
+
+    /**
+     * Assert that a dense graph over ids below 62 matches a reference graph,
+     * through both its label-based and id-based observers.
+     */
+    private static void assertSameGraph(Graph<Integer> expected, DenseGraph actual) {
+        Set<Integer> vertices = expected.vertices();
+        assertEquals(vertices, actual.vertices());
+        assertEquals(vertices.size(), actual.vertexCount());
+        long edges = 0;
+        int[] ids = new int[vertices.size()];
+        int[] weights = new int[vertices.size()];
+        for (int v = 0; v < 62; v++) {
+            Map<Integer, Integer> targets = expected.targets(v);
+            Map<Integer, Integer> sources = expected.sources(v);
+            assertEquals(targets, actual.targets(v));
+            assertEquals(sources, actual.sources(v));
+            assertEquals(targets.size(), actual.outDegree(v));
+            assertEquals(sources.size(), actual.inDegree(v));
+            int degree = actual.targets(v, ids, weights);
+            for (int i = 0; i < degree; i++) {
+                assertEquals(targets.get(ids[i]).intValue(), weights[i]);
+                assertEquals(weights[i], actual.weight(v, ids[i]));
+            }
+            degree = actual.sources(v, ids, weights);
+            for (int i = 0; i < degree; i++) {
+                assertEquals(sources.get(ids[i]).intValue(), weights[i]);
+            }
+            edges += targets.size();
+        }
+        assertEquals(edges, actual.memoryFootprint().edges());
+    }
+}
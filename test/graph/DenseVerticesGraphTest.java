@@ -0,0 +1,57 @@
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * Tests for DenseVerticesGraph.
+ *
+ * This class runs the DenseGraphInstanceTest tests against DenseVerticesGraph,
+ * as well as additional tests for the DenseVerticesGraph implementation.
+ */
+public class DenseVerticesGraphTest extends DenseGraphInstanceTest {
+
+    /*
+     * Provide a DenseVerticesGraph for tests in DenseGraphInstanceTest.
+     */
+    @Override
+    public DenseGraph emptyInstance() {
+        return new DenseVerticesGraph();
+    }
+
+    /*
+     * Testing DenseVerticesGraph...
+     */
+
+    // Testing strategy:
+    // - id-based observers return neighbors in increasing id order: edges set
+    //   in decreasing, increasing and mixed order; after removing an edge
+
+    @Test
+    public void testIdsInIncreasingOrder() {
+        DenseVerticesGraph graph = new DenseVerticesGraph();
+        graph.set(0, 7, 3);
+        graph.set(0, 2, 1);
+        graph.set(0, 100, 5);
+        graph.set(0, 7, 4);
+        graph.set(5, 2, 9);
+        graph.set(3, 2, 6);
+
+        int[] ids = new int[3];
+        int[] weights = new int[3];
+        assertEquals(3, graph.targets(0, ids, weights));
+        assertArrayEquals(new int[] { 2, 7, 100 }, ids);
+        assertArrayEquals(new int[] { 1, 4, 5 }, weights);
+        assertEquals(3, graph.sources(2, ids, weights));
+        assertArrayEquals(new int[] { 0, 3, 5 }, ids);
+        assertArrayEquals(new int[] { 1, 6, 9 }, weights);
+
+        graph.set(0, 7, 0);
+        assertEquals(2, graph.targets(0, ids, weights));
+        assertArrayEquals(new int[] { 2, 100 }, Arrays.copyOf(ids, 2));
+        assertArrayEquals(new int[] { 1, 5 }, Arrays.copyOf(weights, 2));
+    }
+}
@@ -0,0 +1,212 @@
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for DurableGraph.
+ * 
+ * This class runs the GraphInstanceTest tests against DurableGraph, as well
+ * as additional tests for its durability.
+ * 
+ * Tests specific to the Graph interface should be in GraphInstanceTest.
+ */
+public class DurableGraphTest extends GraphInstanceTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<Closeable> opened = new ArrayList<>();
+
+    /*
+     * Provide a DurableGraph in a new directory for tests in GraphInstanceTest.
+     */
+    @Override
+    public Graph<String> emptyInstance() {
+        try {
+            return open(newDirectory(), LabelCodec.STRING);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private File newDirectory() throws IOException {
+        return folder.newFolder();
+    }
+
+    /** Open a graph that is closed after the test, if the test does not close it. */
+    private <L> DurableGraph<L> open(File directory, LabelCodec<L> codec) throws IOException {
+        return open(new DurableGraph<>(directory, codec));
+    }
+
+    private <L> DurableGraph<L> open(DurableGraph<L> graph) {
+        opened.add(graph);
+        return graph;
+    }
+
+    @After
+    public void closeGraphs() throws IOException {
+        for (Closeable graph : opened) {
+            graph.close();
+        }
+    }
+
+    /*
+     * Testing DurableGraph...
+     */
+
+    // Testing strategy:
+    // - reopen after: close, sync without close (crash), no sync at all
+    //   within a batch (mutations may be lost), checkpoint, checkpoint
+    //   followed by more mutations
+    // - log tail: intact, torn, corrupt
+    // - many mutations: fsyncs are batched, not one per mutation
+    // - operations after close: mutators and checkpoint() throw
+
+    @Test
+    public void testReopenAfterClose() throws IOException {
+        File directory = newDirectory();
+        DurableGraph<String> graph = open(directory, LabelCodec.STRING);
+        graph.add("lonely");
+        graph.set("a", "b", 1);
+        graph.set("b", "c", 2);
+        graph.set("a", "c", 3);
+        graph.set("a", "c", 0);
+        graph.remove("b");
+        graph.close();
+
+        DurableGraph<String> reopened = open(directory, LabelCodec.STRING);
+        assertEquals(Set.of("lonely", "a", "c"), reopened.vertices());
+        assertEquals(Map.of(), reopened.targets("a"));
+        reopened.close();
+    }
+
+    @Test
+    public void testReopenAfterCrash() throws IOException {
+        File directory = newDirectory();
+        DurableGraph<String> graph = open(directory, LabelCodec.STRING);
+        graph.set("a", "b", 1);
+        graph.sync();
+        graph.set("b", "c", 2);
+        graph.sync();
+        // abandoned without close
+
+        DurableGraph<String> reopened = open(directory, LabelCodec.STRING);
+        assertEquals(Map.of("b", 1), reopened.targets("a"));
+        assertEquals(Map.of("c", 2), reopened.targets("b"));
+        reopened.close();
+    }
+
+    @Test
+    public void testTornAndCorruptTailDiscarded() throws IOException {
+        File directory = newDirectory();
+        DurableGraph<String> graph = open(directory, LabelCodec.STRING);
+        graph.set("a", "b", 1);
+        graph.close();
+        File log = new File(directory, DurableGraph.LOG);
+        long intact = log.length();
+
+        try (FileOutputStream out = new FileOutputStream(log, true)) {
+            out.write(new byte[] { 0, 0, 0, 20, 2, 0 }); // torn record
+        }
+        DurableGraph<String> torn = open(directory, LabelCodec.STRING);
+        assertEquals(Map.of("b", 1), torn.targets("a"));
+        assertEquals(intact, log.length());
+        torn.close();
+
+        try (FileOutputStream out = new FileOutputStream(log, true)) {
+            out.write(new byte[] { 0, 0, 0, 1, 1, 0, 0, 0, 0 }); // bad checksum
+        }
+        DurableGraph<String> corrupt = open(directory, LabelCodec.STRING);
+        assertEquals(Set.of("a", "b"), corrupt.vertices());
+        corrupt.set("b", "c", 4);
+        corrupt.close();
+
+        DurableGraph<String> reopened = open(directory, LabelCodec.STRING);
+        assertEquals(Map.of("c", 4), reopened.targets("b"));
+        reopened.close();
+    }
+
+    @Test
+    public void testCheckpoint() throws IOException {
+        File directory = newDirectory();
+        DurableGraph<Integer> graph = open(directory, LabelCodec.INTEGER);
+        for (int i = 0; i < 100; i++) {
+            graph.set(i, i + 1, i + 1);
+        }
+        graph.checkpoint();
+        assertEquals(0, new File(directory, DurableGraph.LOG).length());
+        graph.remove(50);
+        graph.set(0, 1, 7);
+        graph.close();
+
+        DurableGraph<Integer> reopened = open(directory, LabelCodec.INTEGER);
+        assertEquals(100, reopened.vertices().size());
+        assertFalse(reopened.vertices().contains(50));
+        assertEquals(Map.of(1, 7), reopened.targets(0));
+        assertEquals(Map.of(), reopened.sources(51));
+        assertEquals(Map.of(48, 49), reopened.sources(49));
+        reopened.close();
+    }
+
+    @Test
+    public void testAutomaticCheckpointAndBatchedSync() throws IOException {
+        File directory = newDirectory();
+        DurableGraph<Integer> graph = open(
+                new DurableGraph<>(directory, LabelCodec.INTEGER, 0, 4 * DurableGraph.BATCH_BYTES));
+        int updates = 50_000;
+        for (int i = 0; i < updates; i++) {
+            graph.set(i % 1000, (i * 7) % 1000, 1 + i % 5);
+        }
+        assertTrue("fsyncs: " + graph.fsyncs(), graph.fsyncs() < updates / 1000);
+        assertTrue(new File(directory, DurableGraph.SNAPSHOT).exists());
+        Map<Integer, Integer> targets = graph.targets(3);
+        graph.close();
+
+        DurableGraph<Integer> reopened = open(directory, LabelCodec.INTEGER);
+        assertEquals(targets, reopened.targets(3));
+        reopened.close();
+    }
+
+    @Test
+    public void testBackgroundSync() throws IOException, InterruptedException {
+        File directory = newDirectory();
+        DurableGraph<String> graph = open(new DurableGraph<>(directory, LabelCodec.STRING, 10, 1 << 20));
+        graph.set("a", "b", 1);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (graph.fsyncs() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(graph.fsyncs() > 0);
+        graph.close();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testMutationAfterClose() throws IOException {
+        DurableGraph<String> graph = open(newDirectory(), LabelCodec.STRING);
+        graph.close();
+        graph.add("a");
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testCheckpointAfterClose() throws IOException {
+        DurableGraph<String> graph = open(newDirectory(), LabelCodec.STRING);
+        graph.set("a", "b", 1);
+        graph.close();
+        graph.checkpoint();
+    }
+}
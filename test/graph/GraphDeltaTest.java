@@ -0,0 +1,157 @@
+package graph;
+
+import static graph.GraphInstanceTest.assertSameGraph;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests for GraphDelta.
+ */
+public class GraphDeltaTest {
+
+    // Testing strategy:
+    // - graphs: equal, empty to non-empty, non-empty to empty, large graph
+    //   with a small fraction of random changes
+    // - changes: vertex removed (with edges to and from it), vertex added with
+    //   and without edges, edge added, reweighted, removed between kept vertices
+    // - applied: directly, after a round trip through the binary format, to a
+    //   VersionedGraph through update()
+    // - format: String and Integer labels; bytes in proportion to changes;
+    //   bad magic or truncated input throws IOException
+
+    @Test(expected = AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    @Test
+    public void testEqualGraphsHaveEmptyDelta() throws IOException {
+        Graph<String> graph = Graph.empty();
+        graph.set("a", "b", 1);
+        graph.add("c");
+        Graph<String> same = copy(graph);
+        GraphDelta<String> delta = GraphDelta.diff(graph, same);
+        assertTrue(delta.isEmpty());
+        GraphDelta<String> read = roundTrip(delta, LabelCodec.STRING);
+        assertTrue(read.isEmpty());
+        read.apply(graph);
+        assertSameGraph(same, graph);
+    }
+
+    @Test
+    public void testEachKindOfChange() throws IOException {
+        Graph<String> from = Graph.empty();
+        from.set("a", "b", 1);
+        from.set("b", "c", 2);
+        from.set("c", "a", 3);
+        from.set("gone", "a", 4);
+        from.set("a", "gone", 5);
+        Graph<String> to = copy(from);
+        to.remove("gone");
+        to.add("lonely");
+        to.set("a", "new", 6);
+        to.set("a", "c", 7);
+        to.set("b", "c", 8);
+        to.set("c", "a", 0);
+
+        GraphDelta<String> delta = GraphDelta.diff(from, to);
+        assertEquals(1, delta.removedVertices());
+        assertEquals(2, delta.addedVertices());
+        assertEquals(2, delta.addedEdges());
+        assertEquals(1, delta.reweightedEdges());
+        assertEquals(1, delta.removedEdges());
+        assertEquals("GraphDelta(-1 +2 vertices, +2 ~1 -1 edges)", delta.toString());
+
+        Graph<String> applied = copy(from);
+        delta.apply(applied);
+        assertSameGraph(to, applied);
+        applied = copy(from);
+        roundTrip(delta, LabelCodec.STRING).apply(applied);
+        assertSameGraph(to, applied);
+
+        // and back again
+        Graph<String> reverted = copy(to);
+        GraphDelta.diff(to, from).apply(reverted);
+        assertSameGraph(from, reverted);
+    }
+
+    @Test
+    public void testToAndFromEmpty() throws IOException {
+        Graph<Integer> graph = new ConcreteVerticesGraph<>();
+        graph.set(1, 2, 300);
+        graph.set(2, 1, 1);
+        graph.add(7);
+        Graph<Integer> built = new ConcreteVerticesGraph<>();
+        roundTrip(GraphDelta.diff(Graph.empty(), graph), LabelCodec.INTEGER).apply(built);
+        assertSameGraph(graph, built);
+        GraphDelta.diff(graph, Graph.empty()).apply(built);
+        assertTrue(built.vertices().isEmpty());
+    }
+
+    @Test
+    public void testSmallChangeToLargeGraphIsSmallDelta() throws IOException {
+        Graph<String> from = GraphGenerator.powerLaw(Graph.empty(), 5000, 50000, 1.0, 45);
+        Graph<String> to = copy(from);
+        Random random = new Random(45);
+        List<String> vertices = new ArrayList<>(from.vertices());
+        for (int i = 0; i < 200; i++) {
+            String source = vertices.get(random.nextInt(vertices.size()));
+            String target = vertices.get(random.nextInt(vertices.size()));
+            to.set(source, target, random.nextInt(3) == 0 ? 0 : 1 + random.nextInt(50));
+        }
+        for (int i = 0; i < 10; i++) {
+            to.remove(vertices.get(random.nextInt(vertices.size())));
+            to.set("fresh" + i, vertices.get(random.nextInt(vertices.size())), 1);
+        }
+
+        GraphDelta<String> delta = GraphDelta.diff(from, to);
+        byte[] bytes = write(delta, LabelCodec.STRING);
+        byte[] full = write(GraphDelta.diff(Graph.empty(), to), LabelCodec.STRING);
+        assertTrue(bytes.length + " vs " + full.length, bytes.length * 20 < full.length);
+
+        VersionedGraph<String> running = new VersionedGraph<>();
+        GraphDelta.diff(Graph.empty(), from).apply(running);
+        long version = running.snapshot().version();
+        GraphDelta<String> read = GraphDelta.read(new ByteArrayInputStream(bytes), LabelCodec.STRING);
+        running.update(read::apply);
+        assertEquals(version + 1, running.snapshot().version());
+        assertSameGraph(to, running);
+    }
+
+    @Test(expected = IOException.class)
+    public void testBadMagic() throws IOException {
+        GraphDelta.read(new ByteArrayInputStream(new byte[] { 1, 2, 3, 4, 0, 0, 0, 1, 0 }), LabelCodec.STRING);
+    }
+
+    @Test(expected = IOException.class)
+    public void testTruncated() throws IOException {
+        Graph<String> to = Graph.empty();
+        to.set("a", "b", 1);
+        byte[] bytes = write(GraphDelta.diff(Graph.empty(), to), LabelCodec.STRING);
+        GraphDelta.read(new ByteArrayInputStream(bytes, 0, bytes.length - 1), LabelCodec.STRING);
+    }
+
+    private static <L> byte[] write(GraphDelta<L> delta, LabelCodec<L> codec) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        delta.write(out, codec);
+        return out.toByteArray();
+    }
+
+    private static <L> GraphDelta<L> roundTrip(GraphDelta<L> delta, LabelCodec<L> codec) throws IOException {
+        return GraphDelta.read(new ByteArrayInputStream(write(delta, codec)), codec);
+    }
+
+    private static Graph<String> copy(Graph<String> graph) {
+        Graph<String> copy = Graph.empty();
+        GraphDelta.diff(Graph.empty(), graph).apply(copy);
+        return copy;
+    }
+}
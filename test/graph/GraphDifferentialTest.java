@@ -0,0 +1,544 @@
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Randomized differential tests of every mutable Graph backend against a
+ * reference model.
+ *
+ * <p>Sequential mode drives long seeded sequences of add, set, remove, bulk
+ * removal and compaction against each backend and the model, comparing every
+ * return value, the observers of every label an operation touched, and
+ * periodically the whole graph. A failing sequence is shrunk to a minimal one
+ * before it is reported, with its seed.
+ *
+ * <p>Linearizability mode runs short random histories of mutators and
+ * observers from several threads at once against each threadsafe backend,
+ * and checks that some order of the operations, consistent with the order in
+ * which they were invoked and returned, gives the same results on the model.
+ */
+public class GraphDifferentialTest {
+
+    // Testing strategy
+    //   - backend: every mutable Graph implementation, wrapped and unwrapped;
+    //     String labels, and Integer labels for the dense int-id graphs
+    //   - operation: add, set (weight 0 or positive, new or existing edge,
+    //     self-loop), remove, removeAll, compact; labels from a small pool, so
+    //     operations collide, and occasionally a fresh label
+    //   - sequence length: long (hundreds of operations), many seeds
+    //   - concurrency: 1 thread (sequential mode); 3 threads with
+    //     interleaved mutators and observers (linearizability mode)
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    /** Creates empty graphs of one backend. */
+    private interface Backend<L> {
+        Graph<L> create() throws IOException;
+    }
+
+    /** Labels for the ids operations are generated over: a, b, ... z, then v26, v27, ... */
+    private static final IntFunction<String> STRINGS =
+            id -> id < 26 ? String.valueOf((char) ('a' + id)) : "v" + id;
+
+    /** Labels for the dense int-id graphs: the ids themselves. */
+    private static final IntFunction<Integer> INTEGERS = id -> id;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private File newDirectory() throws IOException {
+        return folder.newFolder();
+    }
+
+    private Map<String, Backend<String>> sequentialBackends() {
+        Map<String, Backend<String>> backends = new LinkedHashMap<>();
+        backends.put("AdjacencyListGraph", () -> new AdjacencyListGraph<>());
+        backends.put("ConcreteEdgesGraph", () -> new ConcreteEdgesGraph<>());
+        backends.put("ConcreteVerticesGraph", () -> new ConcreteVerticesGraph<>());
+        backends.put("InstrumentedGraph", () -> new InstrumentedGraph<>(Graph.empty()));
+        backends.putAll(concurrentBackends());
+        return backends;
+    }
+
+    private Map<String, Backend<String>> concurrentBackends() {
+        Map<String, Backend<String>> backends = new LinkedHashMap<>();
+        backends.put("VersionedGraph", () -> new VersionedGraph<>());
+        backends.put("DurableGraph", () -> new DurableGraph<>(newDirectory(), LabelCodec.STRING, 0, 4096));
+        backends.put("PartitionedGraph", () -> new PartitionedGraph<>(newDirectory(), LabelCodec.STRING, 3, 2));
+        return backends;
+    }
+
+    private static Map<String, Backend<Integer>> denseBackends() {
+        Map<String, Backend<Integer>> backends = new LinkedHashMap<>();
+        backends.put("DenseEdgesGraph", () -> new DenseEdgesGraph());
+        backends.put("DenseVerticesGraph", () -> new DenseVerticesGraph());
+        return backends;
+    }
+
+    private static void close(Graph<?> graph) {
+        if (graph instanceof Closeable) {
+            try {
+                ((Closeable) graph).close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * The reference model: the obvious implementation of the Graph spec.
+     */
+    private static final class Model<L> implements Graph<L> {
+
+        private final TreeMap<L, TreeMap<L, Integer>> out = new TreeMap<>();
+
+        Model<L> copy() {
+            Model<L> copy = new Model<>();
+            for (Map.Entry<L, TreeMap<L, Integer>> entry : out.entrySet()) {
+                copy.out.put(entry.getKey(), new TreeMap<>(entry.getValue()));
+            }
+            return copy;
+        }
+
+        @Override public boolean add(L vertex) {
+            if (out.containsKey(vertex)) {
+                return false;
+            }
+            out.put(vertex, new TreeMap<>());
+            return true;
+        }
+
+        @Override public int set(L source, L target, int weight) {
+            add(source);
+            add(target);
+            Integer previous = weight == 0 ? out.get(source).remove(target) : out.get(source).put(target, weight);
+            return previous == null ? 0 : previous;
+        }
+
+        @Override public boolean remove(L vertex) {
+            if (out.remove(vertex) == null) {
+                return false;
+            }
+            for (Map<L, Integer> edges : out.values()) {
+                edges.remove(vertex);
+            }
+            return true;
+        }
+
+        @Override public Set<L> vertices() {
+            return new HashSet<>(out.keySet());
+        }
+
+        @Override public Map<L, Integer> sources(L target) {
+            Map<L, Integer> sources = new TreeMap<>();
+            for (Map.Entry<L, TreeMap<L, Integer>> entry : out.entrySet()) {
+                Integer weight = entry.getValue().get(target);
+                if (weight != null) {
+                    sources.put(entry.getKey(), weight);
+                }
+            }
+            return sources;
+        }
+
+        @Override public Map<L, Integer> targets(L source) {
+            return new TreeMap<>(out.getOrDefault(source, new TreeMap<>()));
+        }
+
+        @Override public String toString() {
+            return out.toString();
+        }
+    }
+
+    /** Kinds of operation; the last three are observers. */
+    private enum Kind { ADD, SET, REMOVE, REMOVE_ALL, COMPACT, VERTICES, SOURCES, TARGETS }
+
+    /**
+     * One operation on a graph, with its arguments.
+     */
+    private static final class Op<L> {
+
+        final Kind kind;
+        final L a;
+        final L b;
+        final int weight;
+        final List<L> many;
+
+        Op(Kind kind, L a, L b, int weight, List<L> many) {
+            this.kind = kind;
+            this.a = a;
+            this.b = b;
+            this.weight = weight;
+            this.many = many;
+        }
+
+        /**
+         * @return the result of this operation on graph: its return value, or
+         *         for REMOVE_ALL the number removed, or null for COMPACT
+         */
+        Object apply(Graph<L> graph) {
+            switch (kind) {
+            case ADD: return graph.add(a);
+            case SET: return graph.set(a, b, weight);
+            case REMOVE: return graph.remove(a);
+            case REMOVE_ALL: return BulkRemovable.removeAll(graph, many);
+            case COMPACT:
+                if (graph instanceof Compactable) {
+                    ((Compactable) graph).compact();
+                }
+                return null;
+            case VERTICES: return new HashSet<>(graph.vertices());
+            case SOURCES: return new TreeMap<>(graph.sources(a));
+            default: return new TreeMap<>(graph.targets(a));
+            }
+        }
+
+        /**
+         * @return labels whose sources and targets this operation may change
+         */
+        List<L> touched() {
+            List<L> touched = new ArrayList<>();
+            if (a != null) touched.add(a);
+            if (b != null) touched.add(b);
+            if (many != null) touched.addAll(many);
+            return touched;
+        }
+
+        @Override public String toString() {
+            switch (kind) {
+            case ADD: return "add(" + a + ")";
+            case SET: return "set(" + a + ", " + b + ", " + weight + ")";
+            case REMOVE: return "remove(" + a + ")";
+            case REMOVE_ALL: return "removeAll(" + many + ")";
+            case COMPACT: return "compact()";
+            case VERTICES: return "vertices()";
+            case SOURCES: return "sources(" + a + ")";
+            default: return "targets(" + a + ")";
+            }
+        }
+    }
+
+    private static <L> L label(Random random, int pool, IntFunction<L> labels) {
+        // mostly a small pool, so operations collide; sometimes a fresh label
+        return labels.apply(random.nextInt(20) == 0 ? pool + random.nextInt(1000) : random.nextInt(pool));
+    }
+
+    /**
+     * @param pool number of labels most operations draw from
+     * @param labels labels for ids
+     * @param observers if true, also generate observer operations
+     * @param bulk if false, generate no removeAll operations
+     */
+    private static <L> Op<L> randomOp(Random random, int pool, IntFunction<L> labels, boolean observers,
+            boolean bulk) {
+        int roll = random.nextInt(observers ? 100 : 70);
+        if (!bulk && roll >= 60 && roll < 66) {
+            roll -= 10;
+        }
+        if (roll < 10) {
+            return new Op<>(Kind.ADD, label(random, pool, labels), null, 0, null);
+        } else if (roll < 50) {
+            int weight = random.nextInt(4) == 0 ? 0 : 1 + random.nextInt(random.nextBoolean() ? 3 : 1000);
+            return new Op<>(Kind.SET, label(random, pool, labels), label(random, pool, labels), weight, null);
+        } else if (roll < 60) {
+            return new Op<>(Kind.REMOVE, label(random, pool, labels), null, 0, null);
+        } else if (roll < 66) {
+            List<L> many = new ArrayList<>();
+            for (int i = random.nextInt(4); i >= 0; i--) {
+                many.add(label(random, pool, labels));
+            }
+            return new Op<>(Kind.REMOVE_ALL, null, null, 0, many);
+        } else if (roll < 70) {
+            return new Op<>(Kind.COMPACT, null, null, 0, null);
+        } else if (roll < 80) {
+            return new Op<>(Kind.VERTICES, null, null, 0, null);
+        } else if (roll < 90) {
+            return new Op<>(Kind.SOURCES, label(random, pool, labels), null, 0, null);
+        } else {
+            return new Op<>(Kind.TARGETS, label(random, pool, labels), null, 0, null);
+        }
+    }
+
+    /*
+     * Sequential mode
+     */
+
+    private static final int POOL = 8;
+
+    /**
+     * Replay operations on a new graph and the model.
+     *
+     * @return a description of the first divergence, or null if there is none
+     */
+    private static <L> String firstDivergence(Backend<L> backend, List<Op<L>> ops) throws IOException {
+        Graph<L> graph = backend.create();
+        Model<L> model = new Model<>();
+        try {
+            for (int step = 0; step < ops.size(); step++) {
+                Op<L> op = ops.get(step);
+                Object expected = op.apply(model);
+                Object actual;
+                try {
+                    actual = op.apply(graph);
+                } catch (RuntimeException | AssertionError e) {
+                    return "step " + step + " " + op + " threw " + e;
+                }
+                if (!Objects.equals(expected, actual)) {
+                    return "step " + step + " " + op + " returned " + actual + ", expected " + expected;
+                }
+                List<L> labels = step % 25 == 0 ? new ArrayList<>(model.vertices()) : op.touched();
+                if (step % 25 == 0 && !model.vertices().equals(graph.vertices())) {
+                    return "after step " + step + " " + op + " vertices " + graph.vertices()
+                            + ", expected " + model.vertices();
+                }
+                for (L label : labels) {
+                    if (!model.targets(label).equals(graph.targets(label))) {
+                        return "after step " + step + " " + op + " targets(" + label + ") "
+                                + graph.targets(label) + ", expected " + model.targets(label);
+                    }
+                    if (!model.sources(label).equals(graph.sources(label))) {
+                        return "after step " + step + " " + op + " sources(" + label + ") "
+                                + graph.sources(label) + ", expected " + model.sources(label);
+                    }
+                }
+            }
+            return null;
+        } finally {
+            close(graph);
+        }
+    }
+
+    /**
+     * Shrink a failing sequence by deleting operations while it still fails.
+     */
+    private static <L> List<Op<L>> shrink(Backend<L> backend, List<Op<L>> ops) throws IOException {
+        List<Op<L>> current = new ArrayList<>(ops);
+        boolean shrunk = true;
+        while (shrunk) {
+            shrunk = false;
+            for (int i = current.size() - 1; i >= 0; i--) {
+                List<Op<L>> candidate = new ArrayList<>(current);
+                candidate.remove(i);
+                if (firstDivergence(backend, candidate) != null) {
+                    current = candidate;
+                    shrunk = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Run seeded random sequences on every backend, and fail with the first
+     * divergence found, shrunk.
+     */
+    private static <L> void assertSequentialMatchesModel(Map<String, Backend<L>> backends, IntFunction<L> labels)
+            throws IOException {
+        for (Map.Entry<String, Backend<L>> backend : backends.entrySet()) {
+            for (long seed = 1; seed <= 20; seed++) {
+                Random random = new Random(seed);
+                List<Op<L>> ops = new ArrayList<>();
+                for (int i = 0; i < 300; i++) {
+                    ops.add(randomOp(random, POOL, labels, false, true));
+                }
+                if (firstDivergence(backend.getValue(), ops) != null) {
+                    List<Op<L>> minimal = shrink(backend.getValue(), ops);
+                    fail(backend.getKey() + " seed " + seed + ": " + firstDivergence(backend.getValue(), minimal)
+                            + "\nminimal sequence: " + minimal);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSequentialMatchesModel() throws IOException {
+        assertSequentialMatchesModel(sequentialBackends(), STRINGS);
+    }
+
+    @Test
+    public void testDenseSequentialMatchesModel() throws IOException {
+        assertSequentialMatchesModel(denseBackends(), INTEGERS);
+    }
+
+    /*
+     * Linearizability mode
+     */
+
+    private static final int SMALL_POOL = 3;
+
+    /** One completed operation in a concurrent history. */
+    private static final class Event {
+        final Op<String> op;
+        final long invoked;
+        final long returned;
+        final Object result;
+
+        Event(Op<String> op, long invoked, long returned, Object result) {
+            this.op = op;
+            this.invoked = invoked;
+            this.returned = returned;
+            this.result = result;
+        }
+
+        @Override public String toString() {
+            return "[" + invoked + ", " + returned + "] " + op + " = " + result;
+        }
+    }
+
+    /**
+     * Search for a linearization of a history, in the manner of Wing and
+     * Gong: repeatedly pick an operation that no remaining operation
+     * returned before, apply it to the model, and backtrack if its result
+     * differs from the recorded one.
+     *
+     * @param events history, at most 63 events
+     * @param done bit set of events already linearized
+     * @param model state after the linearized events
+     * @param failed states (done, model) known to have no linearization
+     * @return true iff the remaining events can be linearized from model
+     */
+    private static boolean linearizable(List<Event> events, long done, Model<String> model, Set<String> failed) {
+        if (done == (1L << events.size()) - 1) {
+            return true;
+        }
+        String state = done + " " + model;
+        if (failed.contains(state)) {
+            return false;
+        }
+        long firstReturn = Long.MAX_VALUE;
+        for (int i = 0; i < events.size(); i++) {
+            if ((done & (1L << i)) == 0) {
+                firstReturn = Math.min(firstReturn, events.get(i).returned);
+            }
+        }
+        for (int i = 0; i < events.size(); i++) {
+            Event event = events.get(i);
+            if ((done & (1L << i)) != 0 || event.invoked > firstReturn) {
+                continue;
+            }
+            Model<String> next = model.copy();
+            if (Objects.equals(event.op.apply(next), event.result)
+                    && linearizable(events, done | (1L << i), next, failed)) {
+                return true;
+            }
+        }
+        failed.add(state);
+        return false;
+    }
+
+    @Test
+    public void testConcurrentHistoriesAreLinearizable() throws Exception {
+        final int threads = 3;
+        final int opsPerThread = 4;
+        for (Map.Entry<String, Backend<String>> backend : concurrentBackends().entrySet()) {
+            for (long seed = 1; seed <= 100; seed++) {
+                Random random = new Random(seed);
+                Graph<String> graph = backend.getValue().create();
+                Model<String> initial = new Model<>();
+                for (int i = 0; i < 5; i++) {
+                    Op<String> op = randomOp(random, SMALL_POOL, STRINGS, false, true);
+                    op.apply(initial);
+                    op.apply(graph);
+                }
+                final List<List<Op<String>>> plans = new ArrayList<>();
+                for (int t = 0; t < threads; t++) {
+                    List<Op<String>> plan = new ArrayList<>();
+                    for (int i = 0; i < opsPerThread; i++) {
+                        // the removeAll fallback is a series of remove()s, not one atomic step
+                        plan.add(randomOp(random, SMALL_POOL, STRINGS, true, graph instanceof BulkRemovable));
+                    }
+                    plans.add(plan);
+                }
+
+                final AtomicLong clock = new AtomicLong();
+                final List<Event> events = Collections.synchronizedList(new ArrayList<>());
+                final List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+                final CountDownLatch start = new CountDownLatch(1);
+                List<Thread> workers = new ArrayList<>();
+                for (List<Op<String>> plan : plans) {
+                    Thread worker = new Thread(() -> {
+                        try {
+                            start.await();
+                            for (Op<String> op : plan) {
+                                long invoked = clock.getAndIncrement();
+                                Object result = op.apply(graph);
+                                events.add(new Event(op, invoked, clock.getAndIncrement(), result));
+                            }
+                        } catch (Throwable e) {
+                            errors.add(e);
+                        }
+                    });
+                    worker.start();
+                    workers.add(worker);
+                }
+                start.countDown();
+                for (Thread worker : workers) {
+                    worker.join();
+                }
+                close(graph);
+                assertEquals(backend.getKey() + " seed " + seed, Collections.emptyList(), errors);
+
+                List<Event> history = new ArrayList<>(events);
+                history.sort((x, y) -> Long.compare(x.invoked, y.invoked));
+                assertTrue(backend.getKey() + " seed " + seed + ": history not linearizable from "
+                        + initial + "\n" + history,
+                        linearizable(history, 0, initial, new HashSet<>()));
+            }
+        }
+    }
+
+    /*
+     * Testing the harness itself: a wrong backend must be caught and shrunk.
+     */
+
+    @Test
+    public void testHarnessCatchesAndShrinksBug() throws IOException {
+        List<Op<String>> ops = new ArrayList<>();
+        ops.add(new Op<>(Kind.SET, "a", "b", 1, null));
+        ops.add(new Op<>(Kind.ADD, "c", null, 0, null));
+        ops.add(new Op<>(Kind.SET, "c", "b", 2, null));
+        ops.add(new Op<>(Kind.REMOVE, "a", null, 0, null));
+        ops.add(new Op<>(Kind.REMOVE_ALL, null, null, 0, Arrays.asList("c", "x")));
+        assertNull(firstDivergence(() -> new AdjacencyListGraph<>(), ops));
+
+        // a graph that stores weight 7 as 8
+        Backend<String> broken = () -> new AdjacencyListGraph<String>() {
+            @Override
+            public int set(String source, String target, int weight) {
+                return super.set(source, target, weight == 7 ? 8 : weight);
+            }
+        };
+        ops.add(2, new Op<>(Kind.SET, "b", "d", 7, null));
+        assertNotNull(firstDivergence(broken, ops));
+        List<Op<String>> minimal = shrink(broken, ops);
+        assertEquals(1, minimal.size());
+        assertEquals(Kind.SET, minimal.get(0).kind);
+        assertEquals(7, minimal.get(0).weight);
+    }
+
+}
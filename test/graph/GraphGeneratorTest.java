@@ -0,0 +1,100 @@
+package graph;
+
+import static graph.GraphInstanceTest.assertSameGraph;
+import static org.junit.Assert.*;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import org.junit.Test;
+
+/**
+ * Tests for GraphGenerator and ZipfDistribution.
+ */
+public class GraphGeneratorTest {
+    
+    // Testing strategy
+    //   - label: ranks 0, 25, 26, large; distinct over a range; negative
+    //   - Zipf: one rank, uniform (exponent 0), skewed; sample frequencies
+    //     close to probability(); same seed gives same draws
+    //   - powerLaw: same seed gives same graph on different backends; different
+    //     seed differs; vertex count; total weight equals adjacencies; degrees
+    //     skewed toward low ranks
+    
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+    
+    @Test
+    public void testLabel() {
+        assertEquals("a", GraphGenerator.label(0));
+        assertEquals("z", GraphGenerator.label(25));
+        assertEquals("aa", GraphGenerator.label(26));
+        assertEquals("az", GraphGenerator.label(51));
+        assertEquals("ba", GraphGenerator.label(52));
+        assertEquals("zz", GraphGenerator.label(26 + 26 * 26 - 1));
+        assertEquals("aaa", GraphGenerator.label(26 + 26 * 26));
+        Set<String> labels = new HashSet<>();
+        for (int rank = 0; rank < 20000; rank++) {
+            assertTrue(labels.add(GraphGenerator.label(rank)));
+        }
+        assertTrue(GraphGenerator.label(Integer.MAX_VALUE).matches("[a-z]+"));
+    }
+    
+    @Test(expected=IllegalArgumentException.class)
+    public void testLabelNegative() {
+        GraphGenerator.label(-1);
+    }
+    
+    @Test
+    public void testZipfSampling() {
+        ZipfDistribution single = new ZipfDistribution(1, 1.0);
+        assertEquals(0, single.sample(new SplittableRandom(3)));
+        assertEquals(1.0, single.probability(0), 1e-12);
+        
+        ZipfDistribution uniform = new ZipfDistribution(4, 0);
+        assertEquals(0.25, uniform.probability(3), 1e-12);
+        
+        ZipfDistribution zipf = new ZipfDistribution(100, 1.0);
+        assertEquals(2 * zipf.probability(1), zipf.probability(0), 1e-12);
+        int[] counts = new int[zipf.size()];
+        SplittableRandom random = new SplittableRandom(42);
+        int draws = 200_000;
+        for (int i = 0; i < draws; i++) {
+            counts[zipf.sample(random)]++;
+        }
+        for (int rank : new int[] { 0, 1, 9, 99 }) {
+            double expected = zipf.probability(rank) * draws;
+            assertEquals("rank " + rank, expected, counts[rank], 5 * Math.sqrt(expected));
+        }
+        
+        SplittableRandom a = new SplittableRandom(7);
+        SplittableRandom b = new SplittableRandom(7);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(zipf.sample(a), zipf.sample(b));
+        }
+    }
+    
+    @Test
+    public void testPowerLawDeterministicAcrossBackends() {
+        Graph<String> first = GraphGenerator.powerLaw(Graph.empty(), 500, 5000, 1.0, 11);
+        Graph<String> second = GraphGenerator.powerLaw(new ConcreteEdgesGraph<>(), 500, 5000, 1.0, 11);
+        Graph<String> other = GraphGenerator.powerLaw(Graph.empty(), 500, 5000, 1.0, 12);
+        assertEquals(500, first.vertices().size());
+        assertSameGraph(first, second);
+        long total = 0;
+        boolean differs = false;
+        for (String vertex : first.vertices()) {
+            differs |= !first.targets(vertex).equals(other.targets(vertex));
+            for (int weight : first.targets(vertex).values()) {
+                total += weight;
+            }
+        }
+        assertTrue(differs);
+        assertEquals(5000, total);
+        assertTrue(first.targets("a").size() > 10 * Math.max(1, first.targets("zz").size()));
+    }
+    
+}
@@ -1,7 +1,9 @@
 package graph;
 
 import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Set;
 import java.util.Map;
@@ -27,6 +29,12 @@ public abstract class GraphInstanceTest {
      * - Weight: 0, > 0.
      * - Number of sources: 0, > 0.
      * - Number of targets: 0, > 0.
+     * - Bulk removal: none, some, all vertices; labels not in graph; edges
+     *   between removed vertices, from kept to removed, removed to kept;
+     *   graph large enough that backends remove in parallel.
+     * - Compactable graphs: empty, with edges, after removing most edges and
+     *   vertices; weights within and outside the Integer cache; compact()
+     *   preserves vertices, sources and targets and never grows the footprint.
      */
 
     /**
@@ -189,4 +197,131 @@ public abstract class GraphInstanceTest {
         // Vertex with multiple targets
         assertEquals(Map.of("b", 1, "c", 2), graph.targets("a"));
     }
+
+    // Tests for bulk removal
+    @Test
+    public void testRemoveAll() {
+        Graph<String> graph = emptyInstance();
+        graph.set("a", "b", 1);
+        graph.set("b", "c", 2);
+        graph.set("c", "a", 3);
+        graph.set("c", "d", 4);
+        graph.set("d", "a", 5);
+        graph.add("e");
+
+        assertEquals(0, BulkRemovable.removeAll(graph, Collections.emptyList()));
+        assertEquals(0, BulkRemovable.removeAll(graph, Arrays.asList("x", "y")));
+        assertEquals(Set.of("a", "b", "c", "d", "e"), graph.vertices());
+
+        // b and d removed, with b -> c, a -> b, c -> d and d -> a
+        assertEquals(2, BulkRemovable.removeAll(graph, Arrays.asList("b", "d", "x")));
+        assertEquals(Set.of("a", "c", "e"), graph.vertices());
+        assertEquals(Collections.emptyMap(), graph.targets("a"));
+        assertEquals(Map.of("a", 3), graph.targets("c"));
+        assertEquals(Map.of("c", 3), graph.sources("a"));
+        assertEquals(Collections.emptyMap(), graph.sources("c"));
+        assertEquals(Collections.emptyMap(), graph.targets("b"));
+        assertEquals(Collections.emptyMap(), graph.sources("d"));
+
+        assertEquals(3, BulkRemovable.removeAll(graph, Arrays.asList("a", "c", "e")));
+        assertEquals(Collections.emptySet(), graph.vertices());
+    }
+
+    @Test
+    public void testRetainIf() {
+        Graph<String> graph = emptyInstance();
+        graph.set("a", "bb", 1);
+        graph.set("bb", "ccc", 2);
+        graph.set("ccc", "a", 3);
+        graph.set("a", "dd", 4);
+
+        assertEquals(0, BulkRemovable.retainIf(graph, vertex -> true));
+        assertEquals(2, BulkRemovable.retainIf(graph, vertex -> vertex.length() != 2));
+        assertEquals(Set.of("a", "ccc"), graph.vertices());
+        assertEquals(Collections.emptyMap(), graph.targets("a"));
+        assertEquals(Map.of("ccc", 3), graph.sources("a"));
+        assertEquals(Map.of("a", 3), graph.targets("ccc"));
+        assertEquals(2, BulkRemovable.retainIf(graph, vertex -> false));
+        assertEquals(Collections.emptySet(), graph.vertices());
+    }
+
+    @Test
+    public void testRemoveAllLargeMatchesRemove() {
+        Graph<String> bulk = GraphGenerator.powerLaw(emptyInstance(), 4500, 6000, 1.0, 3);
+        Graph<String> single = GraphGenerator.powerLaw(Graph.empty(), 4500, 6000, 1.0, 3);
+        // remove every vertex whose label does not end in "a", "b" or "c"
+        int removed = BulkRemovable.retainIf(bulk, vertex -> vertex.matches(".*[abc]"));
+        int expected = 0;
+        for (String vertex : single.vertices()) {
+            if (!vertex.matches(".*[abc]")) {
+                expected += single.remove(vertex) ? 1 : 0;
+            }
+        }
+        assertEquals(expected, removed);
+        assertSameGraph(single, bulk);
+    }
+
+    // Tests for memoryFootprint() and compact(), on graphs that support them
+    @Test
+    public void testMemoryFootprint() {
+        Graph<String> graph = emptyInstance();
+        assumeTrue(graph instanceof Compactable);
+        Compactable compactable = (Compactable) graph;
+        MemoryFootprint empty = compactable.memoryFootprint();
+        assertEquals(0, empty.vertices());
+        assertEquals(0, empty.edges());
+
+        graph.set("a", "b", 1);
+        graph.set("b", "c", 1000);
+        MemoryFootprint footprint = compactable.memoryFootprint();
+        assertEquals(3, footprint.vertices());
+        assertEquals(2, footprint.edges());
+        assertTrue(footprint.totalBytes() > empty.totalBytes());
+        assertTrue(footprint.bytesPerEdge() > 0);
+        // at most the one weight outside the Integer cache is boxed
+        assertTrue(footprint.boxingBytes() <= MemoryFootprint.BOXED_INTEGER);
+    }
+
+    @Test
+    public void testCompact() {
+        Graph<String> graph = emptyInstance();
+        assumeTrue(graph instanceof Compactable);
+        Compactable compactable = (Compactable) graph;
+        for (int i = 0; i < 100; i++) {
+            graph.set("v" + i, "v" + (i + 1), i + 1);
+        }
+        for (int i = 0; i < 95; i++) {
+            graph.set("v" + i, "v" + (i + 1), 0);
+        }
+        for (int i = 0; i < 90; i++) {
+            graph.remove("v" + i);
+        }
+        MemoryFootprint before = compactable.memoryFootprint();
+        compactable.compact();
+        MemoryFootprint after = compactable.memoryFootprint();
+
+        assertTrue(after.totalBytes() < before.totalBytes());
+        assertEquals(before.vertices(), after.vertices());
+        assertEquals(5, after.edges());
+        assertEquals(11, graph.vertices().size());
+        assertEquals(Map.of("v97", 97), graph.targets("v96"));
+        assertEquals(Map.of("v96", 97), graph.sources("v97"));
+        assertEquals(Collections.emptyMap(), graph.targets("v90"));
+
+        // the graph remains usable after compaction
+        assertEquals(0, graph.set("v90", "v91", 5));
+        assertEquals(Map.of("v90", 5), graph.sources("v91"));
+    }
+
+    /**
+     * Assert that two graphs have the same vertices and the same edges into
+     * and out of each vertex. Shared by the tests in this package.
+     */
+    static <L> void assertSameGraph(Graph<L> expected, Graph<L> actual) {
+        assertEquals(expected.vertices(), actual.vertices());
+        for (L vertex : expected.vertices()) {
+            assertEquals(vertex.toString(), expected.targets(vertex), actual.targets(vertex));
+            assertEquals(vertex.toString(), expected.sources(vertex), actual.sources(vertex));
+        }
+    }
 }
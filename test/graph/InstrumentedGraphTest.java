@@ -0,0 +1,103 @@
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Tests for InstrumentedGraph.
+ * 
+ * This class runs the GraphInstanceTest tests against an InstrumentedGraph
+ * wrapping the default graph, as well as tests for the recorded metrics.
+ * 
+ * Tests specific to the Graph interface should be in GraphInstanceTest.
+ */
+public class InstrumentedGraphTest extends GraphInstanceTest {
+
+    /*
+     * Provide an InstrumentedGraph for tests in GraphInstanceTest.
+     */
+    @Override
+    public Graph<String> emptyInstance() {
+        return new InstrumentedGraph<>(Graph.empty());
+    }
+
+    /*
+     * Testing InstrumentedGraph metrics...
+     */
+
+    // Testing strategy for metrics():
+    // - operation counted: set, targets, sources
+    // - number of calls: 0, > 0
+    // - gauges: empty graph, graph with vertices and edges
+
+    @Test
+    public void testMetricsCountOperations() {
+        InstrumentedGraph<String> graph = new InstrumentedGraph<>(Graph.empty());
+        GraphMetrics metrics = graph.metrics();
+        assertEquals(0, metrics.getSetCount());
+        assertEquals(0, metrics.getTargetsCount());
+        assertEquals(0, metrics.getSourcesCount());
+
+        graph.set("a", "b", 1);
+        graph.set("b", "c", 2);
+        assertEquals(Map.of("b", 1), graph.targets("a"));
+        assertEquals(Map.of("b", 2), graph.sources("c"));
+        graph.sources("a");
+
+        assertEquals(2, metrics.getSetCount());
+        assertEquals(1, metrics.getTargetsCount());
+        assertEquals(2, metrics.getSourcesCount());
+        assertTrue(metrics.getSetP99Nanos() <= metrics.getSetMaxNanos());
+
+        metrics.reset();
+        assertEquals(0, metrics.getSetCount());
+    }
+
+    @Test
+    public void testMetricsGauges() {
+        InstrumentedGraph<String> graph = new InstrumentedGraph<>(Graph.empty());
+        GraphMetrics metrics = graph.metrics();
+        assertEquals(0, metrics.getVertexCount());
+        assertEquals(0, metrics.getEdgeCount());
+        long emptyBytes = metrics.getEstimatedBytes();
+        assertTrue(emptyBytes >= 0);
+
+        graph.add("a");
+        graph.set("a", "b", 1);
+        graph.set("b", "a", 1);
+        assertEquals(2, metrics.getVertexCount());
+        assertEquals(2, metrics.getEdgeCount());
+        assertTrue(metrics.getEstimatedBytes() > emptyBytes);
+    }
+
+    /*
+     * Testing LatencyHistogram...
+     */
+
+    // Testing strategy for LatencyHistogram:
+    // - recorded values: none, one, many; small (< 8) and large values
+    // - percentile: 0, 50, 100
+
+    @Test
+    public void testLatencyHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.count());
+        assertEquals(0, histogram.percentile(50));
+
+        histogram.record(3);
+        assertEquals(1, histogram.count());
+        assertEquals(3, histogram.percentile(50));
+        assertEquals(3, histogram.max());
+
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        assertEquals(1001, histogram.count());
+        assertEquals(1_000_000, histogram.percentile(100));
+        long median = histogram.percentile(50);
+        assertTrue("median " + median, median >= 500_000 && median <= 500_000 * 9 / 8);
+    }
+}
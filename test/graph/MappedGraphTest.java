@@ -0,0 +1,113 @@
+package graph;
+
+import static graph.GraphInstanceTest.assertSameGraph;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Tests for MappedGraph.
+ */
+public class MappedGraphTest {
+    
+    // Testing strategy
+    //   - graph: empty, isolated vertices, edges, non-ASCII labels, generated
+    //     power-law graph
+    //   - observers: vertices, sources, targets, id and label for present and
+    //     absent labels
+    //   - bestBridge: none, unique best, tie broken lexicographically, absent label
+    //   - open: not an image, truncated image
+    //   - mutators throw
+    
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+    
+    private static MappedGraph roundTrip(Graph<String> graph) throws IOException {
+        File file = Files.createTempFile("graph", ".img").toFile();
+        file.deleteOnExit();
+        MappedGraph.write(graph, file);
+        return MappedGraph.open(file);
+    }
+    
+    @Test
+    public void testEmpty() throws IOException {
+        MappedGraph mapped = roundTrip(Graph.empty());
+        assertEquals(0, mapped.vertexCount());
+        assertEquals(Collections.emptySet(), mapped.vertices());
+        assertEquals(-1, mapped.id("a"));
+        assertEquals(Collections.emptyMap(), mapped.targets("a"));
+        assertNull(mapped.bestBridge("a", "b"));
+    }
+    
+    @Test
+    public void testRoundTrip() throws IOException {
+        Graph<String> graph = Graph.empty();
+        graph.set("b", "c", 1);
+        graph.set("a", "b", 2);
+        graph.set("a", "d", 2);
+        graph.set("d", "c", 1);
+        graph.set("c", "a", 300);
+        graph.set("ü", "日本", 7);
+        graph.add("lonely");
+        MappedGraph mapped = roundTrip(graph);
+        assertSameGraph(graph, mapped);
+        assertEquals(Set.of("a", "b", "c", "d", "lonely", "ü", "日本"), mapped.vertices());
+        assertEquals(0, mapped.id("a"));
+        assertEquals("b", mapped.label(1));
+        assertEquals(-1, mapped.id("aa"));
+        assertEquals(Map.of("ü", 7), mapped.sources("日本"));
+        
+        assertEquals("b", mapped.bestBridge("a", "c"));
+        assertEquals("a", mapped.bestBridge("c", "b"));
+        assertNull(mapped.bestBridge("a", "a"));
+        assertNull(mapped.bestBridge("x", "c"));
+        assertTrue(mapped.toString().contains("7 vertices"));
+    }
+    
+    @Test
+    public void testPowerLawRoundTrip() throws IOException {
+        Graph<String> graph = GraphGenerator.powerLaw(Graph.empty(), 2000, 20000, 1.0, 5);
+        assertSameGraph(graph, roundTrip(graph));
+    }
+    
+    @Test(expected=UnsupportedOperationException.class)
+    public void testReadOnly() throws IOException {
+        roundTrip(Graph.empty()).add("a");
+    }
+    
+    @Test
+    public void testNotAnImage() throws IOException {
+        File file = Files.createTempFile("graph", ".img").toFile();
+        file.deleteOnExit();
+        Files.write(file.toPath(), "To explore strange new worlds".getBytes());
+        try {
+            MappedGraph.open(file);
+            fail("expected IOException");
+        } catch (IOException e) {
+            // expected
+        }
+        
+        Graph<String> graph = Graph.empty();
+        graph.set("a", "b", 1);
+        MappedGraph.write(graph, file);
+        byte[] image = Files.readAllBytes(file.toPath());
+        Files.write(file.toPath(), Arrays.copyOf(image, image.length - 1));
+        try {
+            MappedGraph.open(file);
+            fail("expected IOException");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+    
+}
@@ -0,0 +1,177 @@
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for PartitionedGraph.
+ * 
+ * This class runs the GraphInstanceTest tests against a PartitionedGraph whose
+ * cache is smaller than its number of partitions, as well as additional tests
+ * for its storage.
+ * 
+ * Tests specific to the Graph interface should be in GraphInstanceTest.
+ */
+public class PartitionedGraphTest extends GraphInstanceTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<Closeable> opened = new ArrayList<>();
+
+    /*
+     * Provide a PartitionedGraph for tests in GraphInstanceTest.
+     */
+    @Override
+    public Graph<String> emptyInstance() {
+        try {
+            return open(new PartitionedGraph<>(newDirectory(), LabelCodec.STRING, 8, 2));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private File newDirectory() throws IOException {
+        return folder.newFolder();
+    }
+
+    /** Register a graph to be closed after the test, if the test does not close it. */
+    private <L> PartitionedGraph<L> open(PartitionedGraph<L> graph) {
+        opened.add(graph);
+        return graph;
+    }
+
+    @After
+    public void closeGraphs() throws IOException {
+        for (Closeable graph : opened) {
+            graph.close();
+        }
+    }
+
+    /** An edge for bulkLoad. */
+    private static class TestEdge implements PartitionedGraph.WeightedEdge<Integer> {
+        final int source, target, weight;
+        TestEdge(int source, int target, int weight) {
+            this.source = source;
+            this.target = target;
+            this.weight = weight;
+        }
+        @Override public Integer source() { return source; }
+        @Override public Integer target() { return target; }
+        @Override public int weight() { return weight; }
+    }
+
+    /**
+     * A label whose hashCode() changes with a global salt, like a String hash
+     * that differs between JVMs.
+     */
+    private static final class SaltedLabel {
+        static int salt = 0;
+        final int value;
+        SaltedLabel(int value) { this.value = value; }
+        @Override public boolean equals(Object that) {
+            return that instanceof SaltedLabel && ((SaltedLabel) that).value == value;
+        }
+        @Override public int hashCode() { return value * 31 + salt; }
+        static final LabelCodec<SaltedLabel> CODEC = new LabelCodec<SaltedLabel>() {
+            @Override public void write(SaltedLabel label, DataOutput out) throws IOException {
+                out.writeInt(label.value);
+            }
+            @Override public SaltedLabel read(DataInput in) throws IOException {
+                return new SaltedLabel(in.readInt());
+            }
+        };
+    }
+
+    /*
+     * Testing PartitionedGraph...
+     */
+
+    // Testing strategy:
+    // - cache: fewer segments than partitions; segments evicted and reread
+    // - reopen after close: contents preserved; mismatched partition count;
+    //   label hashCode() changed in between
+    // - targets/sources read only the queried vertex's segment
+    // - bulkLoad: one run, many runs; repeated edges; weight 0; compared
+    //   against a graph built by set()
+
+    @Test
+    public void testReopenAndSegmentReads() throws IOException {
+        File directory = newDirectory();
+        PartitionedGraph<Integer> graph = open(new PartitionedGraph<>(directory, LabelCodec.INTEGER, 16, 3));
+        for (int i = 0; i < 200; i++) {
+            graph.set(i, (i * 31) % 200, 1 + i % 7);
+            assertTrue(graph.cachedSegmentCount() <= 3);
+        }
+        graph.remove(7);
+        graph.close();
+
+        PartitionedGraph<Integer> reopened = open(new PartitionedGraph<>(directory, LabelCodec.INTEGER, 16, 3));
+        assertEquals(0, reopened.segmentReads());
+        assertEquals(Map.of(62, 3), reopened.targets(2));
+        assertEquals(1, reopened.segmentReads());
+        assertEquals(Map.of(), reopened.sources((7 * 31) % 200));
+        assertEquals(199, reopened.vertices().size());
+        reopened.close();
+    }
+
+    @Test
+    public void testPartitionsIndependentOfHashCode() throws IOException {
+        File directory = newDirectory();
+        SaltedLabel.salt = 0;
+        PartitionedGraph<SaltedLabel> graph = open(new PartitionedGraph<>(directory, SaltedLabel.CODEC, 16, 2));
+        for (int i = 0; i < 100; i++) {
+            graph.set(new SaltedLabel(i), new SaltedLabel(i + 1), i + 1);
+        }
+        graph.close();
+
+        SaltedLabel.salt = 12345;
+        try {
+            PartitionedGraph<SaltedLabel> reopened = open(new PartitionedGraph<>(directory, SaltedLabel.CODEC, 16, 2));
+            for (int i = 0; i < 100; i++) {
+                assertEquals(Map.of(new SaltedLabel(i + 1), i + 1), reopened.targets(new SaltedLabel(i)));
+            }
+            assertEquals(101, reopened.vertices().size());
+        } finally {
+            SaltedLabel.salt = 0;
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testPartitionCountMismatch() throws IOException {
+        File directory = newDirectory();
+        new PartitionedGraph<>(directory, LabelCodec.STRING, 4, 2).close();
+        open(new PartitionedGraph<>(directory, LabelCodec.STRING, 8, 2));
+    }
+
+    @Test
+    public void testBulkLoadMatchesIncremental() throws IOException {
+        Random random = new Random(33);
+        List<TestEdge> edges = new ArrayList<>();
+        Graph<Integer> expected = Graph.empty();
+        for (int i = 0; i < 5000; i++) {
+            TestEdge edge = new TestEdge(random.nextInt(300), random.nextInt(300), random.nextInt(4));
+            edges.add(edge);
+            expected.set(edge.source, edge.target, edge.weight);
+        }
+        PartitionedGraph<Integer> loaded = open(PartitionedGraph.bulkLoad(newDirectory(), LabelCodec.INTEGER,
+                16, 4, edges.iterator(), 700));
+        assertSameGraph(expected, loaded);
+        loaded.close();
+    }
+}
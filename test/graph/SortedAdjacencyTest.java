@@ -0,0 +1,106 @@
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests for SortedAdjacency.
+ */
+public class SortedAdjacencyTest {
+
+    // Testing strategy:
+    // - topTargets/topSources: vertex absent, with no edges, with edges;
+    //   k = 0, k < degree, k >= degree
+    // - bestBridge: no path, one path, several paths with distinct and tied
+    //   weights, high-degree endpoints (compared against a full scan)
+    // - later changes to the source graph are not reflected
+
+    @Test(expected = AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    @Test
+    public void testTopTargetsAndSources() {
+        Graph<String> graph = Graph.empty();
+        graph.add("lonely");
+        graph.set("a", "b", 1);
+        graph.set("a", "c", 5);
+        graph.set("a", "d", 3);
+        graph.set("c", "d", 2);
+        SortedAdjacency<String> sorted = SortedAdjacency.of(graph);
+
+        assertEquals(Map.of(), sorted.topTargets("missing", 3));
+        assertEquals(Map.of(), sorted.topTargets("lonely", 3));
+        assertEquals(Map.of(), sorted.topTargets("a", 0));
+        assertEquals(List.of("c", "d"), new ArrayList<>(sorted.topTargets("a", 2).keySet()));
+        assertEquals(Map.of("c", 5, "d", 3), sorted.topTargets("a", 2));
+        assertEquals(List.of("c", "d", "b"), new ArrayList<>(sorted.topTargets("a", 10).keySet()));
+        assertEquals(List.of("a", "c"), new ArrayList<>(sorted.topSources("d", 10).keySet()));
+        assertEquals(Map.of("a", 3), sorted.topSources("d", 1));
+
+        graph.set("a", "e", 100);
+        assertFalse(sorted.topTargets("a", 10).containsKey("e"));
+    }
+
+    @Test
+    public void testBestBridge() {
+        Graph<String> graph = Graph.empty();
+        graph.set("a", "x", 1);
+        graph.set("x", "z", 1);
+        graph.set("a", "y", 1);
+        graph.set("y", "z", 1);
+        graph.set("a", "w", 3);
+        graph.set("w", "q", 1);
+        SortedAdjacency<String> sorted = SortedAdjacency.of(graph);
+
+        assertNull(sorted.bestBridge("z", "a", Comparator.naturalOrder()));
+        assertNull(sorted.bestBridge("a", "x", Comparator.naturalOrder()));
+        assertEquals("w", sorted.bestBridge("a", "q", Comparator.naturalOrder()));
+        assertEquals("x", sorted.bestBridge("a", "z", Comparator.naturalOrder()));
+        assertEquals("y", sorted.bestBridge("a", "z", Comparator.<String>reverseOrder()));
+
+        graph.set("y", "z", 2);
+        assertEquals("y", SortedAdjacency.of(graph).bestBridge("a", "z", Comparator.naturalOrder()));
+    }
+
+    @Test
+    public void testBestBridgeMatchesFullScan() {
+        Random random = new Random(29);
+        Graph<Integer> graph = Graph.empty();
+        for (int i = 0; i < 2000; i++) {
+            // skewed endpoints so that vertices 0 and 1 have high degree
+            int source = random.nextInt(4) == 0 ? 0 : random.nextInt(200);
+            int target = random.nextInt(4) == 0 ? 1 : random.nextInt(200);
+            graph.set(source, target, 1 + random.nextInt(5));
+        }
+        SortedAdjacency<Integer> sorted = SortedAdjacency.of(graph);
+        for (int first = 0; first < 20; first++) {
+            for (int second = 0; second < 20; second++) {
+                Integer expected = null;
+                int expectedWeight = 0;
+                Map<Integer, Integer> toSecond = graph.sources(second);
+                for (Map.Entry<Integer, Integer> edge : graph.targets(first).entrySet()) {
+                    Integer weight = toSecond.get(edge.getKey());
+                    if (weight == null) {
+                        continue;
+                    }
+                    int total = edge.getValue() + weight;
+                    if (total > expectedWeight || (total == expectedWeight && edge.getKey() < expected)) {
+                        expected = edge.getKey();
+                        expectedWeight = total;
+                    }
+                }
+                assertEquals(first + " " + second, expected,
+                        sorted.bestBridge(first, second, Comparator.naturalOrder()));
+            }
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+/**
+ * Tests for VersionedGraph.
+ * 
+ * This class runs the GraphInstanceTest tests against VersionedGraph, as well
+ * as additional tests for snapshots and for PersistentMap.
+ * 
+ * Tests specific to the Graph interface should be in GraphInstanceTest.
+ */
+public class VersionedGraphTest extends GraphInstanceTest {
+
+    /*
+     * Provide a VersionedGraph for tests in GraphInstanceTest.
+     */
+    @Override
+    public Graph<String> emptyInstance() {
+        return new VersionedGraph<>();
+    }
+
+    /*
+     * Testing VersionedGraph...
+     */
+
+    // Testing strategy:
+    // - snapshot taken before: add, set, remove, update of several changes
+    // - update: no change, several changes, changes that throw
+    // - self loops
+    // - readers iterating while a writer changes the graph
+
+    @Test
+    public void testSnapshotIsolation() {
+        VersionedGraph<String> graph = new VersionedGraph<>();
+        graph.set("a", "b", 1);
+        VersionedGraph.Snapshot<String> before = graph.snapshot();
+        Map<String, Integer> targets = graph.targets("a");
+
+        graph.set("a", "c", 2);
+        graph.remove("b");
+        graph.add("d");
+
+        assertEquals(Set.of("a", "b"), before.vertices());
+        assertEquals(Map.of("b", 1), before.targets("a"));
+        assertEquals(Map.of("b", 1), targets);
+        assertEquals(Set.of("a", "c", "d"), graph.vertices());
+        assertEquals(Map.of("c", 2), graph.targets("a"));
+        assertEquals(before.version() + 3, graph.snapshot().version());
+    }
+
+    @Test
+    public void testUpdateIsAtomic() {
+        VersionedGraph<String> graph = new VersionedGraph<>();
+        graph.add("a");
+        VersionedGraph.Snapshot<String> before = graph.snapshot();
+        assertSame(before, graph.update(g -> g.add("a")));
+
+        VersionedGraph.Snapshot<String> after = graph.update(g -> {
+            g.set("a", "b", 1);
+            g.set("b", "c", 2);
+            g.set("c", "c", 3);
+            g.remove("a");
+        });
+        assertEquals(before.version() + 1, after.version());
+        assertEquals(Set.of("b", "c"), after.vertices());
+        assertEquals(Map.of("b", 2, "c", 3), after.sources("c"));
+
+        try {
+            graph.update(g -> {
+                g.remove("c");
+                throw new IllegalStateException("abandon");
+            });
+            fail("expected exception");
+        } catch (IllegalStateException e) {
+            assertSame(after, graph.snapshot());
+        }
+
+        graph.remove("c");
+        assertEquals(Map.of(), graph.targets("b"));
+        assertEquals(Set.of("b"), graph.vertices());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testSnapshotImmutable() {
+        VersionedGraph<String> graph = new VersionedGraph<>();
+        graph.add("a");
+        graph.snapshot().set("a", "a", 1);
+    }
+
+    @Test
+    public void testConcurrentReadersNeverFail() throws InterruptedException {
+        VersionedGraph<Integer> graph = new VersionedGraph<>();
+        for (int i = 0; i < 100; i++) {
+            graph.set(0, i, 1);
+        }
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread writer = new Thread(() -> {
+            Random random = new Random(32);
+            for (int i = 0; i < 20_000; i++) {
+                int target = random.nextInt(200);
+                graph.update(g -> {
+                    // keep the total weight out of 0 at 100 in every version
+                    int moved = g.targets(0).keySet().iterator().next();
+                    if (moved != target && !g.targets(0).containsKey(target)) {
+                        g.set(0, moved, 0);
+                        g.set(0, target, 1);
+                    }
+                });
+            }
+        });
+        Thread reader = new Thread(() -> {
+            try {
+                while (writer.isAlive()) {
+                    int total = 0;
+                    for (int weight : graph.targets(0).values()) {
+                        total += weight;
+                    }
+                    assertEquals(100, total);
+                }
+            } catch (ConcurrentModificationException | AssertionError e) {
+                failure.set(e);
+            }
+        });
+        writer.start();
+        reader.start();
+        writer.join();
+        reader.join();
+        assertNull(failure.get());
+    }
+
+    /*
+     * Testing PersistentMap...
+     */
+
+    // Testing strategy for PersistentMap:
+    // - plus: new key, existing key with same and different value
+    // - minus: present and absent keys, down to empty
+    // - keys with colliding hash codes
+    // - random operations compared against HashMap; old versions unchanged
+
+    @Test
+    public void testPersistentMapCollisions() {
+        // "Aa" and "BB" have the same hash code
+        PersistentMap<String, Integer> map = PersistentMap.<String, Integer>empty().plus("Aa", 1).plus("BB", 2);
+        assertEquals(Map.of("Aa", 1, "BB", 2), map);
+        assertSame(map, map.plus("BB", 2));
+        PersistentMap<String, Integer> changed = map.plus("BB", 3).plus("C", 4);
+        assertEquals(Map.of("Aa", 1, "BB", 3, "C", 4), changed);
+        assertEquals(Map.of("Aa", 1, "C", 4), changed.minus("BB"));
+        assertEquals(Map.of("C", 4), changed.minus("BB").minus("Aa"));
+        assertEquals(Map.of(), changed.minus("BB").minus("Aa").minus("C"));
+        assertEquals(Map.of("Aa", 1, "BB", 2), map);
+    }
+
+    @Test
+    public void testPersistentMapMatchesHashMap() {
+        Random random = new Random(32);
+        PersistentMap<Integer, Integer> map = PersistentMap.empty();
+        Map<Integer, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 20_000; i++) {
+            // wide key range reaches deep trie levels; keys 1<<20 apart share low bits
+            int key = random.nextBoolean() ? random.nextInt(500) : random.nextInt(8) << 20;
+            PersistentMap<Integer, Integer> previous = map;
+            Map<Integer, Integer> previousExpected = Map.copyOf(expected);
+            if (random.nextInt(3) == 0) {
+                map = map.minus(key);
+                expected.remove(key);
+            } else {
+                map = map.plus(key, i);
+                expected.put(key, i);
+            }
+            if (i % 1000 == 0) {
+                assertEquals(previousExpected, previous);
+            }
+            assertEquals(expected.size(), map.size());
+            assertEquals(expected.get(key), map.get(key));
+        }
+        assertEquals(expected, map);
+    }
+}
@@ -0,0 +1,88 @@
+package poet;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+
+import org.junit.Test;
+
+/**
+ * Tests for CorpusGenerator.
+ */
+public class CorpusGeneratorTest {
+    
+    // Testing strategy
+    //   - size: 0, small, not a multiple of the line length
+    //   - determinism: same arguments same text, different seed different text
+    //   - layout: lineWords words per line, single spaces, final newline
+    //   - frequency: the rank-0 word is the most common
+    //   - file output readable by GraphPoet
+    //   - parseSize: plain, k, m, g suffixes, upper case
+    
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+    
+    private static String generate(CorpusGenerator generator, long bytes) throws IOException {
+        StringWriter out = new StringWriter();
+        generator.write(out, bytes);
+        return out.toString();
+    }
+    
+    @Test
+    public void testDeterministicLayout() throws IOException {
+        CorpusGenerator generator = new CorpusGenerator(1000, 1.0, 5, 9);
+        assertEquals("", generate(generator, 0));
+        String text = generate(generator, 10_000);
+        assertEquals(text, generate(generator, 10_000));
+        assertEquals(text, generate(new CorpusGenerator(1000, 1.0, 5, 9), 10_000));
+        assertFalse(text.equals(generate(new CorpusGenerator(1000, 1.0, 5, 10), 10_000)));
+        assertTrue(text.length() >= 10_000);
+        assertTrue(text.endsWith("\n"));
+        assertTrue(generate(generator, 20_000).startsWith(text.substring(0, 9_000)));
+        
+        String[] lines = text.split("\n");
+        for (int i = 0; i < lines.length - 1; i++) {
+            assertEquals(5, lines[i].split(" ").length);
+        }
+        assertTrue(text.matches("[a-z \n]+"));
+        assertFalse(text.contains("  "));
+        
+        int a = 0;
+        int b = 0;
+        for (String word : text.split("\\s+")) {
+            a += word.equals("a") ? 1 : 0;
+            b += word.equals("b") ? 1 : 0;
+        }
+        assertTrue(a > b && b > 0);
+    }
+    
+    @Test
+    public void testWriteFile() throws IOException {
+        File file = Files.createTempFile("corpus", ".txt").toFile();
+        try {
+            long words = new CorpusGenerator(50, 1.0, 12, 1).write(file, 4096);
+            assertTrue(file.length() >= 4096);
+            assertTrue(words > 0);
+            String poem = new GraphPoet(file).poem("a b c d e");
+            assertTrue(poem.startsWith("a ") && poem.endsWith(" e"));
+            assertEquals(poem, GraphPoet.frozen(file, false).poem("a b c d e"));
+            assertEquals(file.length(), generate(new CorpusGenerator(50, 1.0, 12, 1), 4096).length());
+        } finally {
+            file.delete();
+        }
+    }
+    
+    @Test
+    public void testParseSize() {
+        assertEquals(123, CorpusGenerator.parseSize("123"));
+        assertEquals(2048, CorpusGenerator.parseSize("2k"));
+        assertEquals(64L << 20, CorpusGenerator.parseSize("64M"));
+        assertEquals(10L << 30, CorpusGenerator.parseSize("10g"));
+    }
+    
+}
@@ -0,0 +1,64 @@
+package poet;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests for CountMinSketch.
+ */
+public class CountMinSketchTest {
+    
+    // Testing strategy
+    //   - keys: never added, added once, added many times
+    //   - width: 1 (every key collides), wider than the number of keys
+    //   - forItems: 0 items, fewer than MAX_WIDTH, more than MAX_WIDTH
+    //   - estimates never below the true count; close to it when the sketch is wide
+    
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+    
+    @Test
+    public void testSingleCellCountsEverything() {
+        CountMinSketch sketch = new CountMinSketch(1);
+        assertEquals(0, sketch.estimate(5));
+        sketch.add(5);
+        sketch.add(6);
+        sketch.add(6);
+        assertEquals(3, sketch.estimate(5));
+        assertEquals(3, sketch.estimate(7));
+    }
+    
+    @Test
+    public void testNeverUnderestimates() {
+        CountMinSketch sketch = new CountMinSketch(1 << 12);
+        int[] truth = new int[2000];
+        Random random = new Random(5);
+        for (int i = 0; i < 20_000; i++) {
+            int key = (int) Math.min(truth.length - 1, Math.abs(random.nextGaussian()) * 200);
+            truth[key]++;
+            sketch.add(key * 0x10001L);
+        }
+        int exact = 0;
+        for (int key = 0; key < truth.length; key++) {
+            int estimate = sketch.estimate(key * 0x10001L);
+            assertTrue(estimate >= truth[key]);
+            exact += estimate == truth[key] ? 1 : 0;
+        }
+        assertTrue(exact > truth.length * 9 / 10);
+        assertTrue(sketch.bytes() >= 4 * 4 * (1 << 12));
+    }
+    
+    @Test
+    public void testForItemsWidth() {
+        assertEquals(new CountMinSketch(1).bytes(), CountMinSketch.forItems(0).bytes());
+        assertEquals(new CountMinSketch(1000).bytes(), CountMinSketch.forItems(1000).bytes());
+        assertEquals(new CountMinSketch(CountMinSketch.MAX_WIDTH).bytes(),
+                CountMinSketch.forItems(10L * Integer.MAX_VALUE).bytes());
+    }
+    
+}
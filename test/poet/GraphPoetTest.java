@@ -5,6 +5,16 @@ package poet;
 
 import static org.junit.Assert.*;
 
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.util.Random;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
 import org.junit.Test;
 
 /**
@@ -13,13 +23,244 @@ import org.junit.Test;
 public class GraphPoetTest {
     
     // Testing strategy
-    //   TODO
+    //   - corpus: one line, several lines, mixed case
+    //   - input: empty, one word, several words
+    //   - bridge: none, one candidate, several candidates with distinct or tied weights
+    //   - case of input words: preserved; bridge words lower case
+    //   - instrumented: no, yes; registered under a free name, a poet name
+    //     already taken, a graph name already taken
+    //   - construction: eager, lazy (poems must match eager ones; graph built
+    //     only for queried words), frozen (poems must match eager ones),
+    //     n-gram (context changes bridge, context too short or unseen falls
+    //     back to eager, pruned n-grams ignored), pruned (thresholds 1 match
+    //     eager; rare words and light edges absent from graph and poems),
+    //     image (poems must match the poet that wrote it)
+    //   - input length: below and above the parallel threshold, not a whole
+    //     number of chunks; long poems must match poems built pair by pair
     
     @Test(expected=AssertionError.class)
     public void testAssertionsEnabled() {
         assert false; // make sure assertions are enabled with VM argument: -ea
     }
     
-    // TODO tests
+    @Test
+    public void testPoemMugarOmniTheater() throws IOException {
+        GraphPoet poet = new GraphPoet(new File("src/poet/mugar-omni-theater.txt"));
+        assertEquals("Test of the system.", poet.poem("Test the system."));
+    }
+    
+    @Test
+    public void testPoemEmptyAndSingleWord() throws IOException {
+        GraphPoet poet = new GraphPoet(new File("test/poet/star-trek.txt"));
+        assertEquals("", poet.poem(""));
+        assertEquals("", poet.poem("   "));
+        assertEquals("Seek", poet.poem("Seek"));
+    }
+    
+    @Test
+    public void testPoemMultiLineCorpus() throws IOException {
+        GraphPoet poet = new GraphPoet(new File("test/poet/star-trek.txt"));
+        assertEquals("Seek to explore strange new life and exciting synergies!",
+                poet.poem("Seek to explore new and exciting synergies!"));
+        assertEquals("Seek to explore strange new civilizations",
+                poet.poem("Seek  to explore\nnew civilizations"));
+    }
+    
+    @Test
+    public void testPoemTieBrokenLexicographically() throws IOException {
+        // "a b c" and "a d c" both occur once, so b and d tie as bridges
+        GraphPoet poet = new GraphPoet(new File("test/poet/ties.txt"));
+        assertEquals("A b C", poet.poem("A C"));
+        assertEquals("c a b", poet.poem("c b"));
+    }
+    
+    @Test
+    public void testPoemInstrumented() throws IOException {
+        GraphPoet plain = new GraphPoet(new File("test/poet/star-trek.txt"));
+        assertFalse(plain.metrics().isPresent());
+        
+        GraphPoet poet = new GraphPoet(new File("test/poet/star-trek.txt"), true);
+        PoetMetrics metrics = poet.metrics().get();
+        assertEquals(plain.poem("Seek to explore new worlds"), poet.poem("Seek to explore new worlds"));
+        assertEquals(1, metrics.getPoemCount());
+        assertTrue(metrics.graphMetrics().getSetCount() > 0);
+        assertTrue(metrics.graphMetrics().getTargetsCount() > 0);
+        assertEquals(10, metrics.graphMetrics().getVertexCount());
+    }
+    
+    @Test
+    public void testMetricsRegisterAllOrNothing() throws IOException, JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        PoetMetrics first = new GraphPoet(new File("test/poet/ties.txt"), true).metrics().get();
+        PoetMetrics second = new GraphPoet(new File("test/poet/ties.txt"), true).metrics().get();
+        ObjectName graphName = new ObjectName("graph:type=GraphMetrics,name=" + ObjectName.quote("taken"));
+        ObjectName poetName = first.register("taken");
+        try {
+            assertTrue(server.isRegistered(poetName));
+            assertTrue(server.isRegistered(graphName));
+            try {
+                second.register("taken");
+                fail("expected the name to be taken");
+            } catch (JMException e) {
+                // expected
+            }
+            // the poet name is free again but the graph name is not
+            first.graphMetrics().unregister();
+            try {
+                second.register("taken");
+                fail("expected the poet name to be taken");
+            } catch (JMException e) {
+                // expected
+            }
+            assertFalse(server.isRegistered(graphName));
+        } finally {
+            first.unregister();
+            second.unregister();
+        }
+    }
+    
+    @Test
+    public void testLazyAndFrozenPoemsMatchEager() throws IOException {
+        for (String corpus : new String[] { "src/poet/mugar-omni-theater.txt",
+                "test/poet/star-trek.txt", "test/poet/ties.txt" }) {
+            GraphPoet eager = new GraphPoet(new File(corpus));
+            GraphPoet lazy = GraphPoet.lazy(new File(corpus), false);
+            GraphPoet frozen = GraphPoet.frozen(new File(corpus), false);
+            for (String input : new String[] { "", "Seek", "Test the system.", "A C", "c b",
+                    "Seek to explore new and exciting synergies!", "new new new" }) {
+                assertEquals(corpus + ": " + input, eager.poem(input), lazy.poem(input));
+                assertEquals(corpus + ": " + input, eager.poem(input), lazy.poem(input));
+                assertEquals(corpus + ": " + input, eager.poem(input), frozen.poem(input));
+            }
+        }
+    }
+    
+    @Test
+    public void testLazyBuildsOnlyQueriedWords() throws IOException {
+        GraphPoet poet = GraphPoet.lazy(new File("test/poet/star-trek.txt"), true);
+        PoetMetrics metrics = poet.metrics().get();
+        assertEquals(0, metrics.graphMetrics().getVertexCount());
+        
+        assertEquals("explore strange new", poet.poem("explore new"));
+        // followers of "explore" and predecessors of "new"
+        assertEquals(5, metrics.graphMetrics().getVertexCount());
+        long sets = metrics.graphMetrics().getSetCount();
+        
+        assertEquals("explore strange new", poet.poem("explore new"));
+        assertEquals(sets, metrics.graphMetrics().getSetCount());
+    }
+    
+    @Test
+    public void testNGramContextChangesBridge() throws IOException {
+        // "a b c" is the heavier path, but "y a" is only ever followed by "d c"
+        GraphPoet eager = new GraphPoet(new File("test/poet/context.txt"));
+        GraphPoet poet = GraphPoet.nGram(new File("test/poet/context.txt"), false, 2, 1);
+        assertEquals("y a b c", eager.poem("y a c"));
+        assertEquals("Y a d C", poet.poem("Y a C"));
+        assertEquals("x a b c", poet.poem("x a c"));
+        // no context before "a": same as eager
+        assertEquals("a b c", poet.poem("a c"));
+        assertEquals("c x a b c", poet.poem("c a c"));
+    }
+    
+    @Test
+    public void testNGramPruningFallsBack() throws IOException {
+        // "y a d" occurs twice and "x a b" three times; a threshold of 3 drops
+        // the context that favored d
+        GraphPoet poet = GraphPoet.nGram(new File("test/poet/context.txt"), false, 3, 3);
+        assertEquals("y a b c", poet.poem("y a c"));
+    }
+    
+    @Test
+    public void testNGramMatchesEagerWithoutContext() throws IOException {
+        for (String corpus : new String[] { "src/poet/mugar-omni-theater.txt",
+                "test/poet/star-trek.txt", "test/poet/ties.txt" }) {
+            GraphPoet eager = new GraphPoet(new File(corpus));
+            GraphPoet poet = GraphPoet.nGram(new File(corpus), false, 4, 1);
+            for (String input : new String[] { "", "Seek", "Test the system.", "A C",
+                    "Seek to explore new and exciting synergies!" }) {
+                assertEquals(corpus + ": " + input, eager.poem(input), poet.poem(input));
+            }
+        }
+    }
+    
+    @Test
+    public void testPrunedWithoutThresholdsMatchesEager() throws IOException {
+        for (String corpus : new String[] { "src/poet/mugar-omni-theater.txt",
+                "test/poet/star-trek.txt", "test/poet/ties.txt", "test/poet/context.txt" }) {
+            GraphPoet eager = new GraphPoet(new File(corpus));
+            GraphPoet pruned = GraphPoet.pruned(new File(corpus), false, 1, 1);
+            assertEquals(eager.toString(), pruned.toString());
+            for (String input : new String[] { "", "Seek", "Test the system.", "A C", "c b", "y a c",
+                    "Seek to explore new and exciting synergies!" }) {
+                assertEquals(corpus + ": " + input, eager.poem(input), pruned.poem(input));
+            }
+        }
+    }
+    
+    @Test
+    public void testPrunedDropsRareWordsAndLightEdges() throws IOException {
+        // ties: a and c occur twice, b and d once; every edge has weight 1
+        GraphPoet rareWords = GraphPoet.pruned(new File("test/poet/ties.txt"), true, 2, 1);
+        assertEquals("A C", rareWords.poem("A C"));
+        assertEquals(2, rareWords.metrics().get().graphMetrics().getVertexCount());
+        assertEquals(1, rareWords.metrics().get().graphMetrics().getEdgeCount());
+        
+        GraphPoet lightEdges = GraphPoet.pruned(new File("test/poet/ties.txt"), true, 1, 2);
+        assertEquals(4, lightEdges.metrics().get().graphMetrics().getVertexCount());
+        assertEquals(0, lightEdges.metrics().get().graphMetrics().getEdgeCount());
+        
+        // context: "x a", "a b" and "b c" occur three times, "a d" and "d c" twice
+        GraphPoet heavy = GraphPoet.pruned(new File("test/poet/context.txt"), true, 1, 3);
+        assertEquals("x a b c", heavy.poem("x b c"));
+        assertEquals("y a d", new GraphPoet(new File("test/poet/context.txt")).poem("y d"));
+        assertEquals("y d", heavy.poem("y d"));
+        assertEquals(3, heavy.metrics().get().graphMetrics().getEdgeCount());
+    }
+    
+    @Test
+    public void testImagePoemsMatchEager() throws IOException {
+        File image = Files.createTempFile("poet", ".img").toFile();
+        try {
+            for (String corpus : new String[] { "src/poet/mugar-omni-theater.txt",
+                    "test/poet/star-trek.txt", "test/poet/ties.txt", "test/poet/context.txt" }) {
+                GraphPoet eager = new GraphPoet(new File(corpus));
+                eager.writeImage(image);
+                GraphPoet mapped = GraphPoet.fromImage(image);
+                assertFalse(mapped.metrics().isPresent());
+                for (String input : new String[] { "", "Seek", "Test the system.", "A C", "c b", "y a c",
+                        "Seek to explore new and exciting synergies!", "unknown words" }) {
+                    assertEquals(corpus + ": " + input, eager.poem(input), mapped.poem(input));
+                }
+            }
+        } finally {
+            image.delete();
+        }
+    }
+    
+    @Test(expected=UnsupportedOperationException.class)
+    public void testLazyPoetHasNoImage() throws IOException {
+        GraphPoet.lazy(new File("test/poet/ties.txt"), false).writeImage(new File("unused.img"));
+    }
     
+    @Test
+    public void testLongPoemsMatchPairByPair() throws IOException {
+        String[] vocabulary = GraphPoet.words("Test the system. THE sound Mugar of a This is Omni unknown words");
+        Random random = new Random(44);
+        StringBuilder input = new StringBuilder();
+        String[] words = new String[20000 + 37];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = vocabulary[random.nextInt(vocabulary.length)];
+            input.append(words[i]).append(random.nextInt(5) == 0 ? "\n  " : " ");
+        }
+        File corpus = new File("src/poet/mugar-omni-theater.txt");
+        for (GraphPoet poet : new GraphPoet[] { new GraphPoet(corpus), new GraphPoet(corpus, true),
+                GraphPoet.frozen(corpus, false), GraphPoet.pruned(corpus, false, 1, 1) }) {
+            StringBuilder expected = new StringBuilder(words[0]);
+            for (int i = 1; i < words.length; i++) {
+                expected.append(poet.poem(words[i - 1] + " " + words[i]).substring(words[i - 1].length()));
+            }
+            assertEquals(expected.toString(), poet.poem(input.toString()));
+        }
+    }
 }
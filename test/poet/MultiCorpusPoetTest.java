@@ -0,0 +1,106 @@
+package poet;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Tests for MultiCorpusPoet.
+ */
+public class MultiCorpusPoetTest {
+    
+    // Testing strategy
+    //   - corpora: one, several sharing words
+    //   - blend: one corpus (must match GraphPoet), several corpora, factor 0,
+    //     fractional factors that change the bridge, corpus omitted
+    //   - input words: in vocabulary, unknown
+    //   - invalid blend: unknown corpus, negative factor, NaN
+    
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+    
+    private static final String[] CORPORA = { "src/poet/mugar-omni-theater.txt",
+            "test/poet/star-trek.txt", "test/poet/ties.txt", "test/poet/context.txt" };
+    
+    private static final String[] INPUTS = { "", "Seek", "Test the system.", "A C", "c b",
+            "Seek to explore new and exciting synergies!", "y a c", "new new new", "unknown words here" };
+    
+    private static MultiCorpusPoet poet() throws IOException {
+        Map<String, File> corpora = new LinkedHashMap<>();
+        for (String corpus : CORPORA) {
+            corpora.put(corpus, new File(corpus));
+        }
+        return new MultiCorpusPoet(corpora);
+    }
+    
+    private static Map<String, Double> blend(Object... namesAndFactors) {
+        Map<String, Double> blend = new HashMap<>();
+        for (int i = 0; i < namesAndFactors.length; i += 2) {
+            blend.put((String) namesAndFactors[i], (Double) namesAndFactors[i + 1]);
+        }
+        return blend;
+    }
+    
+    @Test
+    public void testSingleCorpusBlendMatchesGraphPoet() throws IOException {
+        MultiCorpusPoet poet = poet();
+        assertEquals(Arrays.asList(CORPORA), Arrays.asList(poet.corpora().toArray()));
+        for (String corpus : CORPORA) {
+            GraphPoet single = new GraphPoet(new File(corpus));
+            for (String input : INPUTS) {
+                assertEquals(corpus + ": " + input, single.poem(input),
+                        poet.poem(input, blend(corpus, 1.0)));
+                assertEquals(corpus + ": " + input, single.poem(input),
+                        poet.poem(input, blend(corpus, 3.0, "test/poet/ties.txt".equals(corpus)
+                                ? "test/poet/context.txt" : "test/poet/ties.txt", 0.0)));
+            }
+        }
+    }
+    
+    @Test
+    public void testBlendChangesBridge() throws IOException {
+        Map<String, File> corpora = new LinkedHashMap<>();
+        corpora.put("ties", new File("test/poet/ties.txt"));
+        corpora.put("context", new File("test/poet/context.txt"));
+        corpora.put("detour", new File("test/poet/detour.txt"));
+        MultiCorpusPoet poet = new MultiCorpusPoet(corpora);
+        // paths a -> b -> c and a -> d -> c have weights 1+1 and 1+1 in ties,
+        // 3+3 and 2+2 in context, and 0 and 4+4 in detour
+        assertEquals("A b C", poet.poem("A C", blend("ties", 1.0)));
+        assertEquals("A d C", poet.poem("A C", blend("detour", 1.0)));
+        assertEquals("A b C", poet.poem("A C", blend("context", 1.0, "detour", 0.1)));
+        assertEquals("A b C", poet.poem("A C", blend("context", 1.0, "detour", 0.25)));
+        assertEquals("A d C", poet.poem("A C", blend("context", 1.0, "detour", 0.5)));
+        // "x" only occurs in context
+        assertEquals("x a b", poet.poem("x b", blend("context", 1.0)));
+        assertEquals("x b", poet.poem("x b", blend("ties", 1.0, "detour", 1.0)));
+        assertEquals("x b", poet.poem("x b", Collections.<String, Double>emptyMap()));
+        assertEquals(6, poet.vocabularySize());
+    }
+    
+    @Test(expected=IllegalArgumentException.class)
+    public void testUnknownCorpus() throws IOException {
+        poet().poem("a c", blend("nope", 1.0));
+    }
+    
+    @Test(expected=IllegalArgumentException.class)
+    public void testNegativeFactor() throws IOException {
+        poet().poem("a c", blend(CORPORA[0], -1.0));
+    }
+    
+    @Test(expected=IllegalArgumentException.class)
+    public void testNaNFactor() throws IOException {
+        poet().poem("a c", blend(CORPORA[0], Double.NaN));
+    }
+    
+}
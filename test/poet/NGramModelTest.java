@@ -0,0 +1,107 @@
+package poet;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests for NGramModel and CountTable.
+ */
+public class NGramModelTest {
+    
+    // Testing strategy
+    //   - context length: 2, 3, 4; history longer than context
+    //   - extra word: none, present, unknown
+    //   - words: known, unknown
+    //   - pruning: none, drops some n-grams, drops all; long corpus where
+    //     the sketch prefilter sees many n-grams seen once
+    //   - CountTable: empty, growing past resize, prune shrinks
+    
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+    
+    private static final String[] CORPUS = "x a b c y a d c y a d c x a b c x a b c".split(" ");
+    
+    @Test
+    public void testCounts() {
+        NGramModel model = new NGramModel(CORPUS, 4, 1);
+        assertEquals(4, model.maxContext());
+        List<String> history = Arrays.asList("c", "x", "a");
+        assertEquals(3, model.count(history, 2, null, "b"));
+        assertEquals(0, model.count(history, 2, null, "d"));
+        assertEquals(2, model.count(history, 3, null, "b"));
+        assertEquals(3, model.count(history, 2, "b", "c"));
+        assertEquals(3, model.count(history, 3, "b", "c"));
+        assertEquals(1, model.count(Arrays.asList("x", "a", "b"), 4, "c", "x"));
+        assertEquals(0, model.count(history, 2, "zzz", "c"));
+        assertEquals(0, model.count(Arrays.asList("zzz", "a"), 2, null, "b"));
+        assertEquals(0, model.count(history, 2, null, "zzz"));
+    }
+    
+    @Test
+    public void testPruning() {
+        NGramModel full = new NGramModel(CORPUS, 2, 1);
+        NGramModel pruned = new NGramModel(CORPUS, 2, 3);
+        List<String> history = Arrays.asList("y", "a");
+        assertEquals(2, full.count(history, 2, null, "d"));
+        assertEquals(0, pruned.count(history, 2, null, "d"));
+        assertEquals(3, pruned.count(Arrays.asList("x", "a"), 2, null, "b"));
+        assertTrue(pruned.tableBytes() <= full.tableBytes());
+        
+        NGramModel empty = new NGramModel(CORPUS, 2, 100);
+        assertEquals(0, empty.count(Arrays.asList("x", "a"), 2, null, "b"));
+    }
+    
+    @Test
+    public void testPruningLongCorpusKeepsExactCounts() {
+        Random random = new Random(35);
+        String[] words = new String[50_000];
+        for (int i = 0; i < words.length; i++) {
+            // a few common words among many rare ones
+            words[i] = random.nextInt(4) == 0 ? "w" + random.nextInt(5) : "r" + random.nextInt(20_000);
+        }
+        NGramModel full = new NGramModel(words, 3, 1);
+        NGramModel pruned = new NGramModel(words, 3, 3);
+        assertTrue(pruned.tableBytes() * 10 < full.tableBytes());
+        for (int end = 3; end < words.length; end += 7) {
+            List<String> history = Arrays.asList(words[end - 3], words[end - 2], words[end - 1]);
+            for (int m = 2; m <= 3; m++) {
+                int count = full.count(history, m, null, words[end]);
+                assertEquals(count >= 3 ? count : 0, pruned.count(history, m, null, words[end]));
+            }
+        }
+    }
+    
+    @Test(expected=IllegalArgumentException.class)
+    public void testContextTooLong() {
+        new NGramModel(CORPUS, 5, 1);
+    }
+    
+    @Test
+    public void testCountTable() {
+        CountTable table = new CountTable(0);
+        assertEquals(0, table.get(42));
+        long small = table.bytes();
+        for (long key = 1; key <= 1000; key++) {
+            for (int i = 0; i < key % 3 + 1; i++) {
+                table.increment(key * 0x9E3779B97F4A7C15L);
+            }
+        }
+        assertEquals(1000, table.size());
+        assertEquals(3, table.get(2 * 0x9E3779B97F4A7C15L));
+        table.prune(3);
+        assertEquals(333, table.size());
+        assertEquals(0, table.get(1 * 0x9E3779B97F4A7C15L));
+        assertEquals(3, table.get(5 * 0x9E3779B97F4A7C15L));
+        table.prune(4);
+        assertEquals(0, table.size());
+        assertEquals(small, table.bytes());
+    }
+    
+}
@@ -0,0 +1,158 @@
+package poet;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.Test;
+
+/**
+ * Tests for PoemService.
+ */
+public class PoemServiceTest {
+    
+    // Testing strategy
+    //   - poemAsync: result matches poem(); identical inputs pending at once
+    //     (coalesced) or not; queue full; service closed
+    //   - poems: demand 0, 1, less than and more than the number of inputs;
+    //     window smaller than demand, equal to maxPending; an input repeated
+    //     right after itself; a failing request
+    
+    /** Executor that runs tasks only when the test says so. */
+    private static class ManualExecutor implements Executor {
+        final List<Runnable> tasks = new ArrayList<>();
+        
+        @Override
+        public void execute(Runnable task) {
+            tasks.add(task);
+        }
+        
+        void runAll() {
+            while (!tasks.isEmpty()) {
+                tasks.remove(0).run();
+            }
+        }
+    }
+    
+    /** Subscriber that records what it receives and requests nothing by itself. */
+    private static class RecordingSubscriber implements Flow.Subscriber<String> {
+        Flow.Subscription subscription;
+        final List<String> received = new ArrayList<>();
+        Throwable error;
+        boolean completed;
+        
+        @Override public void onSubscribe(Flow.Subscription subscription) { this.subscription = subscription; }
+        @Override public void onNext(String item) { received.add(item); }
+        @Override public void onError(Throwable throwable) { error = throwable; }
+        @Override public void onComplete() { completed = true; }
+    }
+    
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+    
+    @Test
+    public void testPoemAsyncMatchesPoem() throws IOException {
+        GraphPoet poet = new GraphPoet(new File("test/poet/star-trek.txt"));
+        try (PoemService service = new PoemService(poet, 16)) {
+            String input = "Seek to explore new and exciting synergies!";
+            assertEquals(poet.poem(input), service.poemAsync(input).join());
+        }
+    }
+    
+    @Test
+    public void testPoemAsyncCoalescesAndRejects() throws IOException {
+        GraphPoet poet = new GraphPoet(new File("test/poet/star-trek.txt"));
+        ManualExecutor executor = new ManualExecutor();
+        PoemService service = new PoemService(poet, 2, executor);
+        
+        CompletableFuture<String> first = service.poemAsync("explore new");
+        CompletableFuture<String> same = service.poemAsync("explore new");
+        CompletableFuture<String> other = service.poemAsync("new and");
+        CompletableFuture<String> full = service.poemAsync("to new");
+        assertEquals(2, executor.tasks.size());
+        assertEquals(2, service.pending());
+        assertTrue(full.isCompletedExceptionally());
+        try {
+            full.join();
+            fail("expected rejection");
+        } catch (CompletionException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+        
+        // cancelling one caller's copy does not cancel the shared request
+        same.cancel(true);
+        executor.runAll();
+        assertEquals("explore strange new", first.join());
+        assertEquals("new life and", other.join());
+        assertEquals(0, service.pending());
+        
+        service.close();
+        assertTrue(service.poemAsync("explore new").isCompletedExceptionally());
+    }
+    
+    @Test
+    public void testPoemsHonorsDemand() throws IOException {
+        GraphPoet poet = new GraphPoet(new File("test/poet/star-trek.txt"));
+        ManualExecutor executor = new ManualExecutor();
+        PoemService service = new PoemService(poet, 16, executor);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        service.poems(List.of("explore new", "new and", "to new"), 1).subscribe(subscriber);
+        
+        executor.runAll();
+        assertTrue(executor.tasks.isEmpty());
+        assertEquals(List.of(), subscriber.received);
+        
+        subscriber.subscription.request(2);
+        assertEquals(1, executor.tasks.size());
+        executor.runAll();
+        executor.runAll();
+        assertEquals(List.of("explore strange new", "new life and"), subscriber.received);
+        assertFalse(subscriber.completed);
+        
+        subscriber.subscription.request(5);
+        executor.runAll();
+        assertEquals(List.of("explore strange new", "new life and", "to new"), subscriber.received);
+        assertTrue(subscriber.completed);
+        assertNull(subscriber.error);
+    }
+    
+    @Test
+    public void testPoemsWindowEqualsMaxPending() throws IOException {
+        GraphPoet poet = new GraphPoet(new File("test/poet/star-trek.txt"));
+        ManualExecutor executor = new ManualExecutor();
+        PoemService service = new PoemService(poet, 1, executor);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        service.poems(List.of("explore new", "new and", "new and", "to new"), 1).subscribe(subscriber);
+        
+        subscriber.subscription.request(4);
+        executor.runAll();
+        assertNull(subscriber.error);
+        assertEquals(List.of("explore strange new", "new life and", "new life and", "to new"),
+                subscriber.received);
+        assertTrue(subscriber.completed);
+    }
+    
+    @Test
+    public void testPoemsReportsFailure() throws IOException {
+        GraphPoet poet = new GraphPoet(new File("test/poet/star-trek.txt"));
+        PoemService service = new PoemService(poet, 1, new ManualExecutor());
+        service.close();
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        service.poems(List.of("explore new", "new and"), 4).subscribe(subscriber);
+        subscriber.subscription.request(2);
+        assertTrue(subscriber.error instanceof IllegalStateException);
+        assertEquals(List.of(), subscriber.received);
+        assertFalse(subscriber.completed);
+    }
+    
+}